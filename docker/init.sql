@@ -3,22 +3,54 @@ CREATE TABLE IF NOT EXISTS users (
     telegram_id BIGINT UNIQUE NOT NULL,
     username VARCHAR(255),
     balance DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
-    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
+-- Помесячные секции по created_at: индексы и VACUUM работают с небольшими
+-- секциями, а старые месяцы отсоединяются целиком (TransactionPartitionJob)
 CREATE TABLE IF NOT EXISTS transactions (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     user_id BIGINT NOT NULL,
     type VARCHAR(20) NOT NULL,
     amount DECIMAL(15, 2) NOT NULL,
     description VARCHAR(255),
     recipient_id BIGINT,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_transactions PRIMARY KEY (id, created_at),
     CONSTRAINT fk_transaction_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+-- Секции на текущий и три следующих месяца; дальше их создаёт бот
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    FOR i IN 0..3 LOOP
+        month := date_trunc('month', CURRENT_DATE)::DATE + make_interval(months => i);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::DATE);
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS user_statistics (
+    user_id BIGINT PRIMARY KEY,
+    deposit_count BIGINT NOT NULL DEFAULT 0,
+    deposit_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    withdrawal_count BIGINT NOT NULL DEFAULT 0,
+    withdrawal_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    transfer_out_count BIGINT NOT NULL DEFAULT 0,
+    transfer_out_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    transfer_in_count BIGINT NOT NULL DEFAULT 0,
+    transfer_in_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    CONSTRAINT fk_user_statistics_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- Hibernate выделяет идентификаторы блоками по 50 (pooled optimizer)
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE transactions_id_seq INCREMENT BY 50;
+
 CREATE INDEX IF NOT EXISTS idx_users_telegram_id ON users(telegram_id);
-CREATE INDEX IF NOT EXISTS idx_transactions_user_id ON transactions(user_id);
-CREATE INDEX IF NOT EXISTS idx_transactions_created_at ON transactions(created_at DESC);
-CREATE INDEX IF NOT EXISTS idx_transactions_type ON transactions(type);
+-- Индекс секционированной таблицы создаётся в каждой секции отдельно
+CREATE INDEX IF NOT EXISTS idx_transactions_user_created ON transactions(user_id, created_at DESC, id DESC);
 
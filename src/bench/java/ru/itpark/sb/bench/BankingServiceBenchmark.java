@@ -0,0 +1,164 @@
+package ru.itpark.sb.bench;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.job.StatisticsBackfillJob;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.service.BankingService;
+import ru.itpark.sb.service.BankingService.TransactionStatistics;
+import ru.itpark.sb.service.LockingMode;
+import ru.itpark.sb.service.OperationResult;
+import ru.itpark.sb.service.RetryPolicy;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность основных операций {@link BankingService} на H2 в
+ * режиме PostgreSQL. Журнал операций заполняется одним SQL-запросом на
+ * {@code ledgerRows} строк, поровну между {@value #ACCOUNTS} счетами, затем
+ * статистика пересчитывается {@link StatisticsBackfillJob}. Операции записи
+ * дописывают журнал по ходу замера, поэтому на 1k строк он заметно растёт.
+ * Пополнение и снятие здесь идут веткой {@link UserDao#changeBalance} для
+ * H2 — UPDATE и затем SELECT; на Postgres это один {@code UPDATE … RETURNING},
+ * так что цифры для него завышают цену изменения баланса на один запрос.
+ *
+ * <p>Запуск: {@code mvn -Pbench test-compile exec:exec -Djmh.args="BankingService -prof gc"};
+ * профиль {@code bench} по умолчанию тоже включает {@code -prof gc}, так что
+ * рядом с пропускной способностью выводится выделение памяти на операцию
+ * ({@code gc.alloc.rate.norm}). Журнал на 10M строк в прогон по умолчанию не
+ * входит, ему нужна куча побольше:
+ * {@code -Djmh.args="BankingService -p ledgerRows=10000000 -jvmArgsAppend -Xmx8g -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BankingServiceBenchmark {
+    private static final int ACCOUNTS = 1_000;
+    private static final long FIRST_TELEGRAM_ID = 3_000_000L;
+    private static final Money AMOUNT = Money.ofKopecks(100);
+    /** allocationSize генераторов id: оптимизатор pooled выдаёт id от значения минус шаг. */
+    private static final int ID_ALLOCATION = 50;
+
+    @Param({"1000", "100000", "1000000"})
+    public int ledgerRows;
+
+    private SessionFactory sessionFactory;
+    private BankingService bankingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("db.pool.max-size", "4");
+        sessionFactory = H2SessionFactory.create("service_" + ledgerRows, properties);
+        seed();
+        new StatisticsBackfillJob(sessionFactory, 500).run();
+
+        bankingService = new BankingService(new UserDao(sessionFactory), new TransactionDao(sessionFactory),
+                new UserStatisticsDao(sessionFactory), new UserIdentityCache(ACCOUNTS),
+                new TransactionTemplate(sessionFactory),
+                new RetryPolicy(5, 5, 100, TimeUnit.MILLISECONDS), LockingMode.PESSIMISTIC);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public User registerOrGetUser() {
+        long telegramId = randomTelegramId();
+        return bankingService.registerOrGetUser(telegramId, "bench" + (telegramId - FIRST_TELEGRAM_ID));
+    }
+
+    @Benchmark
+    public OperationResult deposit() {
+        return bankingService.deposit(randomTelegramId(), AMOUNT, null);
+    }
+
+    @Benchmark
+    public OperationResult withdraw() {
+        return bankingService.withdraw(randomTelegramId(), AMOUNT, null);
+    }
+
+    @Benchmark
+    public OperationResult transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        return bankingService.transfer(FIRST_TELEGRAM_ID + from, FIRST_TELEGRAM_ID + to, AMOUNT, null);
+    }
+
+    @Benchmark
+    public List<TransactionEntity> getTransactionHistory() {
+        return bankingService.getTransactionHistory(randomTelegramId(), 10);
+    }
+
+    @Benchmark
+    public TransactionStatistics getStatistics() {
+        return bankingService.getStatistics(randomTelegramId());
+    }
+
+    private static long randomTelegramId() {
+        return FIRST_TELEGRAM_ID + ThreadLocalRandom.current().nextInt(ACCOUNTS);
+    }
+
+    /**
+     * Счета с id 1..ACCOUNTS и журнал за последние {@code ledgerRows} минут:
+     * у каждого счёта чередуются пополнения, снятия и переводы.
+     */
+    private void seed() {
+        sessionFactory.inTransaction(session -> {
+            session.createNativeMutationQuery("""
+                            INSERT INTO users (id, telegram_id, username, balance, created_at, version)
+                            SELECT X, :firstTelegramId + X - 1, 'bench' || (X - 1), 1000000000.00, CURRENT_TIMESTAMP, 0
+                            FROM SYSTEM_RANGE(1, :accounts)""")
+                    .setParameter("firstTelegramId", FIRST_TELEGRAM_ID)
+                    .setParameter("accounts", ACCOUNTS)
+                    .executeUpdate();
+            session.createNativeMutationQuery("""
+                            INSERT INTO transactions (id, user_id, type, amount, description, recipient_id, created_at)
+                            SELECT X, MOD(X, :accounts) + 1,
+                                   CASE MOD(X / :accounts, 4) WHEN 0 THEN 'DEPOSIT' WHEN 1 THEN 'WITHDRAWAL'
+                                        WHEN 2 THEN 'TRANSFER_OUT' ELSE 'TRANSFER_IN' END,
+                                   CAST(1 + MOD(X * 7919, 100000) / 100.0 AS DECIMAL(15, 2)),
+                                   CASEWHEN(MOD(X, 3) = 0, 'Операция ' || X, NULL),
+                                   CASEWHEN(MOD(X / :accounts, 4) >= 2, :firstTelegramId + MOD(X + 1, :accounts), NULL),
+                                   DATEADD('MINUTE', X - :ledgerRows, CURRENT_TIMESTAMP)
+                            FROM SYSTEM_RANGE(1, :ledgerRows)""")
+                    .setParameter("accounts", ACCOUNTS)
+                    .setParameter("firstTelegramId", FIRST_TELEGRAM_ID)
+                    .setParameter("ledgerRows", ledgerRows)
+                    .executeUpdate();
+            session.createNativeMutationQuery("ALTER SEQUENCE users_id_seq RESTART WITH "
+                    + (ACCOUNTS + ID_ALLOCATION + 1)).executeUpdate();
+            session.createNativeMutationQuery("ALTER SEQUENCE transactions_id_seq RESTART WITH "
+                    + (ledgerRows + ID_ALLOCATION + 1)).executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package ru.itpark.sb.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.render.MessageRenderer;
+import ru.itpark.sb.service.BankingService.TransactionStatistics;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение прежнего построения ответов (новые {@code NumberFormat} и
+ * {@code DateTimeFormatter} на каждое сообщение) с {@link MessageRenderer}
+ * на странице истории и сообщении статистики. Выделение памяти на сообщение
+ * видно в метрике {@code gc.alloc.rate.norm}.
+ *
+ * <p>Запуск: {@code mvn -Pbench test-compile exec:exec -Djmh.args="MessageRendering -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRenderingBenchmark {
+    private static final Locale LOCALE = Locale.forLanguageTag("ru-RU");
+
+    private final MessageRenderer renderer = new MessageRenderer(LOCALE);
+    private List<TransactionEntity> history;
+    private TransactionStatistics statistics;
+    private Money balance;
+
+    @Setup
+    public void setUp() {
+        User user = new User(1L, "bench");
+        TransactionEntity.TransactionType[] types = TransactionEntity.TransactionType.values();
+        history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TransactionEntity transaction = new TransactionEntity(user, types[i % types.length],
+                    new BigDecimal(1000 + i * 137).movePointLeft(1), i % 2 == 0 ? "Перевод между пользователями" : null);
+            transaction.setRecipientId(i % 3 == 0 ? 100_000L + i : null);
+            transaction.setCreatedAt(LocalDateTime.of(2024, 3, 1 + i, 9, 5 + i));
+            history.add(transaction);
+        }
+        statistics = new TransactionStatistics(Money.parse("152300.00"), Money.parse("48210.50"),
+                Money.parse("12000.00"), Money.parse("3100.00"), 42, 17, 6, 3, 68,
+                Money.parse("3626.19"), Money.parse("2835.91"));
+        balance = Money.parse("95189.50");
+    }
+
+    @Benchmark
+    public String historyLegacy() {
+        StringBuilder message = new StringBuilder("📜 История транзакций:\n\n");
+        NumberFormat formatter = NumberFormat.getNumberInstance(LOCALE);
+        formatter.setMinimumFractionDigits(2);
+        formatter.setMaximumFractionDigits(2);
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+        for (TransactionEntity transaction : history) {
+            String typeEmoji;
+            String typeText;
+            switch (transaction.getType()) {
+                case DEPOSIT -> {
+                    typeEmoji = "➕";
+                    typeText = "Пополнение";
+                }
+                case WITHDRAWAL -> {
+                    typeEmoji = "➖";
+                    typeText = "Снятие";
+                }
+                case TRANSFER_OUT -> {
+                    typeEmoji = "📤";
+                    typeText = "Перевод";
+                }
+                case TRANSFER_IN -> {
+                    typeEmoji = "📥";
+                    typeText = "Получен перевод";
+                }
+                default -> {
+                    typeEmoji = "💰";
+                    typeText = "Операция";
+                }
+            }
+            message.append(typeEmoji).append(" ").append(typeText)
+                    .append(": ").append(formatter.format(transaction.getAmount())).append(" ₽\n")
+                    .append("📅 ").append(transaction.getCreatedAt().format(dateFormatter)).append("\n");
+            if (transaction.getDescription() != null && !transaction.getDescription().isEmpty()) {
+                message.append("📝 ").append(transaction.getDescription()).append("\n");
+            }
+            if (transaction.getRecipientId() != null) {
+                message.append("👤 Получатель: ").append(transaction.getRecipientId()).append("\n");
+            }
+            message.append("\n");
+        }
+        return message.toString();
+    }
+
+    @Benchmark
+    public String historyRendered() {
+        return renderer.history(history);
+    }
+
+    @Benchmark
+    public String statisticsLegacy() {
+        NumberFormat formatter = NumberFormat.getNumberInstance(LOCALE);
+        formatter.setMinimumFractionDigits(2);
+        formatter.setMaximumFractionDigits(2);
+
+        StringBuilder message = new StringBuilder("📊 Ваша статистика:\n\n");
+        message.append("💰 Баланс: ").append(formatter.format(balance)).append(" ₽\n\n");
+        message.append("📈 Пополнения:\n");
+        message.append("  • Всего: ").append(formatter.format(statistics.getTotalDeposits())).append(" ₽\n");
+        message.append("  • Количество: ").append(statistics.getDepositCount()).append("\n");
+        if (statistics.getDepositCount() > 0) {
+            message.append("  • Средняя сумма: ").append(formatter.format(statistics.getAvgDeposit())).append(" ₽\n");
+        }
+        message.append("\n");
+        message.append("📉 Снятия:\n");
+        message.append("  • Всего: ").append(formatter.format(statistics.getTotalWithdrawals())).append(" ₽\n");
+        message.append("  • Количество: ").append(statistics.getWithdrawalCount()).append("\n");
+        if (statistics.getWithdrawalCount() > 0) {
+            message.append("  • Средняя сумма: ").append(formatter.format(statistics.getAvgWithdrawal())).append(" ₽\n");
+        }
+        message.append("\n");
+        if (statistics.getTransferOutCount() > 0 || statistics.getTransferInCount() > 0) {
+            message.append("📤 Переводы:\n");
+            message.append("  • Отправлено: ").append(formatter.format(statistics.getTotalTransfersOut()))
+                    .append(" ₽ (").append(statistics.getTransferOutCount()).append(")\n");
+            message.append("  • Получено: ").append(formatter.format(statistics.getTotalTransfersIn()))
+                    .append(" ₽ (").append(statistics.getTransferInCount()).append(")\n\n");
+        }
+        message.append("📋 Всего транзакций: ").append(statistics.getTotalTransactions());
+        return message.toString();
+    }
+
+    @Benchmark
+    public String statisticsRendered() {
+        return renderer.statistics(statistics, balance);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.itpark.sb.bench;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.service.BankingService;
+import ru.itpark.sb.service.LockingMode;
+import ru.itpark.sb.service.OperationResult;
+import ru.itpark.sb.service.RetryPolicy;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность переводов, когда несколько потоков одновременно
+ * переводят деньги между небольшим набором счетов. Чем меньше счетов, тем
+ * чаще потоки ждут блокировки одних и тех же строк. Пессимистичная и
+ * оптимистичная блокировки сравниваются на одних и тех же счетах. Основная
+ * оценка считает все вызовы; успешные переводы отдельно выводятся счётчиком
+ * {@code completed}, а те, для которых закончились попытки повтора, —
+ * счётчиком {@code failed}.
+ *
+ * <p>Запуск: {@code mvn -Pbench test-compile exec:exec -Djmh.args="TransferContention"}.
+ * В качестве базы используется H2 в режиме совместимости с PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+public class TransferContentionBenchmark {
+    private static final long FIRST_TELEGRAM_ID = 1_000_000L;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+    private static final Money AMOUNT = Money.ofKopecks(100);
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    public LockingMode mode;
+
+    @Param({"2", "16", "256"})
+    public int accounts;
+
+    private SessionFactory sessionFactory;
+    private BankingService bankingService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long completed;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            completed = 0;
+            failed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("db.pool.max-size", "16");
+        properties.setProperty("db.pool.min-idle", "16");
+        sessionFactory = H2SessionFactory.create("transfers_" + mode + "_" + accounts, properties);
+
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < accounts; i++) {
+                User user = new User(FIRST_TELEGRAM_ID + i, "bench" + i);
+                user.setBalance(INITIAL_BALANCE);
+                session.persist(user);
+            }
+        });
+
+        bankingService = new BankingService(new UserDao(sessionFactory), new TransactionDao(sessionFactory),
+                new UserStatisticsDao(sessionFactory), new UserIdentityCache(accounts),
+                new TransactionTemplate(sessionFactory),
+                new RetryPolicy(10, 1, 50, TimeUnit.MILLISECONDS), mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts));
+        BigDecimal actual;
+        try (Session session = sessionFactory.openSession()) {
+            actual = session.createQuery("SELECT SUM(balance) FROM User", BigDecimal.class).getSingleResult();
+        }
+        sessionFactory.close();
+        if (expected.compareTo(actual) != 0) {
+            throw new IllegalStateException("Сумма балансов изменилась: ожидалось " + expected + ", получено " + actual);
+        }
+    }
+
+    @Benchmark
+    public OperationResult transfer(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        try {
+            OperationResult result = bankingService.transfer(FIRST_TELEGRAM_ID + from, FIRST_TELEGRAM_ID + to,
+                    AMOUNT, null);
+            outcome.completed++;
+            return result;
+        } catch (RuntimeException e) {
+            outcome.failed++;
+            return null;
+        }
+    }
+}
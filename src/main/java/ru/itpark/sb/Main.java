@@ -2,25 +2,40 @@ package ru.itpark.sb;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.bots.TelegramWebhookBot;
+import org.telegram.telegrambots.meta.ApiConstants;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import ru.itpark.sb.bot.BankingBot;
+import ru.itpark.sb.bot.BankingWebhookBot;
+import ru.itpark.sb.bot.WebhookServer;
+import ru.itpark.sb.cluster.ClusterIngress;
+import ru.itpark.sb.cluster.ClusterPollingBot;
+import ru.itpark.sb.cluster.ClusterWorker;
+import ru.itpark.sb.config.AppConfig;
 import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.job.TransactionPartitionJob;
+import ru.itpark.sb.metrics.HikariMetrics;
+import ru.itpark.sb.metrics.LoggingMetrics;
+import ru.itpark.sb.metrics.MetricsRegistry;
+import ru.itpark.sb.metrics.MetricsServer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
     public static void main(String[] args) {
         try {
-            logger.info("Инициализация Hibernate...");
-            HibernateConfig.getSessionFactory();
-            logger.info("Hibernate инициализирован успешно.");
-
             Properties properties = loadProperties();
             String botToken = getBotToken(properties);
             String botUsername = getBotUsername(properties);
@@ -31,14 +46,51 @@ public class Main {
                 System.exit(1);
             }
 
+            DefaultBotOptions botOptions = new DefaultBotOptions();
+            botOptions.setBaseUrl(AppConfig.get("telegram.api.base-url", ApiConstants.BASE_URL));
+            String botMode = AppConfig.get("bot.mode", "long-polling");
+
+            if ("ingress".equals(botMode)) {
+                Runnable stopIngress = startIngress(botOptions, botToken, botUsername);
+                logger.info("Входной узел кластера запущен");
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    logger.info("Завершение работы...");
+                    stopIngress.run();
+                }));
+                return;
+            }
+
+            logger.info("Инициализация Hibernate...");
+            HibernateConfig.getSessionFactory();
+            logger.info("Hibernate инициализирован успешно.");
+
+            Runnable stopMetrics = startMetrics();
+
+            TransactionPartitionJob partitionJob = TransactionPartitionJob.fromConfig();
+            if (AppConfig.getBoolean("transactions.partitions.enabled", true)) {
+                partitionJob.start(AppConfig.getLong("transactions.partitions.check-interval-hours", 24), TimeUnit.HOURS);
+            }
+
             logger.info("Запуск Telegram бота...");
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            BankingBot bot = new BankingBot(botToken, botUsername);
-            botsApi.registerBot(bot);
-            logger.info("Бот успешно запущен и готов к работе!");
+            BankingBot bot = new BankingBot(botOptions, botToken, botUsername);
+
+            Runnable stopIngestion;
+            if ("webhook".equals(botMode)) {
+                stopIngestion = startWebhook(botOptions, bot);
+            } else if ("worker".equals(botMode)) {
+                stopIngestion = startWorker(bot);
+            } else {
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                BotSession session = botsApi.registerBot(bot);
+                stopIngestion = session::stop;
+            }
+            logger.info("Бот успешно запущен в режиме {} и готов к работе!", botMode);
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Завершение работы...");
+                stopIngestion.run();
+                partitionJob.stop();
+                stopMetrics.run();
                 HibernateConfig.shutdown();
             }));
 
@@ -51,6 +103,124 @@ public class Main {
         }
     }
 
+    private static Runnable startMetrics() throws IOException {
+        if (!AppConfig.getBoolean("metrics.enabled", true)) {
+            return () -> {
+            };
+        }
+        HikariMetrics.bind(HibernateConfig.getSessionFactory(), MetricsRegistry.getDefault());
+        LoggingMetrics.bind(MetricsRegistry.getDefault());
+        MetricsServer server = new MetricsServer(MetricsRegistry.getDefault(),
+                AppConfig.get("metrics.host", "0.0.0.0"),
+                AppConfig.getInt("metrics.port", 9464));
+        server.start();
+        return server::stop;
+    }
+
+    private static Runnable startWebhook(DefaultBotOptions botOptions, BankingBot bot)
+            throws IOException, TelegramApiException {
+        String botPath = AppConfig.get("telegram.webhook.path", bot.getBotUsername());
+        String secretToken = AppConfig.get("telegram.webhook.secret-token", null);
+        BankingWebhookBot webhookBot = new BankingWebhookBot(botOptions, bot, botPath);
+
+        WebhookServer server = new WebhookServer(webhookBot,
+                AppConfig.get("telegram.webhook.host", "0.0.0.0"),
+                AppConfig.getInt("telegram.webhook.port", 8443),
+                secretToken);
+        server.start();
+
+        String publicUrl = AppConfig.get("telegram.webhook.url", null);
+        if (publicUrl != null) {
+            webhookBot.setWebhook(SetWebhook.builder()
+                    .url(publicUrl + WebhookServer.getContextPath(webhookBot))
+                    .secretToken(secretToken)
+                    .maxConnections(AppConfig.getInt("telegram.webhook.max-connections", 40))
+                    .build());
+            logger.info("Вебхук зарегистрирован: {}{}", publicUrl, WebhookServer.getContextPath(webhookBot));
+        } else {
+            logger.warn("telegram.webhook.url не задан, регистрация вебхука в Telegram пропущена");
+        }
+
+        return () -> {
+            server.stop();
+            webhookBot.onClosing();
+        };
+    }
+
+    private static Runnable startIngress(DefaultBotOptions botOptions, String botToken, String botUsername)
+            throws IOException, TelegramApiException {
+        String botPath = AppConfig.get("telegram.webhook.path", botUsername);
+        String secretToken = AppConfig.get("telegram.webhook.secret-token", null);
+        ClusterIngress ingress = new ClusterIngress(
+                AppConfig.get("cluster.ingress.host", "0.0.0.0"),
+                AppConfig.getInt("cluster.ingress.port", 8443),
+                botPath,
+                secretToken,
+                clusterSecret(),
+                AppConfig.getInt("cluster.virtual-nodes", 128),
+                AppConfig.getLong("cluster.node-timeout-ms", 10_000));
+        ingress.start();
+
+        if ("long-polling".equals(AppConfig.get("cluster.ingress.source", "webhook"))) {
+            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+            BotSession session = botsApi.registerBot(new ClusterPollingBot(botOptions, botToken, botUsername, ingress));
+            return () -> {
+                session.stop();
+                ingress.stop();
+            };
+        }
+        String publicUrl = AppConfig.get("telegram.webhook.url", null);
+        if (publicUrl != null) {
+            TelegramWebhookBot webhookBot = new TelegramWebhookBot(botOptions, botToken) {
+                @Override
+                public BotApiMethod<?> onWebhookUpdateReceived(Update update) {
+                    return null;
+                }
+
+                @Override
+                public String getBotPath() {
+                    return botPath;
+                }
+
+                @Override
+                public String getBotUsername() {
+                    return botUsername;
+                }
+            };
+            webhookBot.setWebhook(SetWebhook.builder()
+                    .url(publicUrl + "/callback/" + botPath)
+                    .secretToken(secretToken)
+                    .maxConnections(AppConfig.getInt("telegram.webhook.max-connections", 40))
+                    .build());
+            logger.info("Вебхук зарегистрирован: {}/callback/{}", publicUrl, botPath);
+        } else {
+            logger.warn("telegram.webhook.url не задан, регистрация вебхука в Telegram пропущена");
+        }
+        return ingress::stop;
+    }
+
+    private static Runnable startWorker(BankingBot bot) throws IOException {
+        ClusterWorker worker = new ClusterWorker(
+                AppConfig.get("cluster.node-id", bot.getBotUsername() + "-" + ProcessHandle.current().pid()),
+                AppConfig.get("cluster.ingress.url", "http://localhost:8443"),
+                clusterSecret(),
+                AppConfig.get("cluster.worker.host", "127.0.0.1"),
+                AppConfig.getInt("cluster.worker.port", 8090),
+                AppConfig.get("cluster.worker.advertised-url", null),
+                bot::onUpdateReceived,
+                bot.getSessions(),
+                AppConfig.getLong("cluster.heartbeat-interval-ms", 2_000));
+        worker.start();
+        return () -> {
+            worker.stop();
+            bot.onClosing();
+        };
+    }
+
+    private static String clusterSecret() {
+        return AppConfig.get("cluster.secret", AppConfig.get("telegram.webhook.secret-token", null));
+    }
+
     private static Properties loadProperties() throws IOException {
         Properties properties = new Properties();
         InputStream inputStream = Main.class.getClassLoader()
@@ -2,51 +2,188 @@ package ru.itpark.sb.bot;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.MaybeInaccessibleMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.config.AppConfig;
+import ru.itpark.sb.dao.UnitOfWork;
+import ru.itpark.sb.jfr.UpdateHandledEvent;
+import ru.itpark.sb.jfr.UpdateReceivedEvent;
 import ru.itpark.sb.keyboard.KeyboardFactory;
-import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.metrics.LatencyHistogram;
+import ru.itpark.sb.metrics.MetricsRegistry;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.outbound.OutboundQueue;
+import ru.itpark.sb.render.MessageRenderer;
 import ru.itpark.sb.service.BankingService;
 import ru.itpark.sb.service.BankingService.TransactionStatistics;
-
-import java.math.BigDecimal;
-import java.text.NumberFormat;
-import java.time.format.DateTimeFormatter;
+import ru.itpark.sb.service.HistoryPage;
+import ru.itpark.sb.service.OperationResult;
+import ru.itpark.sb.service.StatementArchive;
+import ru.itpark.sb.state.BotState;
+import ru.itpark.sb.state.ChatSessionStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BankingBot extends TelegramLongPollingBot {
     private static final Logger logger = LoggerFactory.getLogger(BankingBot.class);
+    private static final List<String> HANDLERS = List.of(
+            "start", "cancel", "balance", "deposit", "withdrawal", "transfer", "history", "statistics", "statement", "other");
     
     private final BankingService bankingService;
     private final String botToken;
     private final String botUsername;
+    private final UnitOfWork unitOfWork;
+    private final UpdateDispatcher dispatcher;
+    private final OutboundQueue outboundQueue;
     
-    private final Map<Long, BotState> userStates = new HashMap<>();
-    
-    private enum BotState {
-        IDLE,
-        WAITING_DEPOSIT_AMOUNT,
-        WAITING_WITHDRAWAL_AMOUNT,
-        WAITING_TRANSFER_RECIPIENT,
-        WAITING_TRANSFER_AMOUNT
-    }
-    
-    private final Map<Long, Long> pendingTransfers = new HashMap<>();
+    private final ChatSessionStore sessions;
+    private final MessageRenderer renderer;
+    private final int historyPageSize;
+    private final long statementMaxBytes;
+    private final int statementMaxParts;
+    private final Map<String, LatencyHistogram> handlerLatency = new HashMap<>();
 
     public BankingBot(String botToken, String botUsername) {
+        this(new DefaultBotOptions(), botToken, botUsername);
+    }
+
+    public BankingBot(DefaultBotOptions options, String botToken, String botUsername) {
+        this(options, botToken, botUsername, new BankingService(), new UnitOfWork());
+    }
+
+    /**
+     * Бот поверх заданного сервиса и единицы работы, например на отдельной
+     * фабрике сессий для нагрузочного прогона.
+     */
+    public BankingBot(DefaultBotOptions options, String botToken, String botUsername,
+                      BankingService bankingService, UnitOfWork unitOfWork) {
+        super(options, botToken);
         this.botToken = botToken;
         this.botUsername = botUsername;
-        this.bankingService = new BankingService();
+        this.bankingService = bankingService;
+        this.sessions = new ChatSessionStore(
+                AppConfig.getInt("bot.session.max-size", 100000),
+                AppConfig.getLong("bot.session.ttl-minutes", 30), TimeUnit.MINUTES);
+        this.sessions.startEviction(1, TimeUnit.MINUTES);
+        if (AppConfig.getBoolean("cache.invalidation.enabled", true)) {
+            bankingService.getInvalidationBus().start();
+        }
+        this.historyPageSize = AppConfig.getInt("bot.history.page-size", 10);
+        this.statementMaxBytes = AppConfig.getLong("bot.statement.max-document-bytes", 50_000_000);
+        this.statementMaxParts = AppConfig.getInt("bot.statement.max-parts", 10);
+        this.renderer = new MessageRenderer(Locale.getDefault());
+        this.unitOfWork = unitOfWork;
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        for (String handler : HANDLERS) {
+            handlerLatency.put(handler, metrics.histogram("bot_handler_duration_seconds",
+                    "Длительность обработки обновления", "handler", handler));
+        }
+        this.dispatcher = new UpdateDispatcher(this::process,
+                AppConfig.getInt("bot.dispatcher.max-concurrency", 32),
+                AppConfig.getInt("bot.dispatcher.chat-queue-capacity", 16));
+        this.outboundQueue = new OutboundQueue(this,
+                AppConfig.getInt("bot.outbound.workers", 4),
+                AppConfig.getInt("bot.outbound.capacity", 10000),
+                AppConfig.getDouble("bot.outbound.global-rate", 30),
+                AppConfig.getInt("bot.outbound.chat-burst", 3),
+                AppConfig.getDouble("bot.outbound.chat-rate", 1),
+                AppConfig.getInt("bot.outbound.max-attempts", 5));
+
+        metrics.gauge("bot_update_queue_depth", "Обновления в очередях чатов", dispatcher::getQueuedUpdates);
+        metrics.gauge("bot_active_chats", "Чаты с обновлениями в обработке", dispatcher::getActiveChats);
+        metrics.gauge("bot_outbound_queue_depth", "Исходящие вызовы Bot API в очереди", outboundQueue::getQueueDepth);
+        metrics.counter("bot_outbound_sent_total", "Отправленные вызовы Bot API", outboundQueue::getSentMessages);
+        metrics.counter("bot_outbound_dropped_total", "Отброшенные вызовы Bot API", outboundQueue::getDroppedMessages);
+        metrics.counter("bot_outbound_rate_limited_total", "Ответы 429 от Bot API", outboundQueue::getRateLimitedResponses);
+        metrics.gauge("bot_chat_sessions", "Активные диалоги", sessions::size);
+        metrics.gauge("bot_chat_sessions_memory_bytes", "Оценка памяти под диалоги", sessions::estimatedMemoryBytes);
+        metrics.counter("bot_chat_session_evictions_total", "Вытесненные диалоги",
+                sessions::getExpiredEvictions, "reason", "expired");
+        metrics.counter("bot_chat_session_evictions_total", "Вытесненные диалоги",
+                sessions::getCapacityEvictions, "reason", "capacity");
+        UserIdentityCache identityCache = bankingService.getIdentityCache();
+        metrics.gauge("bot_user_cache_size", "Пользователи в кэше идентификаторов", identityCache::size);
+        metrics.counter("bot_user_cache_requests_total", "Обращения к кэшу идентификаторов",
+                identityCache::getHits, "result", "hit");
+        metrics.counter("bot_user_cache_requests_total", "Обращения к кэшу идентификаторов",
+                identityCache::getMisses, "result", "miss");
     }
 
     @Override
     public void onUpdateReceived(Update update) {
+        long chatId;
+        if (update.hasMessage() && update.getMessage().hasText()) {
+            chatId = update.getMessage().getChatId();
+        } else if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            chatId = update.getCallbackQuery().getMessage().getChatId();
+        } else {
+            return;
+        }
+        boolean accepted = dispatcher.dispatch(chatId, update);
+
+        UpdateReceivedEvent event = new UpdateReceivedEvent();
+        if (event.shouldCommit()) {
+            event.chatId = chatId;
+            event.updateId = update.getUpdateId() != null ? update.getUpdateId() : 0;
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onClosing() {
+        dispatcher.shutdown(AppConfig.getLong("bot.dispatcher.shutdown-timeout-seconds", 30), TimeUnit.SECONDS);
+        outboundQueue.shutdown(AppConfig.getLong("bot.outbound.shutdown-timeout-seconds", 10), TimeUnit.SECONDS);
+        sessions.stopEviction();
+        bankingService.getInvalidationBus().stop();
+        super.onClosing();
+    }
+
+    private void process(Update update) {
+        String handler = handlerOf(update);
+        UpdateHandledEvent event = new UpdateHandledEvent();
+        event.begin();
+        try {
+            handlerLatency.get(handler).time(() -> unitOfWork.run(() -> handleUpdate(update)));
+        } finally {
+            if (event.shouldCommit()) {
+                event.chatId = update.hasCallbackQuery()
+                        ? update.getCallbackQuery().getMessage().getChatId()
+                        : update.getMessage().getChatId();
+                event.updateId = update.getUpdateId() != null ? update.getUpdateId() : 0;
+                event.handler = handler;
+                event.commit();
+            }
+        }
+    }
+
+    private void handleUpdate(Update update) {
+        if (update.hasCallbackQuery()) {
+            handleCallbackQuery(update.getCallbackQuery());
+            return;
+        }
         if (update.hasMessage() && update.getMessage().hasText()) {
             Message message = update.getMessage();
             Long chatId = message.getChatId();
@@ -55,25 +192,24 @@ public class BankingBot extends TelegramLongPollingBot {
             Long telegramId = message.getFrom().getId();
 
             try {
-                bankingService.registerOrGetUser(telegramId, username);
+                bankingService.ensureUser(telegramId, username);
 
-                BotState currentState = userStates.getOrDefault(chatId, BotState.IDLE);
+                BotState currentState = sessions.get(chatId).state();
 
                 if (text.equals("/start")) {
                     handleStart(chatId, message.getFrom().getFirstName());
-                    userStates.put(chatId, BotState.IDLE);
+                    sessions.clear(chatId);
                     return;
                 }
 
                 if (text.equals("❌ Отмена")) {
                     handleCancel(chatId);
-                    userStates.put(chatId, BotState.IDLE);
-                    pendingTransfers.remove(chatId);
+                    sessions.clear(chatId);
                     return;
                 }
 
                 if (isMainMenuButton(text)) {
-                    userStates.put(chatId, BotState.IDLE);
+                    sessions.clear(chatId);
                     handleMainMenu(chatId, telegramId, text);
                     return;
                 }
@@ -99,20 +235,63 @@ public class BankingBot extends TelegramLongPollingBot {
             } catch (Exception e) {
                 logger.error("Ошибка при обработке обновления для chatId: {}", chatId, e);
                 sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
-                userStates.put(chatId, BotState.IDLE);
+                sessions.clear(chatId);
             }
         }
     }
 
+    /**
+     * Метка обработчика для метрики длительности; повторяет выбор ветки
+     * в {@link #handleUpdate}.
+     */
+    private String handlerOf(Update update) {
+        if (update.hasCallbackQuery()) {
+            return "history";
+        }
+        switch (update.getMessage().getText()) {
+            case "/start":
+                return "start";
+            case "❌ Отмена":
+                return "cancel";
+            case "💰 Баланс":
+                return "balance";
+            case "💳 Пополнить":
+                return "deposit";
+            case "💸 Снять":
+                return "withdrawal";
+            case "📤 Перевод":
+                return "transfer";
+            case "📜 История":
+                return "history";
+            case "📊 Статистика":
+                return "statistics";
+            case "📄 Выписка":
+                return "statement";
+            default:
+                break;
+        }
+        switch (sessions.get(update.getMessage().getChatId()).state()) {
+            case WAITING_DEPOSIT_AMOUNT:
+                return "deposit";
+            case WAITING_WITHDRAWAL_AMOUNT:
+                return "withdrawal";
+            case WAITING_TRANSFER_RECIPIENT:
+            case WAITING_TRANSFER_AMOUNT:
+                return "transfer";
+            default:
+                return "other";
+        }
+    }
+
     private void handleStart(Long chatId, String firstName) {
         String message = "👋 Привет, " + firstName + "!\n\n" +
                 "Добро пожаловать в банковское приложение!\n\n" +
                 "Выберите действие из меню:";
-        sendMessageWithKeyboard(chatId, message, KeyboardFactory.createMainMenu());
+        sendMessageWithKeyboard(chatId, message, KeyboardFactory.mainMenu());
     }
 
     private void handleCancel(Long chatId) {
-        sendMessageWithKeyboard(chatId, "Операция отменена.", KeyboardFactory.createMainMenu());
+        sendMessageWithKeyboard(chatId, "Операция отменена.", KeyboardFactory.mainMenu());
     }
 
     private void handleMainMenu(Long chatId, Long telegramId, String text) {
@@ -135,6 +314,9 @@ public class BankingBot extends TelegramLongPollingBot {
             case "📊 Статистика":
                 handleStatistics(chatId, telegramId);
                 break;
+            case "📄 Выписка":
+                handleStatement(chatId, telegramId);
+                break;
             default:
                 sendMessage(chatId, "Пожалуйста, используйте кнопки меню.");
                 break;
@@ -143,13 +325,8 @@ public class BankingBot extends TelegramLongPollingBot {
 
     private void handleBalance(Long chatId, Long telegramId) {
         try {
-            BigDecimal balance = bankingService.getBalance(telegramId);
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
-            
-            String message = "💰 Ваш баланс: " + formatter.format(balance) + " ₽";
-            sendMessageWithKeyboard(chatId, message, KeyboardFactory.createMainMenu());
+            Money balance = bankingService.getBalance(telegramId);
+            sendMessageWithKeyboard(chatId, renderer.balance(balance), KeyboardFactory.mainMenu());
             logger.debug("Баланс запрошен для пользователя telegramId: {}, chatId: {}", telegramId, chatId);
         } catch (Exception e) {
             logger.error("Ошибка при получении баланса для telegramId: {}, chatId: {}", telegramId, chatId, e);
@@ -158,116 +335,59 @@ public class BankingBot extends TelegramLongPollingBot {
     }
 
     private void handleDeposit(Long chatId) {
-        userStates.put(chatId, BotState.WAITING_DEPOSIT_AMOUNT);
+        sessions.put(chatId, BotState.WAITING_DEPOSIT_AMOUNT);
         String message = "💳 Введите сумму для пополнения:";
-        sendMessageWithKeyboard(chatId, message, KeyboardFactory.createCancelMenu());
+        sendMessageWithKeyboard(chatId, message, KeyboardFactory.cancelMenu());
     }
 
     private void handleDepositAmount(Long chatId, Long telegramId, String amountText) {
         try {
-            BigDecimal amount = parseAmount(amountText);
-            bankingService.deposit(telegramId, amount, "Пополнение счета");
-            
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
+            Money amount = parseAmount(amountText);
+            OperationResult result = bankingService.deposit(telegramId, amount, "Пополнение счета");
             
-            String message = "✅ Счет пополнен на " + formatter.format(amount) + " ₽\n\n" +
-                    "💰 Новый баланс: " + formatter.format(bankingService.getBalance(telegramId)) + " ₽";
-            sendMessageWithKeyboard(chatId, message, KeyboardFactory.createMainMenu());
-            userStates.put(chatId, BotState.IDLE);
+            sendMessageWithKeyboard(chatId, renderer.deposit(amount, result.balance()), KeyboardFactory.mainMenu());
+            sessions.clear(chatId);
             logger.info("Пополнение счета для пользователя telegramId: {}, сумма: {}", telegramId, amount);
         } catch (IllegalArgumentException e) {
             logger.warn("Ошибка при пополнении счета для telegramId: {}, сумма: {}, ошибка: {}", 
                     telegramId, amountText, e.getMessage());
             sendMessageWithKeyboard(chatId, "❌ " + e.getMessage() + "\n\nПопробуйте снова или отмените операцию.", 
-                    KeyboardFactory.createCancelMenu());
+                    KeyboardFactory.cancelMenu());
         }
     }
 
     private void handleWithdrawal(Long chatId) {
-        userStates.put(chatId, BotState.WAITING_WITHDRAWAL_AMOUNT);
+        sessions.put(chatId, BotState.WAITING_WITHDRAWAL_AMOUNT);
         String message = "💸 Введите сумму для снятия:";
-        sendMessageWithKeyboard(chatId, message, KeyboardFactory.createCancelMenu());
+        sendMessageWithKeyboard(chatId, message, KeyboardFactory.cancelMenu());
     }
 
     private void handleWithdrawalAmount(Long chatId, Long telegramId, String amountText) {
         try {
-            BigDecimal amount = parseAmount(amountText);
-            bankingService.withdraw(telegramId, amount, "Снятие средств");
+            Money amount = parseAmount(amountText);
+            OperationResult result = bankingService.withdraw(telegramId, amount, "Снятие средств");
             
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
-            
-            String message = "✅ Со счета снято " + formatter.format(amount) + " ₽\n\n" +
-                    "💰 Новый баланс: " + formatter.format(bankingService.getBalance(telegramId)) + " ₽";
-            sendMessageWithKeyboard(chatId, message, KeyboardFactory.createMainMenu());
-            userStates.put(chatId, BotState.IDLE);
+            sendMessageWithKeyboard(chatId, renderer.withdrawal(amount, result.balance()), KeyboardFactory.mainMenu());
+            sessions.clear(chatId);
             logger.info("Снятие средств для пользователя telegramId: {}, сумма: {}", telegramId, amount);
         } catch (IllegalArgumentException e) {
             logger.warn("Ошибка при снятии средств для telegramId: {}, сумма: {}, ошибка: {}", 
                     telegramId, amountText, e.getMessage());
             sendMessageWithKeyboard(chatId, "❌ " + e.getMessage() + "\n\nПопробуйте снова или отмените операцию.", 
-                    KeyboardFactory.createCancelMenu());
+                    KeyboardFactory.cancelMenu());
         }
     }
 
     private void handleHistory(Long chatId, Long telegramId) {
         try {
-            List<TransactionEntity> transactions = bankingService.getTransactionHistory(telegramId, 10);
+            HistoryPage page = bankingService.getHistoryPage(telegramId, null, null, historyPageSize);
             
-            if (transactions.isEmpty()) {
-                sendMessageWithKeyboard(chatId, "📜 История транзакций пуста.", KeyboardFactory.createMainMenu());
+            if (page.isEmpty()) {
+                sendMessageWithKeyboard(chatId, "📜 История транзакций пуста.", KeyboardFactory.mainMenu());
                 return;
             }
 
-            StringBuilder message = new StringBuilder("📜 История транзакций (последние 10):\n\n");
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
-            
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-            
-            for (TransactionEntity transaction : transactions) {
-                String typeEmoji;
-                String typeText;
-                switch (transaction.getType()) {
-                    case DEPOSIT:
-                        typeEmoji = "➕";
-                        typeText = "Пополнение";
-                        break;
-                    case WITHDRAWAL:
-                        typeEmoji = "➖";
-                        typeText = "Снятие";
-                        break;
-                    case TRANSFER_OUT:
-                        typeEmoji = "📤";
-                        typeText = "Перевод";
-                        break;
-                    case TRANSFER_IN:
-                        typeEmoji = "📥";
-                        typeText = "Получен перевод";
-                        break;
-                    default:
-                        typeEmoji = "💰";
-                        typeText = "Операция";
-                }
-                
-                message.append(typeEmoji).append(" ").append(typeText)
-                        .append(": ").append(formatter.format(transaction.getAmount())).append(" ₽\n")
-                        .append("📅 ").append(transaction.getCreatedAt().format(dateFormatter)).append("\n");
-                
-                if (transaction.getDescription() != null && !transaction.getDescription().isEmpty()) {
-                    message.append("📝 ").append(transaction.getDescription()).append("\n");
-                }
-                if (transaction.getRecipientId() != null) {
-                    message.append("👤 Получатель: ").append(transaction.getRecipientId()).append("\n");
-                }
-                message.append("\n");
-            }
-            
-            sendMessageWithKeyboard(chatId, message.toString(), KeyboardFactory.createMainMenu());
+            sendMessageWithKeyboard(chatId, renderer.history(page.transactions()), historyNavigation(page));
             logger.debug("История транзакций запрошена для пользователя telegramId: {}, chatId: {}", telegramId, chatId);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории транзакций для telegramId: {}, chatId: {}", telegramId, chatId, e);
@@ -275,12 +395,127 @@ public class BankingBot extends TelegramLongPollingBot {
         }
     }
 
+    private void handleCallbackQuery(CallbackQuery callbackQuery) {
+        String data = callbackQuery.getData();
+        MaybeInaccessibleMessage message = callbackQuery.getMessage();
+        Long chatId = message.getChatId();
+        Long telegramId = callbackQuery.getFrom().getId();
+
+        outboundQueue.submit(chatId, new AnswerCallbackQuery(callbackQuery.getId()));
+        if (data == null || !data.startsWith(HistoryNavigation.PREFIX)) {
+            return;
+        }
+
+        try {
+            HistoryNavigation navigation = HistoryNavigation.parse(data);
+            HistoryPage page = navigation.older()
+                    ? bankingService.getHistoryPage(telegramId, navigation.cursor(), null, historyPageSize)
+                    : bankingService.getHistoryPage(telegramId, null, navigation.cursor(), historyPageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+
+            EditMessageText edit = new EditMessageText(renderer.history(page.transactions()));
+            edit.setChatId(chatId.toString());
+            edit.setMessageId(message.getMessageId());
+            edit.setReplyMarkup(historyNavigation(page));
+            outboundQueue.submit(chatId, edit);
+        } catch (Exception e) {
+            logger.error("Ошибка при листании истории для telegramId: {}, chatId: {}", telegramId, chatId, e);
+            sendMessage(chatId, "❌ Ошибка при получении истории: " + e.getMessage());
+        }
+    }
+
+    private InlineKeyboardMarkup historyNavigation(HistoryPage page) {
+        return KeyboardFactory.createHistoryNavigation(
+                page.hasOlder() ? HistoryNavigation.older(page.olderCursor()) : null,
+                page.hasNewer() ? HistoryNavigation.newer(page.newerCursor()) : null);
+    }
+
+    private void handleStatement(Long chatId, Long telegramId) {
+        Path file = null;
+        List<Path> documents = List.of();
+        try {
+            sendMessage(chatId, "⏳ Формирую выписку...");
+            file = Files.createTempFile("statement-", ".csv");
+            long rows;
+            try (OutputStream outputStream = Files.newOutputStream(file)) {
+                rows = bankingService.exportStatement(telegramId, outputStream);
+            }
+
+            if (rows == 0) {
+                deleteQuietly(file);
+                sendMessageWithKeyboard(chatId, "📄 Операций по счету пока нет.", KeyboardFactory.mainMenu());
+                return;
+            }
+
+            String name = "statement-" + LocalDate.now();
+            if (Files.size(file) <= statementMaxBytes) {
+                sendStatement(chatId, List.of(file), name, ".csv", rows);
+            } else {
+                Path csv = file;
+                file = null;
+                documents = StatementArchive.pack(csv, name, statementMaxBytes, statementMaxParts);
+                deleteQuietly(csv);
+                if (documents.isEmpty()) {
+                    logger.warn("Выписка для telegramId: {} не уместилась в {} частей, операций: {}",
+                            telegramId, statementMaxParts, rows);
+                    sendMessageWithKeyboard(chatId, "❌ Выписка слишком большая для отправки в Telegram (операций: "
+                            + rows + ").", KeyboardFactory.mainMenu());
+                    return;
+                }
+                sendStatement(chatId, documents, name, ".zip", rows);
+            }
+            logger.info("Выписка сформирована для пользователя telegramId: {}, операций: {}", telegramId, rows);
+        } catch (Exception e) {
+            if (file != null) {
+                deleteQuietly(file);
+            }
+            documents.forEach(BankingBot::deleteQuietly);
+            logger.error("Ошибка при формировании выписки для telegramId: {}, chatId: {}", telegramId, chatId, e);
+            sendMessage(chatId, "❌ Ошибка при формировании выписки: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Отправляет файлы выписки по порядку. Каждый файл удаляется после того,
+     * как покинул очередь; если какой-то не удалось отправить, пользователь
+     * получает одно сообщение об ошибке.
+     */
+    private void sendStatement(Long chatId, List<Path> files, String name, String extension, long rows) {
+        AtomicBoolean failed = new AtomicBoolean();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean single = files.size() == 1;
+            SendDocument document = new SendDocument(chatId.toString(),
+                    new InputFile(file.toFile(), (single ? name : name + "-" + (i + 1)) + extension));
+            document.setCaption(single
+                    ? "📄 Выписка по счету, операций: " + rows
+                    : "📄 Выписка по счету, часть " + (i + 1) + " из " + files.size() + ", операций: " + rows);
+            outboundQueue.submit(chatId, "sendDocument", sender -> sender.execute(document), sent -> {
+                deleteQuietly(file);
+                if (!sent && failed.compareAndSet(false, true)) {
+                    sendMessageWithKeyboard(chatId, "❌ Не удалось отправить выписку. Попробуйте позже.",
+                            KeyboardFactory.mainMenu());
+                }
+            });
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить временный файл {}", file, e);
+        }
+    }
+
     private void handleTransfer(Long chatId) {
-        userStates.put(chatId, BotState.WAITING_TRANSFER_RECIPIENT);
+        sessions.put(chatId, BotState.WAITING_TRANSFER_RECIPIENT);
         String message = "📤 Перевод средств\n\n" +
                 "Введите Telegram ID получателя (число):\n\n" +
                 "💡 Подсказка: Telegram ID можно узнать у получателя";
-        sendMessageWithKeyboard(chatId, message, KeyboardFactory.createCancelMenu());
+        sendMessageWithKeyboard(chatId, message, KeyboardFactory.cancelMenu());
     }
 
     private void handleTransferRecipient(Long chatId, Long telegramId, String recipientText) {
@@ -289,7 +524,7 @@ public class BankingBot extends TelegramLongPollingBot {
             
             if (recipientTelegramId.equals(telegramId)) {
                 sendMessageWithKeyboard(chatId, "❌ Нельзя переводить средства самому себе!\n\nПопробуйте снова или отмените операцию.", 
-                        KeyboardFactory.createCancelMenu());
+                        KeyboardFactory.cancelMenu());
                 return;
             }
 
@@ -297,96 +532,49 @@ public class BankingBot extends TelegramLongPollingBot {
                 bankingService.getUserByTelegramId(recipientTelegramId);
             } catch (RuntimeException e) {
                 sendMessageWithKeyboard(chatId, "❌ Получатель с таким Telegram ID не найден в системе!\n\nПопробуйте снова или отмените операцию.", 
-                        KeyboardFactory.createCancelMenu());
+                        KeyboardFactory.cancelMenu());
                 return;
             }
 
-            pendingTransfers.put(chatId, recipientTelegramId);
-            userStates.put(chatId, BotState.WAITING_TRANSFER_AMOUNT);
+            sessions.put(chatId, BotState.WAITING_TRANSFER_AMOUNT, recipientTelegramId);
             String message = "💵 Введите сумму для перевода:";
-            sendMessageWithKeyboard(chatId, message, KeyboardFactory.createCancelMenu());
+            sendMessageWithKeyboard(chatId, message, KeyboardFactory.cancelMenu());
         } catch (NumberFormatException e) {
             sendMessageWithKeyboard(chatId, "❌ Неверный формат Telegram ID. Введите число.\n\nПопробуйте снова или отмените операцию.", 
-                    KeyboardFactory.createCancelMenu());
+                    KeyboardFactory.cancelMenu());
         }
     }
 
     private void handleTransferAmount(Long chatId, Long telegramId, String amountText) {
-        Long recipientId = pendingTransfers.get(chatId);
+        Long recipientId = sessions.get(chatId).pendingRecipientId();
         if (recipientId == null) {
             sendMessageWithKeyboard(chatId, "❌ Ошибка: получатель не указан. Начните перевод заново.", 
-                    KeyboardFactory.createMainMenu());
-            userStates.put(chatId, BotState.IDLE);
-            pendingTransfers.remove(chatId);
+                    KeyboardFactory.mainMenu());
+            sessions.clear(chatId);
             return;
         }
 
         try {
-            BigDecimal amount = parseAmount(amountText);
-            TransactionEntity transaction = bankingService.transfer(telegramId, recipientId, amount, "Перевод между пользователями");
+            Money amount = parseAmount(amountText);
+            OperationResult result = bankingService.transfer(telegramId, recipientId, amount, "Перевод между пользователями");
             
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
-            
-            String recipientUsername = "";
-            try {
-                recipientUsername = " (" + bankingService.getUserByTelegramId(recipientId).getUsername() + ")";
-            } catch (Exception e) {
-            }
-            
-            String message = "✅ Перевод выполнен!\n\n" +
-                    "📤 Отправлено: " + formatter.format(amount) + " ₽\n" +
-                    "👤 Получатель: " + recipientId + recipientUsername + "\n\n" +
-                    "💰 Ваш баланс: " + formatter.format(bankingService.getBalance(telegramId)) + " ₽";
-            sendMessageWithKeyboard(chatId, message, KeyboardFactory.createMainMenu());
-            userStates.put(chatId, BotState.IDLE);
-            pendingTransfers.remove(chatId);
+            String message = renderer.transfer(amount, recipientId, result.counterpartyUsername(), result.balance());
+            sendMessageWithKeyboard(chatId, message, KeyboardFactory.mainMenu());
+            sessions.clear(chatId);
             logger.info("Перевод выполнен: от {} к {}, сумма: {}", telegramId, recipientId, amount);
         } catch (IllegalArgumentException e) {
             logger.warn("Ошибка при переводе от telegramId: {} к {}, сумма: {}, ошибка: {}", 
                     telegramId, recipientId, amountText, e.getMessage());
             sendMessageWithKeyboard(chatId, "❌ " + e.getMessage() + "\n\nПопробуйте снова или отмените операцию.", 
-                    KeyboardFactory.createCancelMenu());
+                    KeyboardFactory.cancelMenu());
         }
     }
 
     private void handleStatistics(Long chatId, Long telegramId) {
         try {
             TransactionStatistics stats = bankingService.getStatistics(telegramId);
-            NumberFormat formatter = NumberFormat.getNumberInstance(Locale.getDefault());
-            formatter.setMinimumFractionDigits(2);
-            formatter.setMaximumFractionDigits(2);
-            
-            StringBuilder message = new StringBuilder("📊 Ваша статистика:\n\n");
-            
-            message.append("💰 Баланс: ").append(formatter.format(bankingService.getBalance(telegramId))).append(" ₽\n\n");
-            
-            message.append("📈 Пополнения:\n");
-            message.append("  • Всего: ").append(formatter.format(stats.getTotalDeposits())).append(" ₽\n");
-            message.append("  • Количество: ").append(stats.getDepositCount()).append("\n");
-            if (stats.getDepositCount() > 0) {
-                message.append("  • Средняя сумма: ").append(formatter.format(stats.getAvgDeposit())).append(" ₽\n");
-            }
-            message.append("\n");
-            
-            message.append("📉 Снятия:\n");
-            message.append("  • Всего: ").append(formatter.format(stats.getTotalWithdrawals())).append(" ₽\n");
-            message.append("  • Количество: ").append(stats.getWithdrawalCount()).append("\n");
-            if (stats.getWithdrawalCount() > 0) {
-                message.append("  • Средняя сумма: ").append(formatter.format(stats.getAvgWithdrawal())).append(" ₽\n");
-            }
-            message.append("\n");
-            
-            if (stats.getTransferOutCount() > 0 || stats.getTransferInCount() > 0) {
-                message.append("📤 Переводы:\n");
-                message.append("  • Отправлено: ").append(formatter.format(stats.getTotalTransfersOut())).append(" ₽ (").append(stats.getTransferOutCount()).append(")\n");
-                message.append("  • Получено: ").append(formatter.format(stats.getTotalTransfersIn())).append(" ₽ (").append(stats.getTransferInCount()).append(")\n\n");
-            }
-            
-            message.append("📋 Всего транзакций: ").append(stats.getTotalTransactions());
-            
-            sendMessageWithKeyboard(chatId, message.toString(), KeyboardFactory.createMainMenu());
+            String message = renderer.statistics(stats, bankingService.getBalance(telegramId));
+            sendMessageWithKeyboard(chatId, message, KeyboardFactory.mainMenu());
             logger.debug("Статистика запрошена для пользователя telegramId: {}, chatId: {}", telegramId, chatId);
         } catch (Exception e) {
             logger.error("Ошибка при получении статистики для telegramId: {}, chatId: {}", telegramId, chatId, e);
@@ -400,49 +588,45 @@ public class BankingBot extends TelegramLongPollingBot {
                text.equals("💸 Снять") || 
                text.equals("📤 Перевод") ||
                text.equals("📜 История") ||
-               text.equals("📊 Статистика");
+               text.equals("📊 Статистика") ||
+               text.equals("📄 Выписка");
     }
 
-    private BigDecimal parseAmount(String amountText) {
+    private Money parseAmount(String amountText) {
+        Money amount;
         try {
-            String cleaned = amountText.trim().replace(",", ".").replace(" ", "");
-            BigDecimal amount = new BigDecimal(cleaned);
-            
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                throw new IllegalArgumentException("Сумма должна быть положительной");
-            }
-            
-            if (amount.scale() > 2) {
-                amount = amount.setScale(2, java.math.RoundingMode.HALF_UP);
-            }
-            
-            return amount;
+            amount = Money.parse(amountText);
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Неверный формат суммы. Введите число, например: 1000 или 1000.50");
         }
+
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Сумма должна быть положительной");
+        }
+        return amount;
     }
 
     private void sendMessage(Long chatId, String text) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            logger.error("Ошибка при отправке сообщения в chatId: {}", chatId, e);
-        }
+        outboundQueue.submit(chatId, message);
     }
 
-    private void sendMessageWithKeyboard(Long chatId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup keyboard) {
+    private void sendMessageWithKeyboard(Long chatId, String text, ReplyKeyboard keyboard) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
         message.setReplyMarkup(keyboard);
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            logger.error("Ошибка при отправке сообщения с клавиатурой в chatId: {}", chatId, e);
-        }
+        outboundQueue.submit(chatId, message);
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    public ChatSessionStore getSessions() {
+        return sessions;
     }
 
     @Override
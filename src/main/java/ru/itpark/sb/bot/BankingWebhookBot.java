@@ -0,0 +1,37 @@
+package ru.itpark.sb.bot;
+
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.bots.TelegramWebhookBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+public class BankingWebhookBot extends TelegramWebhookBot {
+    private final BankingBot delegate;
+    private final String botPath;
+
+    public BankingWebhookBot(DefaultBotOptions options, BankingBot delegate, String botPath) {
+        super(options, delegate.getBotToken());
+        this.delegate = delegate;
+        this.botPath = botPath;
+    }
+
+    @Override
+    public BotApiMethod<?> onWebhookUpdateReceived(Update update) {
+        delegate.onUpdateReceived(update);
+        return null;
+    }
+
+    @Override
+    public String getBotPath() {
+        return botPath;
+    }
+
+    @Override
+    public String getBotUsername() {
+        return delegate.getBotUsername();
+    }
+
+    public void onClosing() {
+        delegate.onClosing();
+    }
+}
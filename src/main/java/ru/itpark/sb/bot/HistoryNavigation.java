@@ -0,0 +1,54 @@
+package ru.itpark.sb.bot;
+
+import ru.itpark.sb.dao.HistoryCursor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Формат callback_data кнопок листания истории: {@code h:o:<курсор>} — старше,
+ * {@code h:n:<курсор>} — новее. Курсор — микросекунды {@code created_at}
+ * и id записи в base36, чтобы уложиться в 64 байта callback_data.
+ */
+record HistoryNavigation(boolean older, HistoryCursor cursor) {
+    static final String PREFIX = "h:";
+
+    private static final String OLDER = PREFIX + "o:";
+    private static final String NEWER = PREFIX + "n:";
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    static String older(HistoryCursor cursor) {
+        return OLDER + encode(cursor);
+    }
+
+    static String newer(HistoryCursor cursor) {
+        return NEWER + encode(cursor);
+    }
+
+    static HistoryNavigation parse(String data) {
+        boolean older;
+        if (data.startsWith(OLDER)) {
+            older = true;
+        } else if (data.startsWith(NEWER)) {
+            older = false;
+        } else {
+            throw new IllegalArgumentException("Неизвестная кнопка истории: " + data);
+        }
+        String value = data.substring(OLDER.length());
+        int separator = value.indexOf('.');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Некорректный курсор истории: " + data);
+        }
+        long micros = Long.parseLong(value, 0, separator, 36);
+        long id = Long.parseLong(value, separator + 1, value.length(), 36);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+        return new HistoryNavigation(older, new HistoryCursor(createdAt, id));
+    }
+
+    private static String encode(HistoryCursor cursor) {
+        LocalDateTime createdAt = cursor.createdAt();
+        long micros = createdAt.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + createdAt.getNano() / 1000;
+        return Long.toString(micros, 36) + "." + Long.toString(cursor.id(), 36);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.itpark.sb.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Раздаёт обновления на виртуальные потоки: обновления одного чата обрабатываются
+ * строго по очереди, разные чаты обрабатываются параллельно, но не больше
+ * {@code maxConcurrency} одновременно.
+ */
+public class UpdateDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private final Consumer<Update> handler;
+    private final int chatQueueCapacity;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<Long, Deque<Update>> chatQueues = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedUpdates = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public UpdateDispatcher(Consumer<Update> handler, int maxConcurrency, int chatQueueCapacity) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency должен быть положительным");
+        }
+        if (chatQueueCapacity <= 0) {
+            throw new IllegalArgumentException("chatQueueCapacity должен быть положительным");
+        }
+        this.handler = handler;
+        this.chatQueueCapacity = chatQueueCapacity;
+        this.permits = new Semaphore(maxConcurrency);
+        this.executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("update-", 0).factory());
+    }
+
+    public boolean dispatch(long chatId, Update update) {
+        if (shutdown) {
+            return false;
+        }
+
+        boolean[] accepted = new boolean[1];
+        boolean[] startWorker = new boolean[1];
+        chatQueues.compute(chatId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                startWorker[0] = true;
+            }
+            if (queue.size() < chatQueueCapacity) {
+                queue.addLast(update);
+                accepted[0] = true;
+            }
+            return queue;
+        });
+
+        if (!accepted[0]) {
+            logger.warn("Очередь обновлений для chatId: {} переполнена, обновление {} отброшено",
+                    chatId, update.getUpdateId());
+            return false;
+        }
+
+        queuedUpdates.incrementAndGet();
+        if (startWorker[0]) {
+            executor.execute(() -> drain(chatId));
+        }
+        return true;
+    }
+
+    private void drain(long chatId) {
+        Update next;
+        while ((next = pollNext(chatId)) != null) {
+            queuedUpdates.decrementAndGet();
+            permits.acquireUninterruptibly();
+            try {
+                handler.accept(next);
+            } catch (Exception e) {
+                logger.error("Необработанная ошибка при обработке обновления для chatId: {}", chatId, e);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private Update pollNext(long chatId) {
+        Update[] next = new Update[1];
+        chatQueues.computeIfPresent(chatId, (id, queue) -> {
+            next[0] = queue.pollFirst();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+
+    public int getQueuedUpdates() {
+        return queuedUpdates.get();
+    }
+
+    public int getActiveChats() {
+        return chatQueues.size();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                logger.warn("Не все обновления обработаны до завершения работы, в очереди: {}", queuedUpdates.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
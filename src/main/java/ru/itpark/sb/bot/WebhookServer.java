@@ -0,0 +1,116 @@
+package ru.itpark.sb.bot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.WebhookBot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Встроенный HTTP-приёмник вебхуков Telegram на базе {@link HttpServer}.
+ * Соединения HTTP/1.1 остаются открытыми между запросами, каждый запрос
+ * обрабатывается на виртуальном потоке и подтверждается сразу после передачи
+ * обновления боту.
+ */
+public class WebhookServer {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookServer.class);
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebhookBot bot;
+    private final String secretToken;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public WebhookServer(WebhookBot bot, String host, int port, String secretToken) throws IOException {
+        this.bot = bot;
+        this.secretToken = secretToken;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("webhook-", 0).factory());
+        this.server.createContext(getContextPath(bot), this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public static String getContextPath(WebhookBot bot) {
+        return "/callback/" + bot.getBotPath();
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Webhook-сервер слушает {}{}", server.getAddress(), getContextPath(bot));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null);
+                return;
+            }
+            if (!isAuthorized(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                logger.warn("Отклонён запрос вебхука с неверным секретом от {}", exchange.getRemoteAddress());
+                respond(exchange, 401, null);
+                return;
+            }
+
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                logger.warn("Некорректное тело запроса вебхука: {}", e.getMessage());
+                respond(exchange, 400, null);
+                return;
+            }
+
+            BotApiMethod<?> response;
+            try {
+                response = bot.onWebhookUpdateReceived(update);
+            } catch (Exception e) {
+                logger.error("Ошибка при обработке обновления {} из вебхука", update.getUpdateId(), e);
+                respond(exchange, 500, null);
+                return;
+            }
+            respond(exchange, 200, response == null ? null : objectMapper.writeValueAsBytes(response));
+        }
+    }
+
+    private boolean isAuthorized(String providedToken) {
+        if (secretToken == null || secretToken.isEmpty()) {
+            return true;
+        }
+        return providedToken != null && MessageDigest.isEqual(
+                secretToken.getBytes(StandardCharsets.UTF_8), providedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ru.itpark.sb.cache;
+
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.itpark.sb.dao.CacheInvalidationDao;
+import ru.itpark.sb.model.User;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Инвалидация кэшей пользователей между процессами бота через Postgres
+ * {@code LISTEN/NOTIFY}. Запись публикует в своей транзакции сообщение
+ * {@code узел:userId:telegramId}; каждый процесс держит отдельное соединение
+ * с {@code LISTEN} и по чужим сообщениям вытесняет пользователя из кэша
+ * второго уровня и из {@link UserIdentityCache}. Сообщения, отправленные
+ * пока соединение было разорвано, теряются, поэтому после переподключения
+ * кэши очищаются целиком.
+ */
+public class CacheInvalidationBus {
+    static final String CHANNEL = "banking_cache_invalidation";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final SessionFactory sessionFactory;
+    private final CacheInvalidationDao invalidationDao;
+    private final UserIdentityCache identityCache;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final boolean enabled;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public CacheInvalidationBus(SessionFactory sessionFactory, UserIdentityCache identityCache) {
+        this(sessionFactory, new CacheInvalidationDao(sessionFactory), identityCache);
+    }
+
+    CacheInvalidationBus(SessionFactory sessionFactory, CacheInvalidationDao invalidationDao,
+                         UserIdentityCache identityCache) {
+        this.sessionFactory = sessionFactory;
+        this.invalidationDao = invalidationDao;
+        this.identityCache = identityCache;
+        this.enabled = invalidationDao != null && invalidationDao.isSupported();
+    }
+
+    /**
+     * Шина без рассылки: публикации ничего не отправляют, а кэши меняются
+     * только внутри процесса. Для одного процесса и СУБД без {@code NOTIFY}.
+     */
+    public static CacheInvalidationBus localOnly(UserIdentityCache identityCache) {
+        return new CacheInvalidationBus(null, null, identityCache);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Сообщает остальным процессам, что пользователь изменился. Вызывается
+     * внутри транзакции записи, чтобы сообщение ушло только после фиксации.
+     */
+    public void publish(long userId, long telegramId) {
+        if (!enabled) {
+            return;
+        }
+        invalidationDao.publish(CHANNEL, nodeId + ':' + userId + ':' + telegramId);
+        published.increment();
+    }
+
+    /**
+     * Обрабатывает сообщение из канала. Свои сообщения пропускаются: локальные
+     * кэши к этому моменту уже обновлены самой записью.
+     */
+    void handle(String payload) {
+        int first = payload.indexOf(':');
+        int second = payload.indexOf(':', first + 1);
+        if (first <= 0 || second < 0) {
+            logger.warn("Некорректное сообщение инвалидации кэша: {}", payload);
+            return;
+        }
+        if (payload.regionMatches(0, nodeId, 0, first) && first == nodeId.length()) {
+            return;
+        }
+        long userId;
+        long telegramId;
+        try {
+            userId = Long.parseLong(payload, first + 1, second, 10);
+            telegramId = Long.parseLong(payload, second + 1, payload.length(), 10);
+        } catch (NumberFormatException e) {
+            logger.warn("Некорректное сообщение инвалидации кэша: {}", payload);
+            return;
+        }
+        received.increment();
+        sessionFactory.getCache().evictEntityData(User.class, userId);
+        identityCache.invalidate(telegramId);
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public synchronized void start() {
+        if (!enabled) {
+            logger.info("Инвалидация кэша между процессами отключена: СУБД не поддерживает LISTEN/NOTIFY");
+            return;
+        }
+        if (listener != null) {
+            return;
+        }
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("cache-invalidation-listener").start(this::listen);
+    }
+
+    public synchronized void stop() {
+        if (listener == null) {
+            return;
+        }
+        running = false;
+        listener.interrupt();
+        try {
+            listener.join(POLL_TIMEOUT_MS * 4L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        listener = null;
+    }
+
+    private void listen() {
+        long delay = RECONNECT_DELAY_MS;
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = openConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    evictAll();
+                }
+                logger.info("Подписка на инвалидацию кэша установлена, узел {}", nodeId);
+                delay = RECONNECT_DELAY_MS;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Потеряно соединение подписки на инвалидацию кэша: {}", e.getMessage());
+                evictAll();
+                reconnect = true;
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Map<String, Object> properties = sessionFactory.getProperties();
+        return DriverManager.getConnection(
+                String.valueOf(properties.get("hibernate.connection.url")),
+                (String) properties.get("hibernate.connection.username"),
+                (String) properties.get("hibernate.connection.password"));
+    }
+
+    private void evictAll() {
+        sessionFactory.getCache().evictEntityData(User.class);
+        identityCache.invalidateAll();
+    }
+}
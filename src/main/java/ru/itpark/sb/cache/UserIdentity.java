@@ -0,0 +1,4 @@
+package ru.itpark.sb.cache;
+
+public record UserIdentity(long userId, String username) {
+}
@@ -0,0 +1,122 @@
+package ru.itpark.sb.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный LRU-кэш telegramId → (id пользователя, username). Разбит на
+ * сегменты, каждый сегмент — {@link LinkedHashMap} в порядке доступа под
+ * собственной блокировкой.
+ */
+public class UserIdentityCache {
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserIdentityCache(int maxSize) {
+        this(maxSize, 16);
+    }
+
+    public UserIdentityCache(int maxSize, int segmentCount) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(segmentCount, maxSize)));
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        int perSegment = Math.max(1, maxSize / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    public UserIdentity get(long telegramId) {
+        Segment segment = segmentFor(telegramId);
+        UserIdentity identity;
+        synchronized (segment) {
+            identity = segment.get(telegramId);
+        }
+        if (identity == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return identity;
+    }
+
+    public void put(long telegramId, UserIdentity identity) {
+        Segment segment = segmentFor(telegramId);
+        synchronized (segment) {
+            segment.put(telegramId, identity);
+        }
+    }
+
+    public void invalidate(long telegramId) {
+        Segment segment = segmentFor(telegramId);
+        synchronized (segment) {
+            segment.remove(telegramId);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Segment segmentFor(long telegramId) {
+        long h = telegramId * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> 32) & segmentMask];
+    }
+
+    private final class Segment extends LinkedHashMap<Long, UserIdentity> {
+        private final int limit;
+
+        private Segment(int limit) {
+            super(16, 0.75f, true);
+            this.limit = limit;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserIdentity> eldest) {
+            if (size() > limit) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.itpark.sb.cluster;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+/**
+ * Общие мелочи HTTP для ingress и рабочих узлов. Все запросы между узлами
+ * несут общий секрет кластера в заголовке {@value #SECRET_HEADER}.
+ */
+final class ClusterHttp {
+    static final String UPDATES_PATH = "/cluster/updates";
+    static final String SESSIONS_PATH = "/cluster/sessions";
+    static final String HEARTBEAT_PATH = "/cluster/heartbeat";
+    static final String LEAVE_PATH = "/cluster/leave";
+    static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private ClusterHttp() {
+    }
+
+    /**
+     * Проверяет, что секрет кластера задан: без него любой, кто дотянется до
+     * порта узла, сможет подделать обновление или войти в кольцо.
+     */
+    static String requireSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("Не задан секрет кластера (cluster.secret)");
+        }
+        return secret;
+    }
+
+    static boolean isAuthorized(HttpExchange exchange, String secret) {
+        String provided = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+        return provided != null && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return body.readAllBytes();
+        }
+    }
+
+    static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    static HttpResponse<byte[]> post(HttpClient client, String url, String secret, byte[] body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header(SECRET_HEADER, secret)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    static boolean isSuccess(HttpResponse<?> response) {
+        return response.statusCode() / 100 == 2;
+    }
+}
@@ -0,0 +1,307 @@
+package ru.itpark.sb.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Входной узел кластера. Принимает обновления Telegram (вебхуком или от
+ * {@link ClusterPollingBot}) и пересылает каждое рабочему узлу, которому
+ * принадлежит чат по {@link ConsistentHashRing}. Рабочие узлы регистрируются
+ * heartbeat-запросами; узел, не приславший heartbeat дольше
+ * {@code nodeTimeoutMillis}, исключается, и его чаты переходят к соседям
+ * по кольцу.
+ *
+ * <p>Если обновление не удалось доставить, вебхук отвечает ошибкой, и
+ * Telegram повторит доставку. Heartbeat и выход из кластера принимаются
+ * только с секретом кластера, тем же, что ingress передаёт узлам вместе
+ * с обновлениями.
+ */
+public class ClusterIngress {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterIngress.class);
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper;
+    private final String webhookPath;
+    private final String secretToken;
+    private final String clusterSecret;
+    private final int virtualNodes;
+    private final long nodeTimeoutMillis;
+    private final ConcurrentHashMap<String, Member> members = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile Routing routing;
+    private long epoch;
+
+    public ClusterIngress(String host, int port, String botPath, String secretToken, String clusterSecret,
+                          int virtualNodes, long nodeTimeoutMillis) throws IOException {
+        this.webhookPath = "/callback/" + botPath;
+        this.secretToken = secretToken;
+        this.clusterSecret = ClusterHttp.requireSecret(clusterSecret);
+        this.virtualNodes = virtualNodes;
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+        this.routing = new Routing(new ClusterView(0, Map.of(), virtualNodes));
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ingress-", 0).factory());
+        this.client = HttpClient.newBuilder().executor(executor).build();
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext(webhookPath, this::handleWebhook);
+        this.server.createContext(ClusterHttp.HEARTBEAT_PATH, this::handleHeartbeat);
+        this.server.createContext(ClusterHttp.LEAVE_PATH, this::handleLeave);
+        this.server.setExecutor(executor);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("ingress-sweeper").factory());
+    }
+
+    public void start() {
+        server.start();
+        long period = Math.max(1, nodeTimeoutMillis / 4);
+        sweeper.scheduleAtFixedRate(this::removeSilentNodes, period, period, TimeUnit.MILLISECONDS);
+        logger.info("Ingress кластера слушает {}{}", server.getAddress(), webhookPath);
+    }
+
+    public void stop() {
+        sweeper.shutdownNow();
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ClusterView getView() {
+        return routing.view();
+    }
+
+    public long getForwarded() {
+        return forwarded.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Пересылает обновление, полученное long polling. Обновления без чата
+     * пропускаются.
+     *
+     * @return {@code false}, если владелец чата недоступен
+     */
+    public boolean route(Update update) {
+        Long chatId = chatIdOf(update);
+        if (chatId == null) {
+            return true;
+        }
+        try {
+            return forward(chatId, objectMapper.writeValueAsBytes(update));
+        } catch (IOException e) {
+            logger.error("Не удалось сериализовать обновление {}", update.getUpdateId(), e);
+            return false;
+        }
+    }
+
+    static Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
+    static Long chatIdOf(JsonNode update) {
+        for (String field : new String[]{"message", "edited_message"}) {
+            JsonNode chatId = update.path(field).path("chat").path("id");
+            if (chatId.canConvertToLong()) {
+                return chatId.asLong();
+            }
+        }
+        JsonNode chatId = update.path("callback_query").path("message").path("chat").path("id");
+        return chatId.canConvertToLong() ? chatId.asLong() : null;
+    }
+
+    private boolean forward(long chatId, byte[] body) {
+        Routing current = routing;
+        String owner = current.ring().nodeFor(chatId);
+        if (owner == null) {
+            logger.warn("Нет рабочих узлов для обновления чата {}", chatId);
+            failed.increment();
+            return false;
+        }
+        String url = current.view().members().get(owner);
+        try {
+            if (ClusterHttp.isSuccess(ClusterHttp.post(
+                    client, url + ClusterHttp.UPDATES_PATH, clusterSecret, body))) {
+                forwarded.increment();
+                return true;
+            }
+            logger.warn("Узел {} отклонил обновление чата {}", owner, chatId);
+        } catch (IOException e) {
+            logger.warn("Узел {} недоступен: {}", owner, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failed.increment();
+        return false;
+    }
+
+    private void handleWebhook(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                ClusterHttp.respond(exchange, 405, null);
+                return;
+            }
+            if (!isAuthorized(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                logger.warn("Отклонён запрос вебхука с неверным секретом от {}", exchange.getRemoteAddress());
+                ClusterHttp.respond(exchange, 401, null);
+                return;
+            }
+            byte[] body = ClusterHttp.readBody(exchange);
+            Long chatId;
+            try {
+                chatId = chatIdOf(objectMapper.readTree(body));
+            } catch (IOException e) {
+                logger.warn("Некорректное тело запроса вебхука: {}", e.getMessage());
+                ClusterHttp.respond(exchange, 400, null);
+                return;
+            }
+            if (chatId == null) {
+                ClusterHttp.respond(exchange, 200, null);
+                return;
+            }
+            ClusterHttp.respond(exchange, forward(chatId, body) ? 200 : 503, null);
+        }
+    }
+
+    private void handleHeartbeat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ClusterNode node = readNode(exchange);
+            if (node == null) {
+                return;
+            }
+            Member member = members.get(node.nodeId());
+            if (member != null && member.url.equals(node.url())) {
+                member.lastSeen = System.currentTimeMillis();
+            } else {
+                join(node);
+            }
+            ClusterHttp.respond(exchange, 200, objectMapper.writeValueAsBytes(routing.view()));
+        }
+    }
+
+    private void handleLeave(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ClusterNode node = readNode(exchange);
+            if (node == null) {
+                return;
+            }
+            synchronized (this) {
+                if (members.remove(node.nodeId()) != null) {
+                    logger.info("Узел {} вышел из кластера", node.nodeId());
+                    rebuild();
+                }
+            }
+            ClusterHttp.respond(exchange, 200, objectMapper.writeValueAsBytes(routing.view()));
+        }
+    }
+
+    private ClusterNode readNode(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            ClusterHttp.respond(exchange, 405, null);
+            return null;
+        }
+        if (!ClusterHttp.isAuthorized(exchange, clusterSecret)) {
+            logger.warn("Отклонён запрос узла кластера с неверным секретом от {}", exchange.getRemoteAddress());
+            ClusterHttp.respond(exchange, 401, null);
+            return null;
+        }
+        try {
+            ClusterNode node = objectMapper.readValue(ClusterHttp.readBody(exchange), ClusterNode.class);
+            if (node.nodeId() != null && node.url() != null) {
+                return node;
+            }
+        } catch (IOException e) {
+            logger.warn("Некорректный запрос узла кластера: {}", e.getMessage());
+        }
+        ClusterHttp.respond(exchange, 400, null);
+        return null;
+    }
+
+    private synchronized void join(ClusterNode node) {
+        members.put(node.nodeId(), new Member(node.url(), System.currentTimeMillis()));
+        logger.info("Узел {} ({}) вошёл в кластер", node.nodeId(), node.url());
+        rebuild();
+    }
+
+    private synchronized void removeSilentNodes() {
+        long deadline = System.currentTimeMillis() - nodeTimeoutMillis;
+        boolean removed = members.entrySet().removeIf(entry -> {
+            if (entry.getValue().lastSeen < deadline) {
+                logger.warn("Узел {} не отвечает и исключён из кластера", entry.getKey());
+                return true;
+            }
+            return false;
+        });
+        if (removed) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        Map<String, String> urls = new TreeMap<>();
+        members.forEach((nodeId, member) -> urls.put(nodeId, member.url));
+        routing = new Routing(new ClusterView(++epoch, Map.copyOf(urls), virtualNodes));
+        logger.info("Состав кластера, версия {}: {}", epoch, urls.keySet());
+    }
+
+    private boolean isAuthorized(String providedToken) {
+        if (secretToken == null || secretToken.isEmpty()) {
+            return true;
+        }
+        return providedToken != null && MessageDigest.isEqual(
+                secretToken.getBytes(StandardCharsets.UTF_8), providedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Member {
+        private final String url;
+        private volatile long lastSeen;
+
+        private Member(String url, long lastSeen) {
+            this.url = url;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private record Routing(ClusterView view, ConsistentHashRing ring) {
+        private Routing(ClusterView view) {
+            this(view, view.ring());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.itpark.sb.cluster;
+
+/**
+ * Рабочий узел в запросах heartbeat и выхода из кластера.
+ */
+public record ClusterNode(String nodeId, String url) {
+}
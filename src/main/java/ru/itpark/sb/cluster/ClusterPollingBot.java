@@ -0,0 +1,49 @@
+package ru.itpark.sb.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Получает обновления long polling на входном узле и отдаёт их
+ * {@link ClusterIngress}. Пока ни один рабочий узел не принял обновление,
+ * оно повторяется несколько раз, после чего отбрасывается: getUpdates уже
+ * подтвердил его Telegram.
+ */
+public class ClusterPollingBot extends TelegramLongPollingBot {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterPollingBot.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 500;
+
+    private final ClusterIngress ingress;
+    private final String botUsername;
+
+    public ClusterPollingBot(DefaultBotOptions options, String botToken, String botUsername, ClusterIngress ingress) {
+        super(options, botToken);
+        this.botUsername = botUsername;
+        this.ingress = ingress;
+    }
+
+    @Override
+    public void onUpdateReceived(Update update) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (ingress.route(update)) {
+                return;
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.error("Обновление {} не доставлено ни одному рабочему узлу", update.getUpdateId());
+    }
+
+    @Override
+    public String getBotUsername() {
+        return botUsername;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.itpark.sb.cluster;
+
+import java.util.Map;
+
+/**
+ * Состав кластера, который ingress сообщает рабочим узлам в ответ на
+ * heartbeat: номер версии, адреса узлов и число виртуальных узлов кольца.
+ * Версия растёт при каждом входе и выходе узла.
+ *
+ * @param members nodeId → базовый URL рабочего узла
+ */
+public record ClusterView(long epoch, Map<String, String> members, int virtualNodes) {
+
+    public ConsistentHashRing ring() {
+        return new ConsistentHashRing(members.keySet(), virtualNodes);
+    }
+}
@@ -0,0 +1,243 @@
+package ru.itpark.sb.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.itpark.sb.state.BotState;
+import ru.itpark.sb.state.ChatSessionStore;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Рабочий узел кластера. Принимает от {@link ClusterIngress} обновления своих
+ * чатов и передаёт их обработчику бота, периодически отправляет heartbeat
+ * и получает в ответ состав кластера.
+ *
+ * <p>Состояние диалогов живёт в {@link ChatSessionStore} узла-владельца. Когда
+ * версия состава меняется, узел отдаёт сессии чатов, которые теперь
+ * принадлежат другим узлам, их новым владельцам; при штатной остановке —
+ * все сессии. Обновление, пришедшее новому владельцу раньше своей сессии
+ * (в пределах интервала heartbeat), обрабатывается как начало диалога.
+ * При аварийной остановке узла состояние его диалогов теряется.
+ *
+ * <p>Обновления и сессии принимаются только с секретом кластера: узел
+ * передаёт их боту как есть, без проверки отправителя.
+ */
+public class ClusterWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterWorker.class);
+    private static final TypeReference<List<SessionTransfer>> TRANSFERS = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String nodeId;
+    private final String ingressUrl;
+    private final String clusterSecret;
+    private final Consumer<Update> handler;
+    private final ChatSessionStore sessions;
+    private final long heartbeatIntervalMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final ScheduledExecutorService heartbeat;
+    private final String url;
+
+    private volatile ClusterView view;
+
+    /**
+     * @param advertisedUrl адрес, по которому узел доступен ingress; если
+     *                      {@code null}, используется {@code http://host:port},
+     *                      поэтому для host вида 0.0.0.0 он обязателен
+     */
+    public ClusterWorker(String nodeId, String ingressUrl, String clusterSecret, String host, int port,
+                         String advertisedUrl, Consumer<Update> handler, ChatSessionStore sessions,
+                         long heartbeatIntervalMillis) throws IOException {
+        if (advertisedUrl == null && InetAddress.getByName(host).isAnyLocalAddress()) {
+            throw new IllegalArgumentException("Узел слушает " + host
+                    + ", ingress не сможет к нему обратиться: задайте cluster.worker.advertised-url");
+        }
+        this.nodeId = nodeId;
+        this.ingressUrl = ingressUrl;
+        this.clusterSecret = ClusterHttp.requireSecret(clusterSecret);
+        this.handler = handler;
+        this.sessions = sessions;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("worker-", 0).factory());
+        this.client = HttpClient.newBuilder().executor(executor).build();
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext(ClusterHttp.UPDATES_PATH, this::handleUpdate);
+        this.server.createContext(ClusterHttp.SESSIONS_PATH, this::handleSessions);
+        this.server.setExecutor(executor);
+        this.url = advertisedUrl != null ? advertisedUrl : "http://" + host + ":" + server.getAddress().getPort();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("cluster-heartbeat").factory());
+    }
+
+    public void start() {
+        server.start();
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeat, 0, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Рабочий узел {} слушает {}, ingress {}", nodeId, url, ingressUrl);
+    }
+
+    /**
+     * Выходит из кластера и передаёт все сессии узлам, которые остались.
+     */
+    public void stop() {
+        heartbeat.shutdownNow();
+        try {
+            heartbeat.awaitTermination(heartbeatIntervalMillis * 2, TimeUnit.MILLISECONDS);
+            HttpResponse<byte[]> response = ClusterHttp.post(client, ingressUrl + ClusterHttp.LEAVE_PATH,
+                    clusterSecret, objectMapper.writeValueAsBytes(new ClusterNode(nodeId, url)));
+            if (ClusterHttp.isSuccess(response)) {
+                handOff(objectMapper.readValue(response.body(), ClusterView.class));
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось штатно выйти из кластера: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public ClusterView getView() {
+        return view;
+    }
+
+    private void sendHeartbeat() {
+        try {
+            HttpResponse<byte[]> response = ClusterHttp.post(client, ingressUrl + ClusterHttp.HEARTBEAT_PATH,
+                    clusterSecret, objectMapper.writeValueAsBytes(new ClusterNode(nodeId, url)));
+            if (!ClusterHttp.isSuccess(response)) {
+                logger.warn("Ingress отклонил heartbeat узла {}: {}", nodeId, response.statusCode());
+                return;
+            }
+            ClusterView received = objectMapper.readValue(response.body(), ClusterView.class);
+            ClusterView current = view;
+            if (current == null || current.epoch() != received.epoch()) {
+                view = received;
+                handOff(received);
+            }
+        } catch (IOException e) {
+            logger.warn("Ingress недоступен: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при обработке состава кластера", e);
+        }
+    }
+
+    private void handOff(ClusterView target) throws InterruptedException {
+        ConsistentHashRing ring = target.ring();
+        if (ring.isEmpty()) {
+            return;
+        }
+        Map<String, List<SessionTransfer>> byOwner = new HashMap<>();
+        sessions.drain(chatId -> !nodeId.equals(ring.nodeFor(chatId)), (chatId, session) ->
+                byOwner.computeIfAbsent(ring.nodeFor(chatId), owner -> new ArrayList<>())
+                        .add(new SessionTransfer(chatId, session.state(), session.pendingRecipientId())));
+
+        for (Map.Entry<String, List<SessionTransfer>> entry : byOwner.entrySet()) {
+            String owner = entry.getKey();
+            try {
+                HttpResponse<byte[]> response = ClusterHttp.post(client,
+                        target.members().get(owner) + ClusterHttp.SESSIONS_PATH, clusterSecret,
+                        objectMapper.writeValueAsBytes(entry.getValue()));
+                if (!ClusterHttp.isSuccess(response)) {
+                    throw new IOException("HTTP " + response.statusCode());
+                }
+                logger.info("Передано сессий узлу {}: {}", owner, entry.getValue().size());
+            } catch (IOException e) {
+                logger.warn("Не удалось передать {} сессий узлу {}: {}", entry.getValue().size(), owner, e.getMessage());
+            }
+        }
+    }
+
+    private void handleUpdate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                ClusterHttp.respond(exchange, 405, null);
+                return;
+            }
+            if (!ClusterHttp.isAuthorized(exchange, clusterSecret)) {
+                logger.warn("Отклонён запрос к узлу {} с неверным секретом от {}", nodeId, exchange.getRemoteAddress());
+                ClusterHttp.respond(exchange, 401, null);
+                return;
+            }
+            Update update;
+            try {
+                update = objectMapper.readValue(ClusterHttp.readBody(exchange), Update.class);
+            } catch (IOException e) {
+                logger.warn("Некорректное обновление от ingress: {}", e.getMessage());
+                ClusterHttp.respond(exchange, 400, null);
+                return;
+            }
+            try {
+                handler.accept(update);
+            } catch (Exception e) {
+                logger.error("Ошибка при обработке обновления {}", update.getUpdateId(), e);
+                ClusterHttp.respond(exchange, 500, null);
+                return;
+            }
+            ClusterHttp.respond(exchange, 200, null);
+        }
+    }
+
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                ClusterHttp.respond(exchange, 405, null);
+                return;
+            }
+            if (!ClusterHttp.isAuthorized(exchange, clusterSecret)) {
+                logger.warn("Отклонён запрос к узлу {} с неверным секретом от {}", nodeId, exchange.getRemoteAddress());
+                ClusterHttp.respond(exchange, 401, null);
+                return;
+            }
+            List<SessionTransfer> transfers;
+            try {
+                transfers = objectMapper.readValue(ClusterHttp.readBody(exchange), TRANSFERS);
+            } catch (IOException e) {
+                logger.warn("Некорректный список сессий: {}", e.getMessage());
+                ClusterHttp.respond(exchange, 400, null);
+                return;
+            }
+            int accepted = 0;
+            for (SessionTransfer transfer : transfers) {
+                if (sessions.get(transfer.chatId()).state() == BotState.IDLE) {
+                    sessions.put(transfer.chatId(), transfer.state(), transfer.pendingRecipientId());
+                    accepted++;
+                }
+            }
+            logger.info("Принято сессий: {} из {}", accepted, transfers.size());
+            ClusterHttp.respond(exchange, 200, null);
+        }
+    }
+
+    record SessionTransfer(long chatId, BotState state, Long pendingRecipientId) {
+    }
+}
@@ -0,0 +1,87 @@
+package ru.itpark.sb.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Неизменяемое кольцо согласованного хеширования chatId → узел. Каждый узел
+ * занимает {@code virtualNodes} точек кольца, поэтому чаты распределяются
+ * равномерно, а при добавлении или удалении узла переезжает только примерно
+ * {@code 1/N} чатов. Точки хранятся в отсортированных массивах, поиск —
+ * двоичный, без выделения памяти.
+ */
+public final class ConsistentHashRing {
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Число виртуальных узлов должно быть положительным");
+        }
+        this.nodes = Set.copyOf(new TreeSet<>(nodeIds));
+        String[] sortedNodes = new TreeSet<>(nodeIds).toArray(new String[0]);
+
+        int size = sortedNodes.length * virtualNodes;
+        long[] unsortedPoints = new long[size];
+        Integer[] order = new Integer[size];
+        for (int n = 0; n < sortedNodes.length; n++) {
+            long nodeHash = hash(sortedNodes[n]);
+            for (int v = 0; v < virtualNodes; v++) {
+                int index = n * virtualNodes + v;
+                unsortedPoints[index] = mix(nodeHash + v * 0x9E3779B97F4A7C15L);
+                order[index] = index;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(unsortedPoints[a], unsortedPoints[b]));
+
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = unsortedPoints[order[i]];
+            owners[i] = sortedNodes[order[i] / virtualNodes];
+        }
+    }
+
+    /**
+     * Узел, владеющий чатом, или {@code null}, если кольцо пустое.
+     */
+    public String nodeFor(long chatId) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, mix(chatId));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    private static long hash(String nodeId) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : nodeId.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        return key ^ (key >>> 33);
+    }
+}
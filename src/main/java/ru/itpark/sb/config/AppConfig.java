@@ -0,0 +1,83 @@
+package ru.itpark.sb.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+public class AppConfig {
+    private static final Properties properties = loadProperties();
+
+    private AppConfig() {
+    }
+
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        try (InputStream inputStream = AppConfig.class.getClassLoader()
+                .getResourceAsStream("application.properties")) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать application.properties: " + e.getMessage(), e);
+        }
+        return properties;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String envValue = System.getenv(toEnvName(key));
+        if (envValue != null && !envValue.isEmpty()) {
+            return envValue;
+        }
+        String value = properties.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректное значение параметра " + key + ": " + value, e);
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректное значение параметра " + key + ": " + value, e);
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректное значение параметра " + key + ": " + value, e);
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    static String toEnvName(String key) {
+        return key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_');
+    }
+}
@@ -4,93 +4,121 @@ import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import ru.itpark.sb.model.TransactionEntity;
 import ru.itpark.sb.model.User;
+import ru.itpark.sb.model.UserStatistics;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
 public class HibernateConfig {
-    private static SessionFactory sessionFactory;
 
-    static {
+    private static class Holder {
+        private static final SessionFactory SESSION_FACTORY = createDefaultSessionFactory();
+    }
+
+    private static SessionFactory createDefaultSessionFactory() {
         try {
-            Configuration configuration = new Configuration();
-            
-            Properties properties = loadProperties();
-            
-            configuration.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
-            configuration.setProperty("hibernate.connection.url", properties.getProperty("db.url"));
-            configuration.setProperty("hibernate.connection.username", properties.getProperty("db.username"));
-            configuration.setProperty("hibernate.connection.password", properties.getProperty("db.password"));
-            
-            configuration.setProperty("hibernate.hikari.maximumPoolSize", "10");
-            configuration.setProperty("hibernate.hikari.minimumIdle", "5");
-            
-            configuration.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
-            
-            configuration.setProperty("hibernate.show_sql", properties.getProperty("hibernate.show_sql", "false"));
-            configuration.setProperty("hibernate.format_sql", properties.getProperty("hibernate.format_sql", "true"));
-            
-            configuration.setProperty("hibernate.hbm2ddl.auto", properties.getProperty("hibernate.hbm2ddl.auto", "update"));
-            
-            configuration.addAnnotatedClass(User.class);
-            configuration.addAnnotatedClass(TransactionEntity.class);
-            
-            sessionFactory = configuration.buildSessionFactory();
+            return buildSessionFactory(loadProperties());
         } catch (Exception e) {
             throw new ExceptionInInitializerError("Ошибка инициализации Hibernate: " + e.getMessage());
         }
     }
 
+    public static SessionFactory buildSessionFactory(Properties properties) {
+        Configuration configuration = new Configuration();
+
+        configuration.setProperty("hibernate.connection.driver_class",
+                properties.getProperty("db.driver", "org.postgresql.Driver"));
+        configuration.setProperty("hibernate.connection.url", properties.getProperty("db.url"));
+        configuration.setProperty("hibernate.connection.username", properties.getProperty("db.username"));
+        configuration.setProperty("hibernate.connection.password", properties.getProperty("db.password"));
+
+        configuration.setProperty("hibernate.hikari.maximumPoolSize", properties.getProperty("db.pool.max-size", "10"));
+        configuration.setProperty("hibernate.hikari.minimumIdle", properties.getProperty("db.pool.min-idle", "5"));
+
+        configuration.setProperty("hibernate.dialect",
+                properties.getProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect"));
+
+        configuration.setProperty("hibernate.jdbc.batch_size", properties.getProperty("hibernate.jdbc.batch_size", "50"));
+        configuration.setProperty("hibernate.order_inserts", "true");
+        configuration.setProperty("hibernate.order_updates", "true");
+        configuration.setProperty("hibernate.id.sequence.increment_size_mismatch_strategy",
+                properties.getProperty("hibernate.id.sequence.increment_size_mismatch_strategy", "fix"));
+
+        configuration.setProperty("hibernate.generate_statistics",
+                properties.getProperty("hibernate.generate_statistics", "false"));
+
+        boolean secondLevelCache = Boolean.parseBoolean(
+                properties.getProperty("hibernate.cache.use_second_level_cache", "true"));
+        configuration.setProperty("hibernate.cache.use_second_level_cache", String.valueOf(secondLevelCache));
+        if (secondLevelCache) {
+            configuration.setProperty("hibernate.cache.region.factory_class", "jcache");
+            configuration.setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+            configuration.getProperties().put("hibernate.javax.cache.cache_manager",
+                    SecondLevelCache.createCacheManager(properties));
+        }
+
+        configuration.setProperty("hibernate.show_sql", properties.getProperty("hibernate.show_sql", "false"));
+        configuration.setProperty("hibernate.format_sql", properties.getProperty("hibernate.format_sql", "true"));
+
+        configuration.setProperty("hibernate.hbm2ddl.auto", properties.getProperty("hibernate.hbm2ddl.auto", "update"));
+
+        configuration.addAnnotatedClass(User.class);
+        configuration.addAnnotatedClass(TransactionEntity.class);
+        configuration.addAnnotatedClass(UserStatistics.class);
+
+        return configuration.buildSessionFactory();
+    }
+
     private static Properties loadProperties() throws IOException {
         Properties properties = new Properties();
         InputStream inputStream = HibernateConfig.class.getClassLoader()
                 .getResourceAsStream("application.properties");
-        
+
         if (inputStream != null) {
             properties.load(inputStream);
             inputStream.close();
         }
-        
+
         String dbUrl = System.getenv("DB_URL");
         if (dbUrl == null || dbUrl.isEmpty()) {
             dbUrl = properties.getProperty("db.url", "jdbc:postgresql://localhost:5432/banking_bot");
         }
         properties.setProperty("db.url", dbUrl);
-        
+
         String dbUsername = System.getenv("DB_USERNAME");
         if (dbUsername == null || dbUsername.isEmpty()) {
             dbUsername = properties.getProperty("db.username", "postgres");
         }
         properties.setProperty("db.username", dbUsername);
-        
+
         String dbPassword = System.getenv("DB_PASSWORD");
         if (dbPassword == null || dbPassword.isEmpty()) {
             dbPassword = properties.getProperty("db.password", "postgres");
         }
         properties.setProperty("db.password", dbPassword);
-        
-        properties.setProperty("hibernate.show_sql", 
-                System.getenv().getOrDefault("HIBERNATE_SHOW_SQL", 
+
+        properties.setProperty("hibernate.show_sql",
+                System.getenv().getOrDefault("HIBERNATE_SHOW_SQL",
                         properties.getProperty("hibernate.show_sql", "false")));
-        properties.setProperty("hibernate.format_sql", 
-                System.getenv().getOrDefault("HIBERNATE_FORMAT_SQL", 
+        properties.setProperty("hibernate.format_sql",
+                System.getenv().getOrDefault("HIBERNATE_FORMAT_SQL",
                         properties.getProperty("hibernate.format_sql", "true")));
-        properties.setProperty("hibernate.hbm2ddl.auto", 
-                System.getenv().getOrDefault("HIBERNATE_HBM2DDL_AUTO", 
+        properties.setProperty("hibernate.hbm2ddl.auto",
+                System.getenv().getOrDefault("HIBERNATE_HBM2DDL_AUTO",
                         properties.getProperty("hibernate.hbm2ddl.auto", "update")));
-        
+        properties.setProperty("hibernate.jdbc.batch_size",
+                System.getenv().getOrDefault("HIBERNATE_JDBC_BATCH_SIZE",
+                        properties.getProperty("hibernate.jdbc.batch_size", "50")));
+
         return properties;
     }
 
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        return Holder.SESSION_FACTORY;
     }
 
     public static void shutdown() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
-        }
+        getSessionFactory().close();
     }
 }
-
@@ -0,0 +1,45 @@
+package ru.itpark.sb.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import ru.itpark.sb.model.User;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш второго уровня Hibernate на JCache (Caffeine). У каждой фабрики
+ * сессий собственный {@link CacheManager}, чтобы фабрики разных баз не
+ * делили записи; Hibernate закрывает его вместе с фабрикой. Регионы
+ * создаются заранее с ограничением размера и включённой статистикой,
+ * поэтому Hibernate запускается с {@code missing_cache_strategy=fail}.
+ */
+final class SecondLevelCache {
+    private static final AtomicLong MANAGER_COUNTER = new AtomicLong();
+
+    private SecondLevelCache() {
+    }
+
+    static CacheManager createCacheManager(Properties properties) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("banking-bot-l2-" + MANAGER_COUNTER.incrementAndGet()), SecondLevelCache.class.getClassLoader());
+
+        long maxSize = Long.parseLong(properties.getProperty("cache.users.max-size", "100000"));
+        cacheManager.createCache(User.CACHE_REGION, boundedRegion(maxSize));
+        cacheManager.createCache(User.NATURAL_ID_CACHE_REGION, boundedRegion(maxSize));
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> boundedRegion(long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.itpark.sb.jfr.DaoCallEvent;
+import ru.itpark.sb.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Общая обвязка сессий для DAO. Если поток находится внутри
+ * {@link TransactionTemplate}, операции выполняются в его сессии и транзакции;
+ * внутри {@link UnitOfWork} — в сессии единицы работы, а запись получает
+ * собственную транзакцию в ней. Иначе каждая операция открывает собственную
+ * сессию, как и раньше.
+ *
+ * <p>Каждый вызов DAO идёт через {@link #read(DaoOperation, String, Function)}
+ * или {@link #write(DaoOperation, String, Function)} и попадает в метрику
+ * {@code bot_dao_duration_seconds} и событие {@link DaoCallEvent}.
+ */
+public abstract class AbstractDao {
+    protected final SessionFactory sessionFactory;
+
+    protected AbstractDao(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    private <T> T readInSession(String errorMessage, Function<Session, T> work) {
+        Session bound = SessionContext.current();
+        if (bound != null) {
+            return apply(bound, errorMessage, work);
+        }
+
+        Session session = sessionFactory.openSession();
+        try {
+            return apply(session, errorMessage, work);
+        } finally {
+            session.close();
+        }
+    }
+
+    protected <T> T read(DaoOperation operation, String errorMessage, Function<Session, T> work) {
+        return timed(operation, () -> readInSession(errorMessage, work));
+    }
+
+    protected <T> T write(DaoOperation operation, String errorMessage, Function<Session, T> work) {
+        return timed(operation, () -> writeInSession(errorMessage, work));
+    }
+
+    /**
+     * Замеряет вызов: длительность уходит в метрику операции, а при
+     * включённой записи JFR — ещё и в {@link DaoCallEvent} с размером результата.
+     */
+    protected static <T> T timed(DaoOperation operation, Supplier<T> call) {
+        DaoCallEvent event = new DaoCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        T result = null;
+        boolean success = false;
+        try {
+            result = call.get();
+            success = true;
+            return result;
+        } finally {
+            operation.latency().recordSince(start);
+            if (event.shouldCommit()) {
+                event.dao = operation.dao();
+                event.query = operation.method();
+                event.rows = rowCount(result);
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    protected static DaoOperation operation(Class<? extends AbstractDao> dao, String method) {
+        return new DaoOperation(dao.getSimpleName(), method, MetricsRegistry.getDefault().histogram(
+                "bot_dao_duration_seconds", "Длительность методов DAO", "dao", dao.getSimpleName(), "method", method));
+    }
+
+    static long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> rows) {
+            return rows.size();
+        }
+        if (result instanceof Optional<?> row) {
+            return row.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        return 1;
+    }
+
+    private <T> T writeInSession(String errorMessage, Function<Session, T> work) {
+        Session bound = SessionContext.current();
+        if (bound != null) {
+            if (bound.getTransaction().isActive()) {
+                return apply(bound, errorMessage, work);
+            }
+            return apply(bound, errorMessage, session -> UnitOfWork.inTransaction(session, () -> work.apply(session)));
+        }
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            T result = work.apply(session);
+            transaction.commit();
+            return result;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException(errorMessage + ": " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    protected static boolean isPostgres(Session session) {
+        return session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
+    private static <T> T apply(Session session, String errorMessage, Function<Session, T> work) {
+        try {
+            return work.apply(session);
+        } catch (Exception e) {
+            throw new RuntimeException(errorMessage + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import ru.itpark.sb.config.HibernateConfig;
+
+/**
+ * Отправка сообщений об изменении данных через {@code pg_notify}. Сообщение
+ * уходит в текущей транзакции: Postgres доставляет его слушателям только
+ * после фиксации и отбрасывает при откате. На других СУБД отправка
+ * не поддерживается.
+ */
+public class CacheInvalidationDao extends AbstractDao {
+    private static final DaoOperation IS_SUPPORTED = operation(CacheInvalidationDao.class, "isSupported");
+    private static final DaoOperation PUBLISH = operation(CacheInvalidationDao.class, "publish");
+
+    public CacheInvalidationDao() {
+        this(HibernateConfig.getSessionFactory());
+    }
+
+    public CacheInvalidationDao(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public boolean isSupported() {
+        return read(IS_SUPPORTED, "Ошибка при определении СУБД", AbstractDao::isPostgres);
+    }
+
+    public void publish(String channel, String payload) {
+        write(PUBLISH, "Ошибка при отправке инвалидации кэша", session -> session.createNativeQuery(
+                        "SELECT pg_notify(:channel, :payload)", Object.class)
+                .setParameter("channel", channel)
+                .setParameter("payload", payload)
+                .getSingleResult());
+    }
+}
@@ -0,0 +1,10 @@
+package ru.itpark.sb.dao;
+
+import ru.itpark.sb.metrics.LatencyHistogram;
+
+/**
+ * Метод DAO, длительность которого попадает в метрику
+ * {@code bot_dao_duration_seconds} и в событие JFR {@code ru.itpark.sb.DaoCall}.
+ */
+record DaoOperation(String dao, String method, LatencyHistogram latency) {
+}
@@ -0,0 +1,16 @@
+package ru.itpark.sb.dao;
+
+import ru.itpark.sb.model.TransactionEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Позиция в истории операций пользователя: ключ {@code (created_at, id)}
+ * записи, на которой закончилась страница.
+ */
+public record HistoryCursor(LocalDateTime createdAt, long id) {
+
+    public static HistoryCursor of(TransactionEntity transaction) {
+        return new HistoryCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+}
@@ -0,0 +1,22 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+
+public final class SessionContext {
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private SessionContext() {
+    }
+
+    public static Session current() {
+        return CURRENT.get();
+    }
+
+    static void bind(Session session) {
+        CURRENT.set(session);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+}
@@ -1,67 +1,167 @@
 package ru.itpark.sb.dao;
 
-import org.hibernate.Session;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
-import org.hibernate.query.Query;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import ru.itpark.sb.config.HibernateConfig;
 import ru.itpark.sb.model.TransactionEntity;
 import ru.itpark.sb.model.User;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class TransactionDao {
-    private final SessionFactory sessionFactory;
+public class TransactionDao extends AbstractDao {
+    private static final DaoOperation SAVE = operation(TransactionDao.class, "save");
+    private static final DaoOperation SAVE_ALL = operation(TransactionDao.class, "saveAll");
+    private static final DaoOperation FIND_BY_USER = operation(TransactionDao.class, "findByUser");
+    private static final DaoOperation FIND_PAGE_BEFORE = operation(TransactionDao.class, "findPageBefore");
+    private static final DaoOperation FIND_PAGE_AFTER = operation(TransactionDao.class, "findPageAfter");
+    private static final DaoOperation STREAM_BY_USER = operation(TransactionDao.class, "streamByUser");
+    private static final DaoOperation FIND_ALL_BY_USER = operation(TransactionDao.class, "findAllByUser");
 
     public TransactionDao() {
-        this.sessionFactory = HibernateConfig.getSessionFactory();
+        this(HibernateConfig.getSessionFactory());
+    }
+
+    public TransactionDao(SessionFactory sessionFactory) {
+        super(sessionFactory);
     }
 
     public TransactionEntity save(TransactionEntity transaction) {
-        Session session = sessionFactory.openSession();
-        Transaction tx = null;
-        try {
-            tx = session.beginTransaction();
+        return write(SAVE, "Ошибка при сохранении транзакции", session -> {
             session.persist(transaction);
-            tx.commit();
             return transaction;
-        } catch (Exception e) {
-            if (tx != null) {
-                tx.rollback();
+        });
+    }
+
+    /**
+     * Сохраняет несколько записей так, чтобы INSERT ушли в базу пакетами
+     * размера {@code hibernate.jdbc.batch_size}. Внутри {@link TransactionTemplate}
+     * записи отправляются при фиксации общей транзакции.
+     */
+    public List<TransactionEntity> saveAll(Collection<TransactionEntity> transactions) {
+        return write(SAVE_ALL, "Ошибка при сохранении транзакций", session -> {
+            boolean ownSession = session != SessionContext.current();
+            int batchSize = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                    .getSessionFactoryOptions().getJdbcBatchSize();
+            int pending = 0;
+            for (TransactionEntity transaction : transactions) {
+                session.persist(transaction);
+                if (ownSession && batchSize > 0 && ++pending % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
             }
-            throw new RuntimeException("Ошибка при сохранении транзакции: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+            return List.copyOf(transactions);
+        });
     }
 
     public List<TransactionEntity> findByUser(User user, int limit) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<TransactionEntity> query = session.createQuery(
-                    "FROM TransactionEntity WHERE user = :user ORDER BY createdAt DESC", TransactionEntity.class);
-            query.setParameter("user", user);
-            query.setMaxResults(limit);
-            return query.list();
+        return read(FIND_BY_USER, "Ошибка при поиске транзакций", session -> session.createQuery(
+                        "FROM TransactionEntity WHERE user = :user ORDER BY createdAt DESC", TransactionEntity.class)
+                .setParameter("user", user)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    /**
+     * Записи пользователя старше курсора (или самые новые, если курсора нет),
+     * от новых к старым. Условие по ключу {@code (created_at, id)} читает
+     * индекс idx_transactions_user_created с нужного места без OFFSET.
+     * Отдельное условие {@code created_at <= :createdAt} повторяет ключ
+     * курсора, чтобы Postgres отсёк более новые помесячные секции: по
+     * сравнению строк он этого не делает.
+     */
+    public List<TransactionEntity> findPageBefore(Long userId, HistoryCursor cursor, int limit) {
+        return read(FIND_PAGE_BEFORE, "Ошибка при поиске транзакций", session -> {
+            if (cursor == null) {
+                return session.createQuery(
+                                "FROM TransactionEntity t WHERE t.user.id = :userId "
+                                        + "ORDER BY t.createdAt DESC, t.id DESC", TransactionEntity.class)
+                        .setParameter("userId", userId)
+                        .setMaxResults(limit)
+                        .list();
+            }
+            return session.createQuery(
+                            "FROM TransactionEntity t WHERE t.user.id = :userId "
+                                    + "AND t.createdAt <= :createdAt AND (t.createdAt, t.id) < (:createdAt, :id) "
+                                    + "ORDER BY t.createdAt DESC, t.id DESC", TransactionEntity.class)
+                    .setParameter("userId", userId)
+                    .setParameter("createdAt", cursor.createdAt())
+                    .setParameter("id", cursor.id())
+                    .setMaxResults(limit)
+                    .list();
+        });
+    }
+
+    /**
+     * Записи пользователя новее курсора, ближайшие к нему, от новых к старым.
+     * Условие {@code created_at >= :createdAt} отсекает более старые секции.
+     */
+    public List<TransactionEntity> findPageAfter(Long userId, HistoryCursor cursor, int limit) {
+        List<TransactionEntity> page = read(FIND_PAGE_AFTER, "Ошибка при поиске транзакций", session -> session.createQuery(
+                        "FROM TransactionEntity t WHERE t.user.id = :userId "
+                                + "AND t.createdAt >= :createdAt AND (t.createdAt, t.id) > (:createdAt, :id) "
+                                + "ORDER BY t.createdAt ASC, t.id ASC", TransactionEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("createdAt", cursor.createdAt())
+                .setParameter("id", cursor.id())
+                .setMaxResults(limit)
+                .list());
+        List<TransactionEntity> newestFirst = new ArrayList<>(page);
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    /**
+     * Передаёт записи пользователя в {@code consumer} по одной, от старых к новым.
+     * Строки читаются курсором порциями по {@code fetchSize} через
+     * {@link StatelessSession}, поэтому объём памяти не зависит от длины истории.
+     *
+     * @return количество переданных записей
+     */
+    public long streamByUser(Long userId, int fetchSize, Consumer<TransactionEntity> consumer) {
+        return timed(STREAM_BY_USER, () -> stream(userId, fetchSize, consumer));
+    }
+
+    private long stream(Long userId, int fetchSize, Consumer<TransactionEntity> consumer) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults<TransactionEntity> rows = session.createQuery(
+                            "FROM TransactionEntity t WHERE t.user.id = :userId "
+                                    + "ORDER BY t.createdAt ASC, t.id ASC", TransactionEntity.class)
+                    .setParameter("userId", userId)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                long count = 0;
+                while (rows.next()) {
+                    consumer.accept(rows.get());
+                    count++;
+                }
+                transaction.commit();
+                return count;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
         } catch (Exception e) {
-            throw new RuntimeException("Ошибка при поиске транзакций: " + e.getMessage(), e);
-        } finally {
-            session.close();
+            throw new RuntimeException("Ошибка при выгрузке транзакций: " + e.getMessage(), e);
         }
     }
 
     public List<TransactionEntity> findAllByUser(User user) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<TransactionEntity> query = session.createQuery(
-                    "FROM TransactionEntity WHERE user = :user ORDER BY createdAt DESC", TransactionEntity.class);
-            query.setParameter("user", user);
-            return query.list();
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при поиске всех транзакций: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        return read(FIND_ALL_BY_USER, "Ошибка при поиске всех транзакций", session -> session.createQuery(
+                        "FROM TransactionEntity WHERE user = :user ORDER BY createdAt DESC", TransactionEntity.class)
+                .setParameter("user", user)
+                .list());
     }
 }
-
@@ -0,0 +1,193 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import ru.itpark.sb.config.HibernateConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Помесячные секции таблицы {@code transactions} (декларативное
+ * секционирование Postgres по {@code created_at}, см. docker/init.sql).
+ * Секция за месяц называется {@code transactions_pYYYY_MM}. Изменения
+ * секций выполняются под advisory-блокировкой, поэтому обслуживание можно
+ * запускать из нескольких процессов одновременно.
+ */
+public class TransactionPartitionDao extends AbstractDao {
+    private static final String TABLE = "transactions";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'transactions_p'yyyy_MM");
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final long LOCK_KEY = 0x7472616e73L;
+    private static final DaoOperation IS_SUPPORTED = operation(TransactionPartitionDao.class, "isSupported");
+    private static final DaoOperation FIND_PARTITIONS = operation(TransactionPartitionDao.class, "findPartitions");
+    private static final DaoOperation FIND_ARCHIVED_PARTITIONS =
+            operation(TransactionPartitionDao.class, "findArchivedPartitions");
+    private static final DaoOperation CREATE_PARTITION = operation(TransactionPartitionDao.class, "createPartition");
+    private static final DaoOperation ARCHIVE_PARTITION = operation(TransactionPartitionDao.class, "archivePartition");
+
+    public TransactionPartitionDao() {
+        this(HibernateConfig.getSessionFactory());
+    }
+
+    public TransactionPartitionDao(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public static String partitionName(YearMonth month) {
+        return NAME_FORMAT.format(month);
+    }
+
+    /**
+     * @return месяц секции или {@code null}, если имя не по шаблону
+     */
+    public static YearMonth monthOf(String partitionName) {
+        try {
+            return YearMonth.parse(partitionName, NAME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Секционирование доступно только на Postgres и только если таблица
+     * создана секционированной.
+     */
+    public boolean isSupported() {
+        return read(IS_SUPPORTED, "Ошибка при проверке секционирования", session -> isPostgres(session)
+                && session.createNativeQuery(
+                        "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(:table)", Long.class)
+                .setParameter("table", TABLE)
+                .getSingleResult() > 0);
+    }
+
+    /**
+     * Месяцы присоединённых секций по возрастанию.
+     */
+    public List<YearMonth> findPartitions() {
+        List<String> names = read(FIND_PARTITIONS, "Ошибка при чтении секций транзакций", session -> session.createNativeQuery(
+                        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "WHERE i.inhparent = to_regclass(:table) ORDER BY c.relname", String.class)
+                .setParameter("table", TABLE)
+                .list());
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            YearMonth month = monthOf(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Месяцы секций, уже перенесённых в схему архива, по возрастанию.
+     */
+    public List<YearMonth> findArchivedPartitions(String archiveSchema) {
+        List<String> names = read(FIND_ARCHIVED_PARTITIONS, "Ошибка при чтении архивных секций", session -> !isPostgres(session)
+                ? List.of()
+                : session.createNativeQuery(
+                        "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                                + "WHERE n.nspname = :schema AND c.relkind = 'r' ORDER BY c.relname", String.class)
+                .setParameter("schema", archiveSchema)
+                .list());
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            YearMonth month = monthOf(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        write(CREATE_PARTITION, "Ошибка при создании секции " + name, session -> {
+            lock(session);
+            return session.createNativeQuery("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE
+                            + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')")
+                    .addSynchronizedQuerySpace(TABLE)
+                    .executeUpdate();
+        });
+    }
+
+    /**
+     * Отсоединяет секцию и переносит её в схему архива: данные остаются
+     * доступными для выгрузки, но больше не участвуют в запросах и индексах
+     * рабочей таблицы.
+     *
+     * <p>Секция отсоединяется через {@code DETACH PARTITION ... CONCURRENTLY},
+     * которому не нужна блокировка ACCESS EXCLUSIVE на {@code transactions}:
+     * чтение и вставки в рабочую таблицу идут своим ходом. Такой DETACH нельзя
+     * выполнять внутри транзакции, поэтому работа идёт на отдельном соединении
+     * в режиме autocommit под сессионной advisory-блокировкой. Если прошлый
+     * запуск прервался посередине, секция остаётся в состоянии «detach
+     * pending» и отсоединение завершается через {@code FINALIZE}.
+     */
+    public void archivePartition(YearMonth month, String archiveSchema) {
+        if (!IDENTIFIER.matcher(archiveSchema).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя схемы архива: " + archiveSchema);
+        }
+        String name = partitionName(month);
+        timed(ARCHIVE_PARTITION, () -> detachAndMove(name, archiveSchema));
+    }
+
+    private Void detachAndMove(String name, String archiveSchema) {
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+                    try {
+                        statement.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+                        Boolean detachPending = detachPending(connection, name);
+                        if (detachPending != null) {
+                            statement.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + name
+                                    + (detachPending ? " FINALIZE" : " CONCURRENTLY"));
+                        }
+                        statement.execute("ALTER TABLE " + name + " SET SCHEMA " + archiveSchema);
+                    } finally {
+                        statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                    }
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при архивации секции " + name + ": " + e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code null}, если секция уже отсоединена, иначе признак
+     * незавершённого {@code DETACH ... CONCURRENTLY}
+     */
+    private static Boolean detachPending(Connection connection, String name) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT inhdetachpending FROM pg_inherits WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass(?)")) {
+            query.setString(1, name);
+            query.setString(2, TABLE);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private static void lock(Session session) {
+        session.createNativeQuery("SELECT count(*) FROM (SELECT pg_advisory_xact_lock(:key)) l", Long.class)
+                .setParameter("key", LOCK_KEY)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import ru.itpark.sb.config.HibernateConfig;
+
+import java.util.function.Supplier;
+
+/**
+ * Выполняет несколько обращений к DAO в одной транзакции: сессия привязывается
+ * к текущему потоку, и все вызовы {@link UserDao}/{@link TransactionDao} внутри
+ * {@link #execute(Supplier)} используют её. Вложенный вызов присоединяется
+ * к уже открытой транзакции, а внутри {@link UnitOfWork} транзакция
+ * открывается в сессии единицы работы.
+ */
+public class TransactionTemplate {
+    private final Supplier<SessionFactory> sessionFactory;
+
+    public TransactionTemplate() {
+        this(HibernateConfig::getSessionFactory);
+    }
+
+    public TransactionTemplate(SessionFactory sessionFactory) {
+        this(() -> sessionFactory);
+    }
+
+    private TransactionTemplate(Supplier<SessionFactory> sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        Session bound = SessionContext.current();
+        if (bound != null) {
+            if (bound.getTransaction().isActive()) {
+                return work.get();
+            }
+            return UnitOfWork.inTransaction(bound, work);
+        }
+
+        Session session = sessionFactory.get().openSession();
+        SessionContext.bind(session);
+        try {
+            return UnitOfWork.inTransaction(session, work);
+        } finally {
+            SessionContext.unbind();
+            session.close();
+        }
+    }
+}
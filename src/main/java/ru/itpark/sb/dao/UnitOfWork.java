@@ -0,0 +1,70 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import ru.itpark.sb.config.HibernateConfig;
+
+import java.util.function.Supplier;
+
+/**
+ * Одна сессия Hibernate на обработку одного обновления бота. Сессия
+ * привязывается к потоку, и все обращения к DAO внутри {@link #run(Runnable)}
+ * выполняются в ней; соединение берётся из пула при первом запросе и
+ * возвращается только при закрытии сессии.
+ *
+ * <p>Каждая транзакция внутри единицы работы начинается и заканчивается с
+ * пустым контекстом сохранения, поэтому чтения после изменения видят
+ * актуальные данные, а повтор после отката не использует устаревшие сущности.
+ */
+public class UnitOfWork {
+    private final Supplier<SessionFactory> sessionFactory;
+
+    public UnitOfWork() {
+        this(HibernateConfig::getSessionFactory);
+    }
+
+    public UnitOfWork(SessionFactory sessionFactory) {
+        this(() -> sessionFactory);
+    }
+
+    private UnitOfWork(Supplier<SessionFactory> sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void run(Runnable work) {
+        if (SessionContext.current() != null) {
+            work.run();
+            return;
+        }
+
+        Session session = sessionFactory.get().withOptions()
+                .connectionHandlingMode(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_HOLD)
+                .openSession();
+        SessionContext.bind(session);
+        try {
+            work.run();
+        } finally {
+            SessionContext.unbind();
+            session.close();
+        }
+    }
+
+    static <T> T inTransaction(Session session, Supplier<T> work) {
+        session.clear();
+        Transaction transaction = session.beginTransaction();
+        try {
+            T result = work.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            session.clear();
+        }
+    }
+}
@@ -1,81 +1,160 @@
 package ru.itpark.sb.dao;
 
+import jakarta.persistence.LockModeType;
+import org.hibernate.Cache;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
-import org.hibernate.query.Query;
+import org.hibernate.engine.spi.SessionImplementor;
 import ru.itpark.sb.config.HibernateConfig;
 import ru.itpark.sb.model.User;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public class UserDao {
-    private final SessionFactory sessionFactory;
+public class UserDao extends AbstractDao {
+    private static final DaoOperation SAVE = operation(UserDao.class, "save");
+    private static final DaoOperation FIND_BY_TELEGRAM_ID = operation(UserDao.class, "findByTelegramId");
+    private static final DaoOperation FIND_BY_TELEGRAM_IDS = operation(UserDao.class, "findByTelegramIds");
+    private static final DaoOperation FIND_BY_TELEGRAM_IDS_FOR_UPDATE = operation(UserDao.class, "findByTelegramIdsForUpdate");
+    private static final DaoOperation CHANGE_BALANCE = operation(UserDao.class, "changeBalance");
+    private static final DaoOperation GET_REFERENCE = operation(UserDao.class, "getReference");
+    private static final DaoOperation UPDATE = operation(UserDao.class, "update");
+    private static final DaoOperation FIND_BY_ID = operation(UserDao.class, "findById");
+    private static final DaoOperation EXISTS = operation(UserDao.class, "exists");
+    private static final String CHANGE_BALANCE_SQL =
+            "UPDATE users SET balance = balance + ?, version = version + 1 WHERE id = ? AND balance >= ?";
 
     public UserDao() {
-        this.sessionFactory = HibernateConfig.getSessionFactory();
+        this(HibernateConfig.getSessionFactory());
+    }
+
+    public UserDao(SessionFactory sessionFactory) {
+        super(sessionFactory);
     }
 
     public User save(User user) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
+        return write(SAVE, "Ошибка при сохранении пользователя", session -> {
             session.persist(user);
-            transaction.commit();
             return user;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        });
+    }
+
+    /**
+     * Поиск по естественному ключу: идентификатор берётся из кэша
+     * естественных ключей, сама сущность — из кэша второго уровня.
+     */
+    public Optional<User> findByTelegramId(Long telegramId) {
+        return read(FIND_BY_TELEGRAM_ID, "Ошибка при поиске пользователя", session -> session.bySimpleNaturalId(User.class)
+                .loadOptional(telegramId));
+    }
+
+    public List<User> findByTelegramIds(Collection<Long> telegramIds) {
+        return read(FIND_BY_TELEGRAM_IDS, "Ошибка при поиске пользователей", session -> session.createQuery(
+                        "FROM User WHERE telegramId IN (:telegramIds) ORDER BY id", User.class)
+                .setParameterList("telegramIds", telegramIds)
+                .list());
+    }
+
+    public List<User> findByTelegramIdsForUpdate(Collection<Long> telegramIds) {
+        return write(FIND_BY_TELEGRAM_IDS_FOR_UPDATE, "Ошибка при блокировке пользователей", session -> session.createQuery(
+                        "FROM User WHERE telegramId IN (:telegramIds) ORDER BY id", User.class)
+                .setParameterList("telegramIds", telegramIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .list());
+    }
+
+    /**
+     * Изменяет баланс одним условным UPDATE, не загружая пользователя.
+     * Списание проходит только при достаточном остатке. На Postgres новый
+     * баланс возвращает {@code RETURNING}, на других СУБД (H2 в тестах и
+     * бенчмарках) — отдельный SELECT после UPDATE.
+     *
+     * <p>Запросы идут через JDBC, поэтому Hibernate не сбрасывает по ним
+     * области кэша второго уровня, и на любой СУБД из кэша удаляется только
+     * запись этого пользователя: сразу и ещё раз после завершения транзакции,
+     * чтобы её не успели заполнить старым значением.
+     *
+     * @return новый баланс или пустое значение, если строки нет или не
+     *         хватает средств; различить их позволяет {@link #exists(Long)}
+     */
+    public Optional<BigDecimal> changeBalance(Long userId, BigDecimal delta) {
+        BigDecimal required = delta.signum() < 0 ? delta.negate() : BigDecimal.ZERO;
+        return write(CHANGE_BALANCE, "Ошибка при изменении баланса", session -> {
+            evictAfterNativeUpdate(session, userId);
+            session.flush();
+            boolean returning = isPostgres(session);
+            return session.doReturningWork(connection -> returning
+                    ? updateReturning(connection, userId, delta, required)
+                    : updateThenSelect(connection, userId, delta, required));
+        });
+    }
+
+    public boolean exists(Long userId) {
+        return read(EXISTS, "Ошибка при проверке пользователя", session -> session.createNativeQuery(
+                        "SELECT count(*) FROM users WHERE id = :id", Long.class)
+                .setParameter("id", userId)
+                .getSingleResult() > 0);
+    }
+
+    private static Optional<BigDecimal> updateReturning(Connection connection, Long userId, BigDecimal delta,
+                                                        BigDecimal required) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CHANGE_BALANCE_SQL + " RETURNING balance")) {
+            bindChange(statement, userId, delta, required);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? Optional.of(rows.getBigDecimal(1)) : Optional.empty();
             }
-            throw new RuntimeException("Ошибка при сохранении пользователя: " + e.getMessage(), e);
-        } finally {
-            session.close();
         }
     }
 
-    public Optional<User> findByTelegramId(Long telegramId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<User> query = session.createQuery(
-                    "FROM User WHERE telegramId = :telegramId", User.class);
-            query.setParameter("telegramId", telegramId);
-            User user = query.uniqueResult();
-            return Optional.ofNullable(user);
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при поиске пользователя: " + e.getMessage(), e);
-        } finally {
-            session.close();
+    private static Optional<BigDecimal> updateThenSelect(Connection connection, Long userId, BigDecimal delta,
+                                                         BigDecimal required) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CHANGE_BALANCE_SQL)) {
+            bindChange(statement, userId, delta, required);
+            if (statement.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT balance FROM users WHERE id = ?")) {
+            statement.setLong(1, userId);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return Optional.of(rows.getBigDecimal(1));
+            }
         }
     }
 
+    private static void bindChange(PreparedStatement statement, Long userId, BigDecimal delta, BigDecimal required)
+            throws SQLException {
+        statement.setBigDecimal(1, delta);
+        statement.setLong(2, userId);
+        statement.setBigDecimal(3, required);
+    }
+
+    public User getReference(Long userId) {
+        return read(GET_REFERENCE, "Ошибка при получении ссылки на пользователя", session -> session.getReference(User.class, userId));
+    }
+
     public User update(User user) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
+        return write(UPDATE, "Ошибка при обновлении пользователя", session -> {
             session.merge(user);
-            transaction.commit();
             return user;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
-            throw new RuntimeException("Ошибка при обновлении пользователя: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     public User findById(Long id) {
-        Session session = sessionFactory.openSession();
-        try {
-            return session.get(User.class, id);
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при поиске пользователя по ID: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        return read(FIND_BY_ID, "Ошибка при поиске пользователя по ID", session -> session.get(User.class, id));
     }
-}
 
+    private static void evictAfterNativeUpdate(Session session, Long userId) {
+        Cache cache = session.getSessionFactory().getCache();
+        cache.evictEntityData(User.class, userId);
+        session.unwrap(SessionImplementor.class).getActionQueue().registerProcess(
+                (success, completedSession) -> cache.evictEntityData(User.class, userId));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.UserStatistics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты по операциям пользователя. Строка меняется в той же транзакции,
+ * что и запись в журнал операций, поэтому её чтение заменяет подсчёт по всей
+ * истории. Конкурирующие изменения одного пользователя упорядочены блокировкой
+ * его строки в {@code users}, которую операции берут раньше: явно через
+ * {@code FOR UPDATE} или изменением строки с проверкой версии.
+ */
+public class UserStatisticsDao extends AbstractDao {
+    private static final DaoOperation FIND_BY_USER_ID = operation(UserStatisticsDao.class, "findByUserId");
+    private static final DaoOperation RECORD = operation(UserStatisticsDao.class, "record");
+    private static final DaoOperation REBUILD = operation(UserStatisticsDao.class, "rebuild");
+
+    private static final String INCREMENT_SQL =
+            "UPDATE user_statistics SET "
+                    + "deposit_count = deposit_count + :depositCount, "
+                    + "deposit_total = deposit_total + :depositTotal, "
+                    + "withdrawal_count = withdrawal_count + :withdrawalCount, "
+                    + "withdrawal_total = withdrawal_total + :withdrawalTotal, "
+                    + "transfer_out_count = transfer_out_count + :transferOutCount, "
+                    + "transfer_out_total = transfer_out_total + :transferOutTotal, "
+                    + "transfer_in_count = transfer_in_count + :transferInCount, "
+                    + "transfer_in_total = transfer_in_total + :transferInTotal "
+                    + "WHERE user_id = :userId";
+
+    private static final String REBUILD_DELETE_SQL =
+            "DELETE FROM user_statistics WHERE user_id IN (:userIds)";
+
+    private static final String REBUILD_INSERT_SQL =
+            "INSERT INTO user_statistics (user_id, deposit_count, deposit_total, withdrawal_count, withdrawal_total, "
+                    + "transfer_out_count, transfer_out_total, transfer_in_count, transfer_in_total) "
+                    + "SELECT u.id, "
+                    + "COUNT(CASE WHEN t.type = 'DEPOSIT' THEN 1 END), "
+                    + "COALESCE(SUM(CASE WHEN t.type = 'DEPOSIT' THEN t.amount END), 0), "
+                    + "COUNT(CASE WHEN t.type = 'WITHDRAWAL' THEN 1 END), "
+                    + "COALESCE(SUM(CASE WHEN t.type = 'WITHDRAWAL' THEN t.amount END), 0), "
+                    + "COUNT(CASE WHEN t.type = 'TRANSFER_OUT' THEN 1 END), "
+                    + "COALESCE(SUM(CASE WHEN t.type = 'TRANSFER_OUT' THEN t.amount END), 0), "
+                    + "COUNT(CASE WHEN t.type = 'TRANSFER_IN' THEN 1 END), "
+                    + "COALESCE(SUM(CASE WHEN t.type = 'TRANSFER_IN' THEN t.amount END), 0) "
+                    + "FROM users u LEFT JOIN transactions t ON t.user_id = u.id "
+                    + "WHERE u.id IN (:userIds) GROUP BY u.id";
+
+    public UserStatisticsDao() {
+        this(HibernateConfig.getSessionFactory());
+    }
+
+    public UserStatisticsDao(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public Optional<UserStatistics> findByUserId(Long userId) {
+        return read(FIND_BY_USER_ID, "Ошибка при получении статистики", session ->
+                Optional.ofNullable(session.get(UserStatistics.class, userId)));
+    }
+
+    public void record(Collection<TransactionEntity> transactions) {
+        write(RECORD, "Ошибка при обновлении статистики", session -> {
+            // изменения счетов уходят в базу раньше статистики: при оптимистичной блокировке
+            // конфликт версий обнаруживается до вставки строки агрегатов, а не на ней
+            session.flush();
+            // строки обновляются по возрастанию user_id, чтобы встречные переводы не взаимоблокировались
+            Map<Long, UserStatistics> deltas = new TreeMap<>();
+            for (TransactionEntity transaction : transactions) {
+                deltas.computeIfAbsent(transaction.getUser().getId(), UserStatistics::new)
+                        .add(transaction.getType(), 1, transaction.getAmount());
+            }
+            for (UserStatistics delta : deltas.values()) {
+                apply(session, delta);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Пересчитывает агрегаты указанных пользователей по журналу операций.
+     * Строки пользователей блокируются, чтобы пересчёт не разошёлся
+     * с параллельными операциями.
+     */
+    public int rebuild(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return write(REBUILD, "Ошибка при пересчёте статистики", session -> {
+            session.createNativeQuery("SELECT id FROM users WHERE id IN (:userIds) ORDER BY id FOR UPDATE", Long.class)
+                    .setParameterList("userIds", userIds)
+                    .list();
+            session.createNativeQuery(REBUILD_DELETE_SQL)
+                    .addSynchronizedEntityClass(UserStatistics.class)
+                    .setParameterList("userIds", userIds)
+                    .executeUpdate();
+            return session.createNativeQuery(REBUILD_INSERT_SQL)
+                    .addSynchronizedEntityClass(UserStatistics.class)
+                    .setParameterList("userIds", userIds)
+                    .executeUpdate();
+        });
+    }
+
+    private void apply(Session session, UserStatistics delta) {
+        int updated = session.createNativeQuery(INCREMENT_SQL)
+                .addSynchronizedEntityClass(UserStatistics.class)
+                .setParameter("depositCount", delta.getDepositCount())
+                .setParameter("depositTotal", delta.getDepositTotal())
+                .setParameter("withdrawalCount", delta.getWithdrawalCount())
+                .setParameter("withdrawalTotal", delta.getWithdrawalTotal())
+                .setParameter("transferOutCount", delta.getTransferOutCount())
+                .setParameter("transferOutTotal", delta.getTransferOutTotal())
+                .setParameter("transferInCount", delta.getTransferInCount())
+                .setParameter("transferInTotal", delta.getTransferInTotal())
+                .setParameter("userId", delta.getUserId())
+                .executeUpdate();
+        if (updated == 0) {
+            session.persist(delta);
+        }
+    }
+}
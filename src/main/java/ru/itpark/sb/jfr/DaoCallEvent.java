@@ -0,0 +1,31 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Вызов метода DAO, включая ожидание соединения и фиксацию транзакции.
+ */
+@Name("ru.itpark.sb.DaoCall")
+@Label("Вызов DAO")
+@Category({"Banking Bot", "Persistence"})
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+    @Label("DAO")
+    public String dao;
+
+    @Label("Запрос")
+    @Description("Имя метода DAO")
+    public String query;
+
+    @Label("Строк")
+    @Description("Размер результата: число записей, 0 или 1 для одиночного результата")
+    public long rows;
+
+    @Label("Успешно")
+    public boolean success;
+}
@@ -0,0 +1,33 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Одна попытка вызова Bot API из {@code OutboundQueue}.
+ */
+@Name("ru.itpark.sb.OutboundSend")
+@Label("Вызов Bot API")
+@Category({"Banking Bot", "Outbound"})
+@StackTrace(false)
+public class OutboundSendEvent extends Event {
+    @Label("Chat Id")
+    public long chatId;
+
+    @Label("Метод")
+    public String method;
+
+    @Label("Попытка")
+    public int attempt;
+
+    @Label("Код ошибки")
+    @Description("Код ответа Bot API при ошибке, 0 при успехе или сетевой ошибке")
+    public int errorCode;
+
+    @Label("Успешно")
+    public boolean success;
+}
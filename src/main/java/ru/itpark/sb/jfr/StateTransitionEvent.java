@@ -0,0 +1,25 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Смена состояния диалога в {@code ChatSessionStore}.
+ */
+@Name("ru.itpark.sb.StateTransition")
+@Label("Смена состояния диалога")
+@Category({"Banking Bot", "Updates"})
+@StackTrace(false)
+public class StateTransitionEvent extends Event {
+    @Label("Chat Id")
+    public long chatId;
+
+    @Label("Из")
+    public String from;
+
+    @Label("В")
+    public String to;
+}
@@ -0,0 +1,26 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Обработка одного обновления: от выборки из очереди чата до возврата
+ * обработчика, включая сессию единицы работы.
+ */
+@Name("ru.itpark.sb.UpdateHandled")
+@Label("Обработка обновления")
+@Category({"Banking Bot", "Updates"})
+@StackTrace(false)
+public class UpdateHandledEvent extends Event {
+    @Label("Chat Id")
+    public long chatId;
+
+    @Label("Update Id")
+    public int updateId;
+
+    @Label("Обработчик")
+    public String handler;
+}
@@ -0,0 +1,28 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Обновление Telegram передано боту и поставлено (или не поставлено)
+ * в очередь чата.
+ */
+@Name("ru.itpark.sb.UpdateReceived")
+@Label("Получено обновление")
+@Category({"Banking Bot", "Updates"})
+@StackTrace(false)
+public class UpdateReceivedEvent extends Event {
+    @Label("Chat Id")
+    public long chatId;
+
+    @Label("Update Id")
+    public int updateId;
+
+    @Label("Принято")
+    @Description("false, если очередь чата переполнена и обновление отброшено")
+    public boolean accepted;
+}
@@ -0,0 +1,94 @@
+package ru.itpark.sb.job;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.itpark.sb.config.AppConfig;
+import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.dao.TransactionPartitionDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Заполняет {@code user_statistics} по уже существующему журналу операций.
+ * Пользователи обрабатываются пачками по возрастанию id, каждая пачка —
+ * отдельная короткая транзакция, поэтому задачу можно запускать на работающей
+ * базе и перезапускать после сбоя.
+ *
+ * <p>Пересчёт видит только рабочую таблицу {@code transactions}. Если
+ * {@link TransactionPartitionJob} уже перенёс секции в схему архива,
+ * задача отказывается запускаться: иначе накопленные итоги пользователей
+ * молча уменьшились бы на архивные операции.
+ *
+ * <p>Запуск: {@code mvn exec:java -Dexec.mainClass=ru.itpark.sb.job.StatisticsBackfillJob}.
+ */
+public class StatisticsBackfillJob {
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsBackfillJob.class);
+
+    private final SessionFactory sessionFactory;
+    private final UserStatisticsDao statisticsDao;
+    private final TransactionPartitionDao partitionDao;
+    private final String archiveSchema;
+    private final int batchSize;
+
+    public StatisticsBackfillJob(SessionFactory sessionFactory, int batchSize) {
+        this(sessionFactory, batchSize, new TransactionPartitionDao(sessionFactory),
+                AppConfig.get("transactions.retention.archive-schema", "archive"));
+    }
+
+    public StatisticsBackfillJob(SessionFactory sessionFactory, int batchSize,
+                                 TransactionPartitionDao partitionDao, String archiveSchema) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным");
+        }
+        this.sessionFactory = sessionFactory;
+        this.statisticsDao = new UserStatisticsDao(sessionFactory);
+        this.partitionDao = partitionDao;
+        this.archiveSchema = archiveSchema;
+        this.batchSize = batchSize;
+    }
+
+    public int run() {
+        List<YearMonth> archived = partitionDao.findArchivedPartitions(archiveSchema);
+        if (!archived.isEmpty()) {
+            throw new IllegalStateException("В схеме " + archiveSchema + " есть архивные секции " + archived
+                    + ": пересчёт по рабочей таблице занизил бы статистику пользователей");
+        }
+        int processed = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<Long> userIds = nextUserIds(lastId);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            statisticsDao.rebuild(userIds);
+            processed += userIds.size();
+            lastId = userIds.get(userIds.size() - 1);
+            logger.info("Пересчитана статистика пользователей: {} (последний id {})", processed, lastId);
+        }
+        return processed;
+    }
+
+    private List<Long> nextUserIds(long afterId) {
+        return sessionFactory.fromSession(session -> session.createQuery(
+                        "SELECT id FROM User WHERE id > :afterId ORDER BY id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(batchSize)
+                .list());
+    }
+
+    public static void main(String[] args) {
+        try {
+            int batchSize = AppConfig.getInt("stats.backfill.batch-size", 500);
+            int processed = new StatisticsBackfillJob(HibernateConfig.getSessionFactory(), batchSize).run();
+            logger.info("Заполнение статистики завершено, пользователей: {}", processed);
+        } catch (Exception e) {
+            logger.error("Ошибка при заполнении статистики: {}", e.getMessage(), e);
+            System.exit(1);
+        } finally {
+            HibernateConfig.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.itpark.sb.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.itpark.sb.config.AppConfig;
+import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.dao.TransactionPartitionDao;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обслуживание помесячных секций {@code transactions}: заранее создаёт секции
+ * на {@code monthsAhead} месяцев вперёд и архивирует секции старше
+ * {@code retentionMonths} полных месяцев, чтобы рабочая таблица и её индексы
+ * оставались небольшими. Если таблица не секционирована (или база не
+ * Postgres), ничего не делает. Архивированные операции не видны в истории
+ * и выписках; накопленная статистика и балансы при этом не меняются, а
+ * {@link StatisticsBackfillJob} после архивации отказывается пересчитывать
+ * статистику по неполному журналу.
+ *
+ * <p>Работающий бот запускает задачу по расписанию; разовый запуск:
+ * {@code mvn exec:java -Dexec.mainClass=ru.itpark.sb.job.TransactionPartitionJob}.
+ */
+public class TransactionPartitionJob {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionJob.class);
+
+    private final TransactionPartitionDao partitionDao;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String archiveSchema;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    public TransactionPartitionJob(TransactionPartitionDao partitionDao, int monthsAhead, int retentionMonths,
+                                   String archiveSchema, Clock clock) {
+        if (monthsAhead < 1) {
+            throw new IllegalArgumentException("Нужно создавать хотя бы одну секцию вперёд");
+        }
+        if (retentionMonths < 1) {
+            throw new IllegalArgumentException("Срок хранения должен быть не меньше месяца");
+        }
+        this.partitionDao = partitionDao;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveSchema = archiveSchema;
+        this.clock = clock;
+    }
+
+    public static TransactionPartitionJob fromConfig() {
+        return new TransactionPartitionJob(new TransactionPartitionDao(),
+                AppConfig.getInt("transactions.partitions.months-ahead", 3),
+                AppConfig.getInt("transactions.retention.months", 24),
+                AppConfig.get("transactions.retention.archive-schema", "archive"),
+                Clock.systemDefaultZone());
+    }
+
+    public Result run() {
+        if (!partitionDao.isSupported()) {
+            logger.info("Таблица transactions не секционирована, обслуживание секций пропущено");
+            return new Result(List.of(), List.of());
+        }
+        YearMonth current = YearMonth.now(clock);
+        List<YearMonth> existing = partitionDao.findPartitions();
+
+        List<YearMonth> created = new ArrayList<>();
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            if (!existing.contains(month)) {
+                partitionDao.createPartition(month);
+                created.add(month);
+                logger.info("Создана секция {}", TransactionPartitionDao.partitionName(month));
+            }
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        List<YearMonth> archived = new ArrayList<>();
+        for (YearMonth month : existing) {
+            if (month.isBefore(oldestKept)) {
+                partitionDao.archivePartition(month, archiveSchema);
+                archived.add(month);
+                logger.info("Секция {} перенесена в схему {}", TransactionPartitionDao.partitionName(month), archiveSchema);
+            }
+        }
+        return new Result(created, archived);
+    }
+
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("transaction-partitions").factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                logger.error("Ошибка при обслуживании секций транзакций", e);
+            }
+        }, 0, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public record Result(List<YearMonth> created, List<YearMonth> archived) {
+    }
+
+    public static void main(String[] args) {
+        try {
+            Result result = fromConfig().run();
+            logger.info("Обслуживание секций завершено, создано: {}, архивировано: {}",
+                    result.created().size(), result.archived().size());
+        } catch (Exception e) {
+            logger.error("Ошибка при обслуживании секций транзакций: {}", e.getMessage(), e);
+            System.exit(1);
+        } finally {
+            HibernateConfig.shutdown();
+        }
+    }
+}
@@ -1,13 +1,35 @@
 package ru.itpark.sb.keyboard;
 
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class KeyboardFactory {
-    public static ReplyKeyboardMarkup createMainMenu() {
+    private static final ReplyKeyboardMarkup MAIN_MENU = createMainMenu();
+    private static final ReplyKeyboardMarkup CANCEL_MENU = createCancelMenu();
+
+    /**
+     * Общий для всех сообщений экземпляр главного меню. {@link ReplyKeyboardMarkup}
+     * и его строки изменяемы, но бот только сериализует клавиатуру при отправке,
+     * поэтому её можно отправлять из любых потоков. Вызывающий код не должен
+     * менять ни клавиатуру, ни её строки: изменение увидят все сообщения.
+     */
+    public static ReplyKeyboardMarkup mainMenu() {
+        return MAIN_MENU;
+    }
+
+    /**
+     * Общий экземпляр меню отмены; менять его нельзя, см. {@link #mainMenu()}.
+     */
+    public static ReplyKeyboardMarkup cancelMenu() {
+        return CANCEL_MENU;
+    }
+
+    private static ReplyKeyboardMarkup createMainMenu() {
         ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
         keyboardMarkup.setResizeKeyboard(true);
         keyboardMarkup.setOneTimeKeyboard(false);
@@ -30,11 +52,15 @@ public class KeyboardFactory {
         row3.add("📊 Статистика");
         keyboardRows.add(row3);
 
-        keyboardMarkup.setKeyboard(keyboardRows);
+        KeyboardRow row4 = new KeyboardRow();
+        row4.add("📄 Выписка");
+        keyboardRows.add(row4);
+
+        keyboardMarkup.setKeyboard(List.copyOf(keyboardRows));
         return keyboardMarkup;
     }
 
-    public static ReplyKeyboardMarkup createCancelMenu() {
+    private static ReplyKeyboardMarkup createCancelMenu() {
         ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
         keyboardMarkup.setResizeKeyboard(true);
         keyboardMarkup.setOneTimeKeyboard(false);
@@ -46,8 +72,25 @@ public class KeyboardFactory {
         row1.add("❌ Отмена");
         keyboardRows.add(row1);
 
-        keyboardMarkup.setKeyboard(keyboardRows);
+        keyboardMarkup.setKeyboard(List.copyOf(keyboardRows));
         return keyboardMarkup;
     }
-}
 
+    public static InlineKeyboardMarkup createHistoryNavigation(String olderCallbackData, String newerCallbackData) {
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        if (newerCallbackData != null) {
+            InlineKeyboardButton newer = new InlineKeyboardButton("⬅️ Новее");
+            newer.setCallbackData(newerCallbackData);
+            row.add(newer);
+        }
+        if (olderCallbackData != null) {
+            InlineKeyboardButton older = new InlineKeyboardButton("Старше ➡️");
+            older.setCallbackData(olderCallbackData);
+            row.add(older);
+        }
+
+        InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
+        keyboardMarkup.setKeyboard(row.isEmpty() ? List.of() : List.of(row));
+        return keyboardMarkup;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.itpark.sb.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.DefaultAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поведение асинхронного логирования при переполнении кольцевого буфера.
+ * Режим задаётся свойством {@value #MODE_PROPERTY} в {@code log4j2.component.properties}
+ * или системным свойством:
+ * <ul>
+ *     <li>{@code drop} — события уровня {@code log4j2.discardThreshold} (по умолчанию INFO)
+ *     и ниже отбрасываются и учитываются в {@link #droppedCount()}, WARN и ERROR ждут места;</li>
+ *     <li>{@code block} — поток, который пишет в лог, ждёт освобождения буфера.</li>
+ * </ul>
+ * Log4j создаёт экземпляр сам по имени класса из {@code log4j2.asyncQueueFullPolicy}.
+ */
+public class LogOverflowPolicy extends DefaultAsyncQueueFullPolicy {
+    public static final String MODE_PROPERTY = "banking.log.overflow";
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private final boolean drop;
+    private final Level threshold;
+
+    public LogOverflowPolicy() {
+        this(PropertiesUtil.getProperties().getStringProperty(MODE_PROPERTY, "drop"),
+                Level.toLevel(PropertiesUtil.getProperties().getStringProperty("log4j2.discardThreshold"), Level.INFO));
+    }
+
+    LogOverflowPolicy(String mode, Level threshold) {
+        this.drop = switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "drop" -> true;
+            case "block" -> false;
+            default -> throw new IllegalArgumentException("Неизвестный режим переполнения лога: " + mode);
+        };
+        this.threshold = threshold;
+    }
+
+    @Override
+    public EventRoute getRoute(long backgroundThreadId, Level level) {
+        if (drop && level.isLessSpecificThan(threshold)) {
+            DROPPED.increment();
+            return EventRoute.DISCARD;
+        }
+        return super.getRoute(backgroundThreadId, level);
+    }
+
+    /**
+     * Число событий, отброшенных из-за переполнения буфера с момента запуска.
+     */
+    public static long droppedCount() {
+        return DROPPED.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.itpark.sb.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики пула HikariCP: время ожидания соединения, время его использования,
+ * таймауты получения и текущее число соединений по состояниям.
+ */
+public final class HikariMetrics implements MetricsTrackerFactory {
+    private final MetricsRegistry registry;
+
+    private HikariMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Подключает метрики к пулу фабрики сессий.
+     *
+     * @return {@code false}, если соединения выдаёт не HikariCP
+     */
+    public static boolean bind(SessionFactory sessionFactory, MetricsRegistry registry) {
+        ConnectionProvider provider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class)) {
+            return false;
+        }
+        provider.unwrap(HikariDataSource.class).setMetricsTrackerFactory(new HikariMetrics(registry));
+        return true;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String[] pool = {"pool", poolName};
+        registry.gauge("hikari_connections", "Соединения пула по состояниям",
+                poolStats::getActiveConnections, "pool", poolName, "state", "active");
+        registry.gauge("hikari_connections", "Соединения пула по состояниям",
+                poolStats::getIdleConnections, "pool", poolName, "state", "idle");
+        registry.gauge("hikari_connections", "Соединения пула по состояниям",
+                poolStats::getPendingThreads, "pool", poolName, "state", "pending");
+        registry.gauge("hikari_connections_max", "Максимальный размер пула",
+                poolStats::getMaxConnections, pool);
+
+        LatencyHistogram acquire = registry.histogram("hikari_connection_acquire_seconds",
+                "Ожидание соединения из пула", pool);
+        LatencyHistogram usage = registry.histogram("hikari_connection_usage_seconds",
+                "Время от получения соединения до возврата в пул", pool);
+        LongAdder timeouts = new LongAdder();
+        registry.counter("hikari_connection_timeouts_total", "Таймауты получения соединения",
+                timeouts::sum, pool);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
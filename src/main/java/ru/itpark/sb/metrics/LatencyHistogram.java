@@ -0,0 +1,68 @@
+package ru.itpark.sb.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Распределение длительностей на HdrHistogram. Запись идёт в
+ * {@link Recorder} без блокировок; при чтении накопленные с прошлого чтения
+ * значения добавляются к общей гистограмме. Значения хранятся в микросекундах
+ * с двумя значащими цифрами (погрешность не больше 1%), всё, что дольше
+ * {@link #MAX_SECONDS} секунд, записывается как максимум.
+ */
+public class LatencyHistogram {
+    public static final long MAX_SECONDS = 60;
+
+    private static final long MAX_MICROS = TimeUnit.SECONDS.toMicros(MAX_SECONDS);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(MAX_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(MAX_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder sumNanos = new LongAdder();
+    private Histogram interval;
+
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)), MAX_MICROS);
+        recorder.recordValue(micros);
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void time(Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    public <T> T time(Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    /**
+     * Копия распределения за всё время, значения в микросекундах.
+     */
+    public synchronized Histogram snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return total.copy();
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.itpark.sb.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.jmx.RingBufferAdmin;
+import ru.itpark.sb.logging.LogOverflowPolicy;
+
+/**
+ * Метрики асинхронного логирования: свободное место в кольцевом буфере
+ * и число событий, отброшенных при его переполнении.
+ */
+public final class LoggingMetrics {
+
+    private LoggingMetrics() {
+    }
+
+    /**
+     * Подключает метрики буфера логирования.
+     *
+     * @return {@code false}, если логгеры работают синхронно
+     */
+    public static boolean bind(MetricsRegistry registry) {
+        registry.counter("bot_log_events_dropped_total", "События лога, отброшенные при переполнении буфера",
+                LogOverflowPolicy::droppedCount);
+        if (!(LogManager.getContext(false) instanceof AsyncLoggerContext context)) {
+            return false;
+        }
+        RingBufferAdmin ringBuffer = context.createRingBufferAdmin();
+        registry.gauge("bot_log_ring_buffer_size", "Размер кольцевого буфера лога",
+                ringBuffer::getBufferSize);
+        registry.gauge("bot_log_ring_buffer_remaining", "Свободные ячейки кольцевого буфера лога",
+                ringBuffer::getRemainingCapacity);
+        return true;
+    }
+}
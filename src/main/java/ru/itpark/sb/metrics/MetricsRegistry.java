@@ -0,0 +1,160 @@
+package ru.itpark.sb.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Метрики процесса и их вывод в текстовом формате Prometheus (0.0.4).
+ * Метрика задаётся именем и парами меток {@code "имя", "значение", ...};
+ * повторная регистрация с теми же именем и метками возвращает ту же
+ * гистограмму или заменяет источник значения gauge/counter.
+ *
+ * <p>Гистограммы выводятся как {@code histogram} с фиксированными границами
+ * {@link #BUCKETS_SECONDS}: так p99 считается через {@code histogram_quantile}
+ * и складывается между узлами кластера.
+ */
+public class MetricsRegistry {
+    static final double[] BUCKETS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Реестр процесса, который отдаёт {@link MetricsServer}.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM).series
+                .computeIfAbsent(labelText(labels), key -> new LatencyHistogram());
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelText(labels), value);
+    }
+
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labelText(labels), value);
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                if (family.type == Type.HISTOGRAM) {
+                    writeHistogram(out, family.name, series.getKey(), (LatencyHistogram) series.getValue());
+                } else {
+                    writeSample(out, family.name, series.getKey(), ((DoubleSupplier) series.getValue()).getAsDouble());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована как " + family.type.text);
+        }
+        return family;
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        Histogram snapshot = histogram.snapshot();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double bound : BUCKETS_SECONDS) {
+            long count = snapshot.getCountBetweenValues(0, (long) (bound * 1_000_000));
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(format(bound)).append("\"} ")
+                    .append(count).append('\n');
+        }
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ")
+                .append(snapshot.getTotalCount()).append('\n');
+        writeSample(out, name + "_sum", labels, histogram.sumSeconds());
+        writeSample(out, name + "_count", labels, snapshot.getTotalCount());
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    static String labelText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами имя-значение");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> text.append("\\\\");
+                    case '"' -> text.append("\\\"");
+                    case '\n' -> text.append("\\n");
+                    default -> text.append(c);
+                }
+            }
+            text.append('"');
+        }
+        return text.toString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private enum Type {
+        GAUGE("gauge"),
+        COUNTER("counter"),
+        HISTOGRAM("histogram");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final ConcurrentSkipListMap<String, Object> series = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
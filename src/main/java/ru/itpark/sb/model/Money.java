@@ -0,0 +1,145 @@
+package ru.itpark.sb.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма в копейках. Проверки, сравнения и агрегаты считаются на
+ * {@code long}; в {@link BigDecimal} сумма переводится только при записи
+ * в базу и чтении из неё.
+ */
+public record Money(long kopecks) implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final long MAX_UNITS = Long.MAX_VALUE / 100 - 1;
+
+    public static Money ofKopecks(long kopecks) {
+        return new Money(kopecks);
+    }
+
+    /**
+     * Сумма из значения базы; копейки за пределами двух знаков округляются
+     * половиной вверх.
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Разбирает сумму, введённую пользователем, за один проход без
+     * промежуточных строк. Пробелы в любом месте игнорируются, дробная часть
+     * отделяется точкой или запятой, третий и следующие знаки после
+     * разделителя округляются половиной вверх.
+     *
+     * @throws NumberFormatException если текст не является суммой
+     */
+    public static Money parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && isSpace(text.charAt(i))) {
+            i++;
+        }
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int cents = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean roundUp = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                digits++;
+                if (!fraction) {
+                    if (units > (MAX_UNITS - digit) / 10) {
+                        throw new NumberFormatException("Слишком большая сумма: " + text);
+                    }
+                    units = units * 10 + digit;
+                } else if (fractionDigits < 2) {
+                    cents = cents * 10 + digit;
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = digit >= 5;
+                    fractionDigits++;
+                }
+            } else if ((c == '.' || c == ',') && !fraction) {
+                fraction = true;
+            } else if (!isSpace(c)) {
+                throw new NumberFormatException("Некорректная сумма: " + text);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Некорректная сумма: " + text);
+        }
+
+        if (fractionDigits == 1) {
+            cents *= 10;
+        }
+        long kopecks = units * 100 + cents + (roundUp ? 1 : 0);
+        return new Money(negative ? -kopecks : kopecks);
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(kopecks, other.kopecks));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(kopecks, other.kopecks));
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(kopecks));
+    }
+
+    /**
+     * Деление на положительное число с округлением половиной вверх,
+     * например для средней суммы операции.
+     */
+    public Money dividedBy(long divisor) {
+        if (divisor <= 0) {
+            throw new IllegalArgumentException("Делитель должен быть положительным");
+        }
+        long quotient = kopecks / divisor;
+        long remainder = Math.abs(kopecks % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += kopecks < 0 ? -1 : 1;
+        }
+        return new Money(quotient);
+    }
+
+    public boolean isPositive() {
+        return kopecks > 0;
+    }
+
+    public boolean isNegative() {
+        return kopecks < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return kopecks < other.kopecks;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(kopecks, other.kopecks);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
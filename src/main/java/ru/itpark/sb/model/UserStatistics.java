@@ -0,0 +1,66 @@
+package ru.itpark.sb.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "user_statistics")
+@Data
+@NoArgsConstructor
+public class UserStatistics {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deposit_count", nullable = false)
+    private long depositCount;
+
+    @Column(name = "deposit_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal depositTotal = BigDecimal.ZERO;
+
+    @Column(name = "withdrawal_count", nullable = false)
+    private long withdrawalCount;
+
+    @Column(name = "withdrawal_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal withdrawalTotal = BigDecimal.ZERO;
+
+    @Column(name = "transfer_out_count", nullable = false)
+    private long transferOutCount;
+
+    @Column(name = "transfer_out_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal transferOutTotal = BigDecimal.ZERO;
+
+    @Column(name = "transfer_in_count", nullable = false)
+    private long transferInCount;
+
+    @Column(name = "transfer_in_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal transferInTotal = BigDecimal.ZERO;
+
+    public UserStatistics(Long userId) {
+        this.userId = userId;
+    }
+
+    public void add(TransactionEntity.TransactionType type, long count, BigDecimal amount) {
+        switch (type) {
+            case DEPOSIT -> {
+                depositCount += count;
+                depositTotal = depositTotal.add(amount);
+            }
+            case WITHDRAWAL -> {
+                withdrawalCount += count;
+                withdrawalTotal = withdrawalTotal.add(amount);
+            }
+            case TRANSFER_OUT -> {
+                transferOutCount += count;
+                transferOutTotal = transferOutTotal.add(amount);
+            }
+            case TRANSFER_IN -> {
+                transferInCount += count;
+                transferInTotal = transferInTotal.add(amount);
+            }
+        }
+    }
+}
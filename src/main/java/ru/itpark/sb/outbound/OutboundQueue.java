@@ -0,0 +1,371 @@
+package ru.itpark.sb.outbound;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.itpark.sb.jfr.OutboundSendEvent;
+import ru.itpark.sb.metrics.LatencyHistogram;
+import ru.itpark.sb.metrics.MetricsRegistry;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Очередь исходящих вызовов Bot API. Обработчики кладут ответ и сразу возвращаются,
+ * а рабочие потоки отправляют сообщения с соблюдением глобального лимита и лимита
+ * на чат. Сообщения одного чата уходят строго по порядку; при ответе 429 чат
+ * приостанавливается на {@code retry_after} секунд и сообщение отправляется повторно.
+ */
+public class OutboundQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+    private static final long RETRY_BASE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @FunctionalInterface
+    public interface Call {
+        void execute(AbsSender sender) throws TelegramApiException;
+    }
+
+    @FunctionalInterface
+    public interface Completion {
+        /**
+         * @param sent {@code true}, если вызов выполнен, {@code false} — если
+         *             отброшен после ошибок или не принят в очередь
+         */
+        void completed(boolean sent);
+    }
+
+    private final AbsSender sender;
+    private final TokenBucket globalBucket;
+    private final int chatBurst;
+    private final double chatRate;
+    private final int capacity;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<Long, ChatOutbox> outboxes = new ConcurrentHashMap<>();
+    private final DelayQueue<Scheduled> schedule = new DelayQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong rateLimitedResponses = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> apiLatency = new ConcurrentHashMap<>();
+    private volatile boolean accepting = true;
+
+    public OutboundQueue(AbsSender sender, int workerCount, int capacity, double globalRate,
+                         int chatBurst, double chatRate, int maxAttempts) {
+        this.sender = sender;
+        this.globalBucket = new TokenBucket(Math.max(1, (int) globalRate), globalRate);
+        this.chatBurst = chatBurst;
+        this.chatRate = chatRate;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = Thread.ofPlatform().daemon().name("outbound-" + i).unstarted(this::runWorker);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public boolean submit(long chatId, BotApiMethod<? extends Serializable> method) {
+        return submit(chatId, method.getMethod(), sender -> sender.execute(method));
+    }
+
+    public boolean submit(long chatId, String name, Call call) {
+        return submit(chatId, name, call, (Completion) null);
+    }
+
+    /**
+     * @param onComplete вызывается один раз, когда вызов покидает очередь:
+     *                   после успешной отправки, окончательной ошибки или отказа в приёме
+     */
+    public boolean submit(long chatId, String name, Call call, Runnable onComplete) {
+        return submit(chatId, name, call, onComplete == null ? null : sent -> onComplete.run());
+    }
+
+    /**
+     * Как {@link #submit(long, String, Call, Runnable)}, но обработчик узнаёт,
+     * был ли вызов выполнен.
+     */
+    public boolean submit(long chatId, String name, Call call, Completion onComplete) {
+        if (!accepting) {
+            logger.warn("Очередь исходящих сообщений остановлена, {} для chatId: {} отброшен", name, chatId);
+            droppedMessages.incrementAndGet();
+            complete(onComplete, false);
+            return false;
+        }
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            droppedMessages.incrementAndGet();
+            logger.warn("Очередь исходящих сообщений переполнена ({}), {} для chatId: {} отброшен",
+                    capacity, name, chatId);
+            complete(onComplete, false);
+            return false;
+        }
+
+        Pending pending = new Pending(name, call, onComplete);
+        Scheduled[] toSchedule = new Scheduled[1];
+        outboxes.compute(chatId, (id, outbox) -> {
+            if (outbox == null) {
+                outbox = new ChatOutbox(new TokenBucket(chatBurst, chatRate));
+            }
+            synchronized (outbox) {
+                outbox.queue.addLast(pending);
+                if (!outbox.sending) {
+                    outbox.sending = true;
+                    toSchedule[0] = new Scheduled(chatId, System.nanoTime(), ++outbox.generation);
+                }
+            }
+            return outbox;
+        });
+        if (toSchedule[0] != null) {
+            schedule.put(toSchedule[0]);
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    public long getRateLimitedResponses() {
+        return rateLimitedResponses.get();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        accepting = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (depth.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (depth.get() > 0) {
+            logger.warn("Не отправлено сообщений при завершении работы: {}", depth.get());
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                process(schedule.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Ошибка в потоке отправки сообщений", e);
+            }
+        }
+    }
+
+    private void process(Scheduled entry) {
+        ChatOutbox outbox = outboxes.get(entry.chatId);
+        if (outbox == null) {
+            return;
+        }
+
+        Pending pending;
+        synchronized (outbox) {
+            if (entry.generation != outbox.generation) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            if (!outbox.sending) {
+                long untilFull = outbox.bucket.nanosUntilFull();
+                if (untilFull > 0) {
+                    schedule.put(new Scheduled(entry.chatId, now + untilFull, entry.generation));
+                    return;
+                }
+                pending = null;
+            } else {
+                long chatWait = Math.max(outbox.bucket.nanosUntilAvailable(), outbox.notBefore - now);
+                if (chatWait > 0) {
+                    schedule.put(new Scheduled(entry.chatId, now + chatWait, entry.generation));
+                    return;
+                }
+                if (!globalBucket.tryAcquire()) {
+                    schedule.put(new Scheduled(entry.chatId, now + globalBucket.nanosUntilAvailable(), entry.generation));
+                    return;
+                }
+                outbox.bucket.tryAcquire();
+                pending = outbox.queue.pollFirst();
+                if (pending == null) {
+                    outbox.sending = false;
+                }
+            }
+        }
+
+        if (pending == null) {
+            evictIfIdle(entry);
+            return;
+        }
+
+        long retryAt = send(entry.chatId, pending);
+
+        synchronized (outbox) {
+            long now = System.nanoTime();
+            if (retryAt > 0) {
+                outbox.queue.addFirst(pending);
+                outbox.notBefore = retryAt;
+            }
+            if (outbox.queue.isEmpty()) {
+                outbox.sending = false;
+                schedule.put(new Scheduled(entry.chatId, now + outbox.bucket.nanosUntilFull(), ++outbox.generation));
+            } else {
+                schedule.put(new Scheduled(entry.chatId, now, entry.generation));
+            }
+        }
+    }
+
+    private void execute(long chatId, Pending pending) throws TelegramApiException {
+        OutboundSendEvent event = new OutboundSendEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        int errorCode = 0;
+        try {
+            pending.call.execute(sender);
+            success = true;
+        } catch (TelegramApiRequestException e) {
+            errorCode = e.getErrorCode() != null ? e.getErrorCode() : 0;
+            throw e;
+        } finally {
+            apiLatency.computeIfAbsent(pending.name, method -> MetricsRegistry.getDefault().histogram(
+                    "bot_api_request_duration_seconds", "Длительность вызовов Bot API", "method", method))
+                    .recordSince(start);
+            if (event.shouldCommit()) {
+                event.chatId = chatId;
+                event.method = pending.name;
+                event.attempt = pending.attempts + 1;
+                event.errorCode = errorCode;
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    private long send(long chatId, Pending pending) {
+        try {
+            execute(chatId, pending);
+            sentMessages.incrementAndGet();
+            depth.decrementAndGet();
+            complete(pending.onComplete, true);
+            return 0;
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+            if (errorCode != null && errorCode == 429) {
+                rateLimitedResponses.incrementAndGet();
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                long delay = retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) : backoff(pending.attempts);
+                logger.warn("Превышен лимит Bot API для chatId: {}, повтор {} через {} мс",
+                        chatId, pending.name, TimeUnit.NANOSECONDS.toMillis(delay));
+                return retry(chatId, pending, delay, e);
+            }
+            if (errorCode != null && errorCode >= 500) {
+                return retry(chatId, pending, backoff(pending.attempts), e);
+            }
+            return drop(chatId, pending, e);
+        } catch (TelegramApiException e) {
+            return retry(chatId, pending, backoff(pending.attempts), e);
+        } catch (RuntimeException e) {
+            return drop(chatId, pending, e);
+        }
+    }
+
+    private long retry(long chatId, Pending pending, long delayNanos, Exception cause) {
+        pending.attempts++;
+        if (pending.attempts >= maxAttempts) {
+            return drop(chatId, pending, cause);
+        }
+        return System.nanoTime() + delayNanos;
+    }
+
+    private long drop(long chatId, Pending pending, Exception cause) {
+        depth.decrementAndGet();
+        droppedMessages.incrementAndGet();
+        logger.error("Ошибка при отправке {} в chatId: {} (попыток: {})", pending.name, chatId, pending.attempts + 1, cause);
+        complete(pending.onComplete, false);
+        return 0;
+    }
+
+    private static void complete(Completion onComplete, boolean sent) {
+        if (onComplete == null) {
+            return;
+        }
+        try {
+            onComplete.completed(sent);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка в обработчике завершения отправки", e);
+        }
+    }
+
+    private long backoff(int attempts) {
+        return RETRY_BASE_DELAY_NANOS << Math.min(attempts, 6);
+    }
+
+    private void evictIfIdle(Scheduled entry) {
+        outboxes.computeIfPresent(entry.chatId, (id, outbox) -> {
+            synchronized (outbox) {
+                boolean idle = outbox.queue.isEmpty() && !outbox.sending && outbox.generation == entry.generation;
+                return idle ? null : outbox;
+            }
+        });
+    }
+
+    private static final class ChatOutbox {
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private boolean sending;
+        private long generation;
+        private long notBefore;
+
+        private ChatOutbox(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class Pending {
+        private final String name;
+        private final Call call;
+        private final Completion onComplete;
+        private int attempts;
+
+        private Pending(String name, Call call, Completion onComplete) {
+            this.name = name;
+            this.call = call;
+            this.onComplete = onComplete;
+        }
+    }
+
+    private record Scheduled(long chatId, long readyAt, long generation) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((Scheduled) other).readyAt);
+        }
+    }
+}
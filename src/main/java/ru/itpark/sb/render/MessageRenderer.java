@@ -0,0 +1,156 @@
+package ru.itpark.sb.render;
+
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.TransactionEntity.TransactionType;
+import ru.itpark.sb.service.BankingService.TransactionStatistics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Тексты ответов бота. Шаблоны разбираются один раз при загрузке класса,
+ * суммы форматируются общим для локали {@link MoneyFormat}, даты —
+ * вручную по шаблону {@code dd.MM.yyyy HH:mm}. Экземпляр не хранит
+ * изменяемого состояния и может использоваться из любых потоков.
+ */
+public class MessageRenderer {
+    private static final TextTemplate BALANCE = TextTemplate.compile("💰 Ваш баланс: {0} ₽");
+    private static final TextTemplate DEPOSIT = TextTemplate.compile(
+            "✅ Счет пополнен на {0} ₽\n\n💰 Новый баланс: {1} ₽");
+    private static final TextTemplate WITHDRAWAL = TextTemplate.compile(
+            "✅ Со счета снято {0} ₽\n\n💰 Новый баланс: {1} ₽");
+    private static final TextTemplate TRANSFER = TextTemplate.compile(
+            "✅ Перевод выполнен!\n\n📤 Отправлено: {0} ₽\n👤 Получатель: {1}\n\n💰 Ваш баланс: {2} ₽");
+    private static final TextTemplate TRANSFER_NAMED = TextTemplate.compile(
+            "✅ Перевод выполнен!\n\n📤 Отправлено: {0} ₽\n👤 Получатель: {1} ({2})\n\n💰 Ваш баланс: {3} ₽");
+
+    private static final String HISTORY_HEADER = "📜 История транзакций:\n\n";
+    private static final TextTemplate HISTORY_ENTRY = TextTemplate.compile("{0}: {1} ₽\n📅 {2}\n");
+    private static final TextTemplate HISTORY_DESCRIPTION = TextTemplate.compile("📝 {0}\n");
+    private static final TextTemplate HISTORY_RECIPIENT = TextTemplate.compile("👤 Получатель: {0}\n");
+    private static final int HISTORY_ENTRY_LENGTH = 96;
+
+    private static final TextTemplate STATISTICS_HEADER = TextTemplate.compile(
+            "📊 Ваша статистика:\n\n💰 Баланс: {0} ₽\n\n");
+    private static final TextTemplate STATISTICS_DEPOSITS = TextTemplate.compile(
+            "📈 Пополнения:\n  • Всего: {0} ₽\n  • Количество: {1}\n");
+    private static final TextTemplate STATISTICS_WITHDRAWALS = TextTemplate.compile(
+            "📉 Снятия:\n  • Всего: {0} ₽\n  • Количество: {1}\n");
+    private static final TextTemplate STATISTICS_AVERAGE = TextTemplate.compile("  • Средняя сумма: {0} ₽\n");
+    private static final TextTemplate STATISTICS_TRANSFERS = TextTemplate.compile(
+            "📤 Переводы:\n  • Отправлено: {0} ₽ ({1})\n  • Получено: {2} ₽ ({3})\n\n");
+    private static final TextTemplate STATISTICS_TOTAL = TextTemplate.compile("📋 Всего транзакций: {0}");
+
+    private static final Map<TransactionType, String> TYPE_LABELS = new EnumMap<>(Map.of(
+            TransactionType.DEPOSIT, "➕ Пополнение",
+            TransactionType.WITHDRAWAL, "➖ Снятие",
+            TransactionType.TRANSFER_OUT, "📤 Перевод",
+            TransactionType.TRANSFER_IN, "📥 Получен перевод"));
+    private static final String UNKNOWN_TYPE_LABEL = "💰 Операция";
+
+    private final MoneyFormat money;
+    private final TextTemplate.ValueWriter values = this::appendValue;
+
+    public MessageRenderer(Locale locale) {
+        this.money = MoneyFormat.forLocale(locale);
+    }
+
+    public String balance(Money balance) {
+        return BALANCE.render(values, balance);
+    }
+
+    public String deposit(Money amount, Money balance) {
+        return DEPOSIT.render(values, amount, balance);
+    }
+
+    public String withdrawal(Money amount, Money balance) {
+        return WITHDRAWAL.render(values, amount, balance);
+    }
+
+    public String transfer(Money amount, long recipientTelegramId, String recipientUsername, Money balance) {
+        if (recipientUsername == null) {
+            return TRANSFER.render(values, amount, recipientTelegramId, balance);
+        }
+        return TRANSFER_NAMED.render(values, amount, recipientTelegramId, recipientUsername, balance);
+    }
+
+    public String history(List<TransactionEntity> transactions) {
+        StringBuilder out = new StringBuilder(HISTORY_HEADER.length() + transactions.size() * HISTORY_ENTRY_LENGTH);
+        out.append(HISTORY_HEADER);
+        for (TransactionEntity transaction : transactions) {
+            HISTORY_ENTRY.appendTo(out, values, TYPE_LABELS.getOrDefault(transaction.getType(), UNKNOWN_TYPE_LABEL),
+                    transaction.getAmount(), transaction.getCreatedAt());
+            String description = transaction.getDescription();
+            if (description != null && !description.isEmpty()) {
+                HISTORY_DESCRIPTION.appendTo(out, values, description);
+            }
+            if (transaction.getRecipientId() != null) {
+                HISTORY_RECIPIENT.appendTo(out, values, transaction.getRecipientId());
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public String statistics(TransactionStatistics stats, Money balance) {
+        StringBuilder out = new StringBuilder(512);
+        STATISTICS_HEADER.appendTo(out, values, balance);
+
+        STATISTICS_DEPOSITS.appendTo(out, values, stats.getTotalDeposits(), stats.getDepositCount());
+        if (stats.getDepositCount() > 0) {
+            STATISTICS_AVERAGE.appendTo(out, values, stats.getAvgDeposit());
+        }
+        out.append('\n');
+
+        STATISTICS_WITHDRAWALS.appendTo(out, values, stats.getTotalWithdrawals(), stats.getWithdrawalCount());
+        if (stats.getWithdrawalCount() > 0) {
+            STATISTICS_AVERAGE.appendTo(out, values, stats.getAvgWithdrawal());
+        }
+        out.append('\n');
+
+        if (stats.getTransferOutCount() > 0 || stats.getTransferInCount() > 0) {
+            STATISTICS_TRANSFERS.appendTo(out, values, stats.getTotalTransfersOut(), stats.getTransferOutCount(),
+                    stats.getTotalTransfersIn(), stats.getTransferInCount());
+        }
+
+        return STATISTICS_TOTAL.appendTo(out, values, stats.getTotalTransactions()).toString();
+    }
+
+    private void appendValue(StringBuilder out, Object value) {
+        if (value instanceof Money amount) {
+            money.appendTo(out, amount);
+        } else if (value instanceof BigDecimal amount) {
+            money.appendTo(out, amount);
+        } else if (value instanceof LocalDateTime dateTime) {
+            appendDateTime(out, dateTime);
+        } else if (value instanceof CharSequence text) {
+            out.append(text);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void appendDateTime(StringBuilder out, LocalDateTime dateTime) {
+        appendTwoDigits(out, dateTime.getDayOfMonth()).append('.');
+        appendTwoDigits(out, dateTime.getMonthValue()).append('.');
+        int year = dateTime.getYear();
+        if (year >= 0 && year < 1000) {
+            out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        out.append(year).append(' ');
+        appendTwoDigits(out, dateTime.getHour()).append(':');
+        appendTwoDigits(out, dateTime.getMinute());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        if (value < 10) {
+            out.append('0');
+        }
+        return out.append(value);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.itpark.sb.render;
+
+import ru.itpark.sb.model.Money;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Форматирование денежных сумм с двумя знаками после запятой, как
+ * {@code NumberFormat.getNumberInstance(locale)}, но без изменяемого
+ * состояния: экземпляр на локаль создаётся один раз и используется всеми
+ * потоками. Цифры дописываются прямо в {@link StringBuilder}.
+ */
+public final class MoneyFormat {
+    private static final ConcurrentHashMap<Locale, MoneyFormat> CACHE = new ConcurrentHashMap<>();
+
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+    private final char minusSign;
+    private final int groupingSize;
+    private final long groupDivisor;
+
+    private MoneyFormat(Locale locale) {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance(locale);
+        DecimalFormatSymbols symbols = numberFormat instanceof DecimalFormat decimalFormat
+                ? decimalFormat.getDecimalFormatSymbols()
+                : DecimalFormatSymbols.getInstance(locale);
+        this.groupingSeparator = symbols.getGroupingSeparator();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.minusSign = symbols.getMinusSign();
+        this.groupingSize = numberFormat instanceof DecimalFormat decimalFormat && decimalFormat.isGroupingUsed()
+                ? decimalFormat.getGroupingSize() : 0;
+        long divisor = 1;
+        for (int i = 0; i < groupingSize; i++) {
+            divisor *= 10;
+        }
+        this.groupDivisor = divisor;
+    }
+
+    public static MoneyFormat forLocale(Locale locale) {
+        return CACHE.computeIfAbsent(locale, MoneyFormat::new);
+    }
+
+    public String format(BigDecimal amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder out, BigDecimal amount) {
+        BigInteger unscaled = amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue();
+        if (unscaled.signum() < 0) {
+            out.append(minusSign);
+            unscaled = unscaled.negate();
+        }
+        if (unscaled.bitLength() < Long.SIZE - 1) {
+            return appendKopecks(out, unscaled.longValue());
+        }
+
+        String digits = unscaled.toString();
+        int integerLength = digits.length() - 2;
+        for (int i = 0; i < integerLength; i++) {
+            if (i > 0 && groupingSize > 0 && (integerLength - i) % groupingSize == 0) {
+                out.append(groupingSeparator);
+            }
+            out.append(digits.charAt(i));
+        }
+        return out.append(decimalSeparator).append(digits, integerLength, digits.length());
+    }
+
+    public String format(Money amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder out, Money amount) {
+        long kopecks = amount.kopecks();
+        if (kopecks < 0) {
+            out.append(minusSign);
+            return appendKopecks(out, Math.negateExact(kopecks));
+        }
+        return appendKopecks(out, kopecks);
+    }
+
+    private StringBuilder appendKopecks(StringBuilder out, long kopecks) {
+        appendInteger(out, kopecks / 100);
+        return appendFraction(out, (int) (kopecks % 100));
+    }
+
+    private void appendInteger(StringBuilder out, long value) {
+        if (groupingSize == 0 || value < groupDivisor) {
+            out.append(value);
+            return;
+        }
+        appendInteger(out, value / groupDivisor);
+        out.append(groupingSeparator);
+        long group = value % groupDivisor;
+        for (long bound = groupDivisor / 10; bound > 1 && group < bound; bound /= 10) {
+            out.append('0');
+        }
+        out.append(group);
+    }
+
+    private StringBuilder appendFraction(StringBuilder out, int cents) {
+        out.append(decimalSeparator);
+        if (cents < 10) {
+            out.append('0');
+        }
+        return out.append(cents);
+    }
+}
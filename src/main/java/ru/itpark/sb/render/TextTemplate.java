@@ -0,0 +1,77 @@
+package ru.itpark.sb.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шаблон сообщения с позиционными параметрами {@code {0}}, {@code {1}}, …,
+ * разобранный один раз при создании. Подстановка только дописывает готовые
+ * куски текста и значения в переданный {@link StringBuilder}.
+ */
+public final class TextTemplate {
+    private static final int ESTIMATED_VALUE_LENGTH = 16;
+
+    private final String[] literals;
+    private final int[] arguments;
+    private final int estimatedLength;
+
+    private TextTemplate(String[] literals, int[] arguments) {
+        this.literals = literals;
+        this.arguments = arguments;
+        int length = arguments.length * ESTIMATED_VALUE_LENGTH;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length;
+    }
+
+    public static TextTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+        int start = 0;
+        int open = pattern.indexOf('{');
+        while (open >= 0) {
+            int close = pattern.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Незакрытый параметр в шаблоне: " + pattern);
+            }
+            int index;
+            try {
+                index = Integer.parseInt(pattern.substring(open + 1, close));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректный параметр в шаблоне: " + pattern, e);
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Некорректный параметр в шаблоне: " + pattern);
+            }
+            literals.add(pattern.substring(start, open));
+            arguments.add(index);
+            start = close + 1;
+            open = pattern.indexOf('{', start);
+        }
+        literals.add(pattern.substring(start));
+        return new TextTemplate(literals.toArray(String[]::new),
+                arguments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public int estimatedLength() {
+        return estimatedLength;
+    }
+
+    public StringBuilder appendTo(StringBuilder out, ValueWriter writer, Object... values) {
+        for (int i = 0; i < arguments.length; i++) {
+            out.append(literals[i]);
+            writer.write(out, values[arguments[i]]);
+        }
+        return out.append(literals[arguments.length]);
+    }
+
+    public String render(ValueWriter writer, Object... values) {
+        return appendTo(new StringBuilder(estimatedLength), writer, values).toString();
+    }
+
+    @FunctionalInterface
+    public interface ValueWriter {
+        void write(StringBuilder out, Object value);
+    }
+}
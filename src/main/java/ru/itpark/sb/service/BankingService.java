@@ -1,41 +1,120 @@
 package ru.itpark.sb.service;
 
+import ru.itpark.sb.cache.CacheInvalidationBus;
+import ru.itpark.sb.cache.UserIdentity;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.config.AppConfig;
+import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.dao.HistoryCursor;
 import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
 import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.Money;
 import ru.itpark.sb.model.TransactionEntity;
 import ru.itpark.sb.model.User;
+import ru.itpark.sb.model.UserStatistics;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 public class BankingService {
+    private static final int STATEMENT_FETCH_SIZE = 1000;
+
     private final UserDao userDao;
     private final TransactionDao transactionDao;
+    private final UserStatisticsDao statisticsDao;
+    private final UserIdentityCache identityCache;
+    private final TransactionTemplate transactionTemplate;
+    private final RetryPolicy retryPolicy;
+    private final LockingMode transferLockingMode;
+    private final CacheInvalidationBus invalidationBus;
 
     public BankingService() {
-        this.userDao = new UserDao();
-        this.transactionDao = new TransactionDao();
+        this(new UserIdentityCache(AppConfig.getInt("cache.user-identity.max-size", 100000)));
+    }
+
+    private BankingService(UserIdentityCache identityCache) {
+        this(new UserDao(), new TransactionDao(), new UserStatisticsDao(), identityCache,
+                new TransactionTemplate(),
+                new RetryPolicy(AppConfig.getInt("banking.retry.max-attempts", 5),
+                        AppConfig.getLong("banking.retry.base-delay-ms", 5),
+                        AppConfig.getLong("banking.retry.max-delay-ms", 100), TimeUnit.MILLISECONDS),
+                LockingMode.valueOf(AppConfig.get("banking.transfer.locking-mode", "pessimistic").toUpperCase(Locale.ROOT)),
+                new CacheInvalidationBus(HibernateConfig.getSessionFactory(), identityCache));
     }
 
     public BankingService(UserDao userDao, TransactionDao transactionDao) {
+        this(userDao, transactionDao, new UserStatisticsDao(), new UserIdentityCache(10000), new TransactionTemplate());
+    }
+
+    public BankingService(UserDao userDao, TransactionDao transactionDao, UserStatisticsDao statisticsDao,
+                          UserIdentityCache identityCache, TransactionTemplate transactionTemplate) {
+        this(userDao, transactionDao, statisticsDao, identityCache, transactionTemplate,
+                new RetryPolicy(5, 5, 100, TimeUnit.MILLISECONDS), LockingMode.PESSIMISTIC);
+    }
+
+    public BankingService(UserDao userDao, TransactionDao transactionDao, UserStatisticsDao statisticsDao,
+                          UserIdentityCache identityCache, TransactionTemplate transactionTemplate,
+                          RetryPolicy retryPolicy, LockingMode transferLockingMode) {
+        this(userDao, transactionDao, statisticsDao, identityCache, transactionTemplate, retryPolicy,
+                transferLockingMode, CacheInvalidationBus.localOnly(identityCache));
+    }
+
+    public BankingService(UserDao userDao, TransactionDao transactionDao, UserStatisticsDao statisticsDao,
+                          UserIdentityCache identityCache, TransactionTemplate transactionTemplate,
+                          RetryPolicy retryPolicy, LockingMode transferLockingMode,
+                          CacheInvalidationBus invalidationBus) {
         this.userDao = userDao;
         this.transactionDao = transactionDao;
+        this.statisticsDao = statisticsDao;
+        this.identityCache = identityCache;
+        this.transactionTemplate = transactionTemplate;
+        this.retryPolicy = retryPolicy;
+        this.transferLockingMode = transferLockingMode;
+        this.invalidationBus = invalidationBus;
+    }
+
+    public long ensureUser(Long telegramId, String username) {
+        UserIdentity cached = identityCache.get(telegramId);
+        if (cached != null && (username == null || username.equals(cached.username()))) {
+            return cached.userId();
+        }
+        return registerOrGetUser(telegramId, username).getId();
     }
 
     public User registerOrGetUser(Long telegramId, String username) {
         Optional<User> existingUser = userDao.findByTelegramId(telegramId);
+        User user;
         if (existingUser.isPresent()) {
-            User user = existingUser.get();
+            user = existingUser.get();
             if (username != null && !username.equals(user.getUsername())) {
                 user.setUsername(username);
                 userDao.update(user);
+                invalidationBus.publish(user.getId(), telegramId);
             }
-            return user;
         } else {
             User newUser = new User(telegramId, username);
-            return userDao.save(newUser);
+            user = userDao.save(newUser);
+        }
+        if (user.getId() != null) {
+            identityCache.put(telegramId, new UserIdentity(user.getId(), user.getUsername()));
         }
+        return user;
+    }
+
+    public UserIdentityCache getIdentityCache() {
+        return identityCache;
+    }
+
+    public CacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
     }
 
     public User getUserByTelegramId(Long telegramId) {
@@ -43,39 +122,64 @@ public class BankingService {
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
     }
 
-    public BigDecimal getBalance(Long telegramId) {
+    public Money getBalance(Long telegramId) {
         User user = getUserByTelegramId(telegramId);
-        return user.getBalance();
+        return Money.of(user.getBalance());
     }
 
-    public TransactionEntity deposit(Long telegramId, BigDecimal amount, String description) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public OperationResult deposit(Long telegramId, Money amount, String description) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Сумма пополнения должна быть положительной");
         }
 
-        User user = getUserByTelegramId(telegramId);
-        user.setBalance(user.getBalance().add(amount));
-        userDao.update(user);
+        long userId = resolveUserId(telegramId);
+        return transactionTemplate.execute(() -> {
+            Optional<BigDecimal> balance = userDao.changeBalance(userId, amount.toBigDecimal());
+            if (balance.isEmpty()) {
+                identityCache.invalidate(telegramId);
+                throw new RuntimeException("Пользователь не найден");
+            }
+            invalidationBus.publish(userId, telegramId);
 
-        TransactionEntity transaction = new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT, amount, description);
-        return transactionDao.save(transaction);
+            TransactionEntity transaction = new TransactionEntity(userDao.getReference(userId), TransactionEntity.TransactionType.DEPOSIT, amount.toBigDecimal(), description);
+            transactionDao.save(transaction);
+            statisticsDao.record(List.of(transaction));
+            return OperationResult.of(transaction, Money.of(balance.get()));
+        });
     }
 
-    public TransactionEntity withdraw(Long telegramId, BigDecimal amount, String description) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public OperationResult withdraw(Long telegramId, Money amount, String description) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Сумма снятия должна быть положительной");
         }
 
-        User user = getUserByTelegramId(telegramId);
-        if (user.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Недостаточно средств на счете");
-        }
+        long userId = resolveUserId(telegramId);
+        return transactionTemplate.execute(() -> {
+            Optional<BigDecimal> balance = userDao.changeBalance(userId, amount.negate().toBigDecimal());
+            if (balance.isEmpty()) {
+                if (!userDao.exists(userId)) {
+                    identityCache.invalidate(telegramId);
+                    throw new RuntimeException("Пользователь не найден");
+                }
+                throw new IllegalArgumentException("Недостаточно средств на счете");
+            }
+            invalidationBus.publish(userId, telegramId);
 
-        user.setBalance(user.getBalance().subtract(amount));
-        userDao.update(user);
+            TransactionEntity transaction = new TransactionEntity(userDao.getReference(userId), TransactionEntity.TransactionType.WITHDRAWAL, amount.toBigDecimal(), description);
+            transactionDao.save(transaction);
+            statisticsDao.record(List.of(transaction));
+            return OperationResult.of(transaction, Money.of(balance.get()));
+        });
+    }
 
-        TransactionEntity transaction = new TransactionEntity(user, TransactionEntity.TransactionType.WITHDRAWAL, amount, description);
-        return transactionDao.save(transaction);
+    private long resolveUserId(Long telegramId) {
+        UserIdentity cached = identityCache.get(telegramId);
+        if (cached != null) {
+            return cached.userId();
+        }
+        User user = getUserByTelegramId(telegramId);
+        identityCache.put(telegramId, new UserIdentity(user.getId(), user.getUsername()));
+        return user.getId();
     }
 
     public List<TransactionEntity> getTransactionHistory(Long telegramId, int limit) {
@@ -83,13 +187,56 @@ public class BankingService {
         return transactionDao.findByUser(user, limit);
     }
 
+    /**
+     * Страница истории: без курсоров — самые новые операции, с {@code before} —
+     * более старые, с {@code after} — более новые относительно курсора.
+     */
+    public HistoryPage getHistoryPage(Long telegramId, HistoryCursor before, HistoryCursor after, int size) {
+        long userId = resolveUserId(telegramId);
+        if (after != null) {
+            List<TransactionEntity> page = transactionDao.findPageAfter(userId, after, size + 1);
+            boolean hasNewer = page.size() > size;
+            List<TransactionEntity> transactions = hasNewer ? page.subList(1, page.size()) : page;
+            return new HistoryPage(transactions, true, hasNewer);
+        }
+
+        List<TransactionEntity> page = transactionDao.findPageBefore(userId, before, size + 1);
+        boolean hasOlder = page.size() > size;
+        List<TransactionEntity> transactions = hasOlder ? page.subList(0, size) : page;
+        return new HistoryPage(transactions, hasOlder, before != null);
+    }
+
+    /**
+     * Выгружает всю историю пользователя в CSV. Записи идут из базы потоком,
+     * так что в памяти одновременно находится только текущая порция строк.
+     *
+     * @return количество выгруженных операций
+     */
+    public long exportStatement(Long telegramId, OutputStream outputStream) {
+        long userId = resolveUserId(telegramId);
+        StatementCsvWriter writer = new StatementCsvWriter(outputStream);
+        writer.writeHeader();
+        long rows = transactionDao.streamByUser(userId, STATEMENT_FETCH_SIZE, writer::write);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка при записи выписки: " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
     public List<TransactionEntity> getAllTransactionHistory(Long telegramId) {
         User user = getUserByTelegramId(telegramId);
         return transactionDao.findAllByUser(user);
     }
 
-    public TransactionEntity transfer(Long fromTelegramId, Long toTelegramId, BigDecimal amount, String description) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public OperationResult transfer(Long fromTelegramId, Long toTelegramId, Money amount, String description) {
+        return transfer(fromTelegramId, toTelegramId, amount, description, transferLockingMode);
+    }
+
+    public OperationResult transfer(Long fromTelegramId, Long toTelegramId, Money amount, String description,
+                                    LockingMode lockingMode) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Сумма перевода должна быть положительной");
         }
 
@@ -97,101 +244,101 @@ public class BankingService {
             throw new IllegalArgumentException("Нельзя переводить средства самому себе");
         }
 
-        User fromUser = getUserByTelegramId(fromTelegramId);
-        User toUser = getUserByTelegramId(toTelegramId);
+        List<Long> telegramIds = List.of(fromTelegramId, toTelegramId);
+        if (lockingMode == LockingMode.OPTIMISTIC) {
+            return retryPolicy.execute(() -> transactionTemplate.execute(() ->
+                    applyTransfer(userDao.findByTelegramIds(telegramIds), fromTelegramId, toTelegramId, amount, description)));
+        }
+        return transactionTemplate.execute(() ->
+                applyTransfer(userDao.findByTelegramIdsForUpdate(telegramIds), fromTelegramId, toTelegramId, amount, description));
+    }
+
+    private OperationResult applyTransfer(List<User> users, Long fromTelegramId, Long toTelegramId,
+                                          Money amount, String description) {
+        User fromUser = findLocked(users, fromTelegramId);
+        User toUser = findLocked(users, toTelegramId);
 
-        if (fromUser.getBalance().compareTo(amount) < 0) {
+        Money fromBalance = Money.of(fromUser.getBalance());
+        if (fromBalance.isLessThan(amount)) {
             throw new IllegalArgumentException("Недостаточно средств на счете для перевода");
         }
 
-        fromUser.setBalance(fromUser.getBalance().subtract(amount));
-        toUser.setBalance(toUser.getBalance().add(amount));
-
-        userDao.update(fromUser);
-        userDao.update(toUser);
+        Money newFromBalance = fromBalance.minus(amount);
+        fromUser.setBalance(newFromBalance.toBigDecimal());
+        toUser.setBalance(Money.of(toUser.getBalance()).plus(amount).toBigDecimal());
 
-        TransactionEntity outboundTransaction = new TransactionEntity(fromUser, TransactionEntity.TransactionType.TRANSFER_OUT, amount, description);
+        BigDecimal ledgerAmount = amount.toBigDecimal();
+        TransactionEntity outboundTransaction = new TransactionEntity(fromUser, TransactionEntity.TransactionType.TRANSFER_OUT, ledgerAmount, description);
         outboundTransaction.setRecipientId(toTelegramId);
-        transactionDao.save(outboundTransaction);
 
-        TransactionEntity inboundTransaction = new TransactionEntity(toUser, TransactionEntity.TransactionType.TRANSFER_IN, amount, description != null ? description + " (от пользователя)" : "Перевод от пользователя");
+        TransactionEntity inboundTransaction = new TransactionEntity(toUser, TransactionEntity.TransactionType.TRANSFER_IN, ledgerAmount, description != null ? description + " (от пользователя)" : "Перевод от пользователя");
         inboundTransaction.setRecipientId(fromTelegramId);
-        transactionDao.save(inboundTransaction);
+        List<TransactionEntity> ledger = List.of(outboundTransaction, inboundTransaction);
+        transactionDao.saveAll(ledger);
+        statisticsDao.record(ledger);
+        invalidationBus.publish(fromUser.getId(), fromTelegramId);
+        invalidationBus.publish(toUser.getId(), toTelegramId);
 
-        return outboundTransaction;
+        return OperationResult.transfer(outboundTransaction, inboundTransaction, newFromBalance, toUser.getUsername());
     }
 
-    public TransactionStatistics getStatistics(Long telegramId) {
-        User user = getUserByTelegramId(telegramId);
-        List<TransactionEntity> allTransactions = transactionDao.findAllByUser(user);
-
-        BigDecimal totalDeposits = BigDecimal.ZERO;
-        BigDecimal totalWithdrawals = BigDecimal.ZERO;
-        BigDecimal totalTransfersOut = BigDecimal.ZERO;
-        BigDecimal totalTransfersIn = BigDecimal.ZERO;
-        int depositCount = 0;
-        int withdrawalCount = 0;
-        int transferOutCount = 0;
-        int transferInCount = 0;
-
-        for (TransactionEntity transaction : allTransactions) {
-            switch (transaction.getType()) {
-                case DEPOSIT:
-                    totalDeposits = totalDeposits.add(transaction.getAmount());
-                    depositCount++;
-                    break;
-                case WITHDRAWAL:
-                    totalWithdrawals = totalWithdrawals.add(transaction.getAmount());
-                    withdrawalCount++;
-                    break;
-                case TRANSFER_OUT:
-                    totalTransfersOut = totalTransfersOut.add(transaction.getAmount());
-                    transferOutCount++;
-                    break;
-                case TRANSFER_IN:
-                    totalTransfersIn = totalTransfersIn.add(transaction.getAmount());
-                    transferInCount++;
-                    break;
+    private User findLocked(List<User> lockedUsers, Long telegramId) {
+        for (User user : lockedUsers) {
+            if (user.getTelegramId().equals(telegramId)) {
+                return user;
             }
         }
+        throw new RuntimeException("Пользователь не найден");
+    }
+
+    public TransactionStatistics getStatistics(Long telegramId) {
+        long userId = resolveUserId(telegramId);
+        UserStatistics statistics = statisticsDao.findByUserId(userId).orElseGet(() -> new UserStatistics(userId));
+
+        int depositCount = Math.toIntExact(statistics.getDepositCount());
+        int withdrawalCount = Math.toIntExact(statistics.getWithdrawalCount());
+        int transferOutCount = Math.toIntExact(statistics.getTransferOutCount());
+        int transferInCount = Math.toIntExact(statistics.getTransferInCount());
 
-        BigDecimal avgDeposit = depositCount > 0 ? totalDeposits.divide(BigDecimal.valueOf(depositCount), 2, java.math.RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        BigDecimal avgWithdrawal = withdrawalCount > 0 ? totalWithdrawals.divide(BigDecimal.valueOf(withdrawalCount), 2, java.math.RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        Money depositTotal = Money.of(statistics.getDepositTotal());
+        Money withdrawalTotal = Money.of(statistics.getWithdrawalTotal());
+        Money avgDeposit = depositCount > 0 ? depositTotal.dividedBy(depositCount) : Money.ZERO;
+        Money avgWithdrawal = withdrawalCount > 0 ? withdrawalTotal.dividedBy(withdrawalCount) : Money.ZERO;
 
         return new TransactionStatistics(
-            totalDeposits,
-            totalWithdrawals,
-            totalTransfersOut,
-            totalTransfersIn,
+            depositTotal,
+            withdrawalTotal,
+            Money.of(statistics.getTransferOutTotal()),
+            Money.of(statistics.getTransferInTotal()),
             depositCount,
             withdrawalCount,
             transferOutCount,
             transferInCount,
-            allTransactions.size(),
+            depositCount + withdrawalCount + transferOutCount + transferInCount,
             avgDeposit,
             avgWithdrawal
         );
     }
 
     public static class TransactionStatistics {
-        private final BigDecimal totalDeposits;
-        private final BigDecimal totalWithdrawals;
-        private final BigDecimal totalTransfersOut;
-        private final BigDecimal totalTransfersIn;
+        private final Money totalDeposits;
+        private final Money totalWithdrawals;
+        private final Money totalTransfersOut;
+        private final Money totalTransfersIn;
         private final int depositCount;
         private final int withdrawalCount;
         private final int transferOutCount;
         private final int transferInCount;
         private final int totalTransactions;
-        private final BigDecimal avgDeposit;
-        private final BigDecimal avgWithdrawal;
+        private final Money avgDeposit;
+        private final Money avgWithdrawal;
 
-        public TransactionStatistics(BigDecimal totalDeposits, BigDecimal totalWithdrawals,
-                                   BigDecimal totalTransfersOut, BigDecimal totalTransfersIn,
+        public TransactionStatistics(Money totalDeposits, Money totalWithdrawals,
+                                   Money totalTransfersOut, Money totalTransfersIn,
                                    int depositCount, int withdrawalCount,
                                    int transferOutCount, int transferInCount,
                                    int totalTransactions,
-                                   BigDecimal avgDeposit, BigDecimal avgWithdrawal) {
+                                   Money avgDeposit, Money avgWithdrawal) {
             this.totalDeposits = totalDeposits;
             this.totalWithdrawals = totalWithdrawals;
             this.totalTransfersOut = totalTransfersOut;
@@ -205,17 +352,17 @@ public class BankingService {
             this.avgWithdrawal = avgWithdrawal;
         }
 
-        public BigDecimal getTotalDeposits() { return totalDeposits; }
-        public BigDecimal getTotalWithdrawals() { return totalWithdrawals; }
-        public BigDecimal getTotalTransfersOut() { return totalTransfersOut; }
-        public BigDecimal getTotalTransfersIn() { return totalTransfersIn; }
+        public Money getTotalDeposits() { return totalDeposits; }
+        public Money getTotalWithdrawals() { return totalWithdrawals; }
+        public Money getTotalTransfersOut() { return totalTransfersOut; }
+        public Money getTotalTransfersIn() { return totalTransfersIn; }
         public int getDepositCount() { return depositCount; }
         public int getWithdrawalCount() { return withdrawalCount; }
         public int getTransferOutCount() { return transferOutCount; }
         public int getTransferInCount() { return transferInCount; }
         public int getTotalTransactions() { return totalTransactions; }
-        public BigDecimal getAvgDeposit() { return avgDeposit; }
-        public BigDecimal getAvgWithdrawal() { return avgWithdrawal; }
+        public Money getAvgDeposit() { return avgDeposit; }
+        public Money getAvgWithdrawal() { return avgWithdrawal; }
     }
 }
 
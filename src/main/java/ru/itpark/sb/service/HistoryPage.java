@@ -0,0 +1,24 @@
+package ru.itpark.sb.service;
+
+import ru.itpark.sb.dao.HistoryCursor;
+import ru.itpark.sb.model.TransactionEntity;
+
+import java.util.List;
+
+/**
+ * Страница истории операций, от новых к старым.
+ */
+public record HistoryPage(List<TransactionEntity> transactions, boolean hasOlder, boolean hasNewer) {
+
+    public boolean isEmpty() {
+        return transactions.isEmpty();
+    }
+
+    public HistoryCursor olderCursor() {
+        return HistoryCursor.of(transactions.get(transactions.size() - 1));
+    }
+
+    public HistoryCursor newerCursor() {
+        return HistoryCursor.of(transactions.get(0));
+    }
+}
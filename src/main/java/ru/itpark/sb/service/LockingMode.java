@@ -0,0 +1,17 @@
+package ru.itpark.sb.service;
+
+/**
+ * Способ защиты перевода от одновременных изменений тех же счетов.
+ */
+public enum LockingMode {
+    /**
+     * Строки счетов блокируются {@code SELECT ... FOR UPDATE} в порядке id;
+     * конкурирующие переводы ждут друг друга.
+     */
+    PESSIMISTIC,
+    /**
+     * Счета читаются без блокировок, конфликт обнаруживается по версии при
+     * записи, и перевод повторяется по {@link RetryPolicy}.
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,27 @@
+package ru.itpark.sb.service;
+
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.TransactionEntity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Итог операции со счётом: запись журнала инициатора, его баланс после
+ * операции, имя второй стороны перевода и идентификаторы всех записей
+ * журнала, созданных операцией. Этого достаточно для ответа пользователю
+ * без повторных запросов к базе.
+ */
+public record OperationResult(TransactionEntity transaction, Money balance,
+                              String counterpartyUsername, List<Long> ledgerIds) {
+
+    static OperationResult of(TransactionEntity transaction, Money balance) {
+        return new OperationResult(transaction, balance, null, Collections.singletonList(transaction.getId()));
+    }
+
+    static OperationResult transfer(TransactionEntity outbound, TransactionEntity inbound,
+                                    Money balance, String counterpartyUsername) {
+        return new OperationResult(outbound, balance, counterpartyUsername, Arrays.asList(outbound.getId(), inbound.getId()));
+    }
+}
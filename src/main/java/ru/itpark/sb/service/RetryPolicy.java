@@ -0,0 +1,88 @@
+package ru.itpark.sb.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Повтор операции при конфликте версий. Между попытками выдерживается
+ * случайная пауза от нуля до экспоненциально растущего предела (full jitter),
+ * чтобы столкнувшиеся операции не повторялись синхронно.
+ */
+public class RetryPolicy {
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final Sleeper sleeper;
+
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit) {
+        this(maxAttempts, baseDelay, maxDelay, unit, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit, Sleeper sleeper) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Количество попыток должно быть положительным");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = unit.toNanos(baseDelay);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.sleeper = sleeper;
+    }
+
+    public <T> T execute(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Счет одновременно изменяется другой операцией, попробуйте ещё раз", e);
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    long backoffLimitNanos(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long limit = baseDelayNanos << shift;
+        return limit < 0 || limit > maxDelayNanos ? maxDelayNanos : limit;
+    }
+
+    static boolean isConflict(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof OptimisticLockException || current instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void pause(int attempt) {
+        long limit = backoffLimitNanos(attempt);
+        if (limit <= 0) {
+            return;
+        }
+        try {
+            sleeper.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Повтор операции прерван", e);
+        }
+    }
+}
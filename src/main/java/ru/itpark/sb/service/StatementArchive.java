@@ -0,0 +1,149 @@
+package ru.itpark.sb.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Упаковывает CSV-выписку в zip-архивы, каждый не больше заданного размера,
+ * чтобы они проходили лимит Bot API на документы. Файл делится только по
+ * границам строк CSV (переводы строк внутри кавычек строку не завершают),
+ * и каждая часть начинается со строки заголовка.
+ */
+public final class StatementArchive {
+    /**
+     * Запас на данные, которые ещё лежат в буфере упаковщика, и на оглавление архива.
+     */
+    private static final long RESERVE_BYTES = 1024 * 1024;
+
+    private StatementArchive() {
+    }
+
+    /**
+     * @param entryName  имя CSV внутри архивов без расширения; к частям после
+     *                   первой добавляется номер
+     * @param maxParts   сколько частей допустимо; если выписка не укладывается,
+     *                   части удаляются и возвращается пустой список
+     * @return архивы по порядку; пустой список, если выписка не уложилась
+     *         в {@code maxParts} частей или в ней нет ни одной операции
+     */
+    public static List<Path> pack(Path csv, String entryName, long maxPartBytes, int maxParts) throws IOException {
+        if (maxPartBytes <= RESERVE_BYTES) {
+            throw new IllegalArgumentException("Размер части должен быть больше " + RESERVE_BYTES + " байт");
+        }
+        List<Path> parts = new ArrayList<>();
+        boolean complete = false;
+        Part part = null;
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String header = readRecord(reader);
+            String record;
+            while ((record = readRecord(reader)) != null) {
+                if (part != null && part.size() >= maxPartBytes - RESERVE_BYTES) {
+                    part.close();
+                    part = null;
+                }
+                if (part == null) {
+                    if (parts.size() == maxParts) {
+                        return List.of();
+                    }
+                    Path file = Files.createTempFile("statement-", ".zip");
+                    parts.add(file);
+                    part = new Part(file, parts.size() == 1 ? entryName : entryName + "-" + parts.size());
+                    part.write(header);
+                }
+                part.write(record);
+            }
+            complete = true;
+            return parts;
+        } finally {
+            if (part != null) {
+                part.close();
+            }
+            if (!complete) {
+                for (Path file : parts) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает одну строку CSV вместе с завершающим переводом строки.
+     */
+    private static String readRecord(Reader reader) throws IOException {
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            record.append((char) c);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                return record.toString();
+            }
+        }
+        return record.isEmpty() ? null : record.toString();
+    }
+
+    private static final class Part {
+        private final CountingOutputStream counter;
+        private final ZipOutputStream zip;
+        private final Writer writer;
+
+        private Part(Path file, String entryName) throws IOException {
+            this.counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            this.zip = new ZipOutputStream(counter, StandardCharsets.UTF_8);
+            this.zip.putNextEntry(new ZipEntry(entryName + ".csv"));
+            this.writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        }
+
+        private void write(String record) throws IOException {
+            writer.write(record);
+        }
+
+        /**
+         * Сжатые байты, уже записанные в файл; отстаёт от записанного на
+         * содержимое буферов, что покрывает {@link #RESERVE_BYTES}.
+         */
+        private long size() {
+            return counter.count;
+        }
+
+        private void close() throws IOException {
+            writer.flush();
+            zip.closeEntry();
+            zip.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.itpark.sb.service;
+
+import ru.itpark.sb.model.TransactionEntity;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Пишет выписку в CSV построчно. Разделитель — точка с запятой, в начале файла
+ * BOM, чтобы Excel с русской локалью открывал файл без настройки импорта.
+ */
+public class StatementCsvWriter implements Flushable {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final char SEPARATOR = ';';
+
+    private final Writer writer;
+
+    public StatementCsvWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public void writeHeader() {
+        try {
+            writer.write('\uFEFF');
+            writer.write("id;Дата;Тип;Сумма;Описание;Получатель\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка при записи выписки: " + e.getMessage(), e);
+        }
+    }
+
+    public void write(TransactionEntity transaction) {
+        try {
+            writer.write(Long.toString(transaction.getId()));
+            writer.write(SEPARATOR);
+            writer.write(transaction.getCreatedAt().format(DATE_FORMATTER));
+            writer.write(SEPARATOR);
+            writer.write(transaction.getType().name());
+            writer.write(SEPARATOR);
+            writer.write(transaction.getAmount().toPlainString());
+            writer.write(SEPARATOR);
+            writeText(transaction.getDescription());
+            writer.write(SEPARATOR);
+            if (transaction.getRecipientId() != null) {
+                writer.write(Long.toString(transaction.getRecipientId()));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка при записи выписки: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeText(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == SEPARATOR || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
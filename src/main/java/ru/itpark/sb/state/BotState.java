@@ -0,0 +1,9 @@
+package ru.itpark.sb.state;
+
+public enum BotState {
+    IDLE,
+    WAITING_DEPOSIT_AMOUNT,
+    WAITING_WITHDRAWAL_AMOUNT,
+    WAITING_TRANSFER_RECIPIENT,
+    WAITING_TRANSFER_AMOUNT
+}
@@ -0,0 +1,5 @@
+package ru.itpark.sb.state;
+
+public record ChatSession(BotState state, Long pendingRecipientId) {
+    public static final ChatSession IDLE = new ChatSession(BotState.IDLE, null);
+}
@@ -0,0 +1,398 @@
+package ru.itpark.sb.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.itpark.sb.jfr.StateTransitionEvent;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Хранилище состояния диалогов по chatId. Хранит только чаты, находящиеся
+ * посреди сценария: переход в {@link BotState#IDLE} удаляет запись.
+ *
+ * <p>Данные разбиты на сегменты с собственной блокировкой; внутри сегмента —
+ * открытая адресация по примитивным массивам (ключ, состояние, получатель,
+ * время последнего обращения в секундах), без объектов на запись. Записи,
+ * к которым не обращались дольше TTL, удаляются; при достижении лимита
+ * вытесняется самая давняя запись сегмента.
+ */
+public class ChatSessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(ChatSessionStore.class);
+
+    private static final long NO_RECIPIENT = Long.MIN_VALUE;
+    private static final int MIN_TABLE_SIZE = 16;
+    private static final int ENTRY_BYTES = Long.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES;
+    private static final BotState[] STATES = BotState.values();
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int maxSize;
+    private final long ttlSeconds;
+    private final LongSupplier clockMillis;
+    private final long epochMillis;
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    public ChatSessionStore(int maxSize, long ttl, TimeUnit ttlUnit) {
+        this(maxSize, ttl, ttlUnit, 16, System::currentTimeMillis);
+    }
+
+    public ChatSessionStore(int maxSize, long ttl, TimeUnit ttlUnit, int segmentCount, LongSupplier clockMillis) {
+        if (maxSize <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("Размер и TTL хранилища сессий должны быть положительными");
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(segmentCount, maxSize)));
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        int perSegment = Math.max(1, maxSize / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.maxSize = perSegment * count;
+        this.ttlSeconds = Math.max(1, ttlUnit.toSeconds(ttl));
+        this.clockMillis = clockMillis;
+        this.epochMillis = clockMillis.getAsLong();
+    }
+
+    public synchronized void startEviction(long period, TimeUnit unit) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("session-eviction").factory());
+        sweeper.scheduleAtFixedRate(() -> {
+            try {
+                int evicted = evictExpired();
+                if (evicted > 0) {
+                    logger.debug("Удалено устаревших сессий: {}, осталось: {}", evicted, size());
+                }
+            } catch (Exception e) {
+                logger.error("Ошибка при очистке сессий", e);
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopEviction() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    public ChatSession get(long chatId) {
+        Segment segment = segmentFor(chatId);
+        int now = nowSeconds();
+        synchronized (segment) {
+            int index = segment.indexOf(chatId);
+            if (index < 0) {
+                return ChatSession.IDLE;
+            }
+            if (isExpired(segment.touched[index], now)) {
+                segment.removeAt(index);
+                expiredEvictions.increment();
+                return ChatSession.IDLE;
+            }
+            segment.touched[index] = now;
+            long recipient = segment.recipients[index];
+            return new ChatSession(STATES[segment.states[index] - 1], recipient == NO_RECIPIENT ? null : recipient);
+        }
+    }
+
+    public void put(long chatId, BotState state) {
+        put(chatId, state, null);
+    }
+
+    public void put(long chatId, BotState state, Long pendingRecipientId) {
+        if (state == BotState.IDLE && pendingRecipientId == null) {
+            clear(chatId);
+            return;
+        }
+        Segment segment = segmentFor(chatId);
+        int now = nowSeconds();
+        byte previous;
+        synchronized (segment) {
+            int index = segment.indexOf(chatId);
+            if (index < 0) {
+                if (segment.size >= segment.limit) {
+                    makeRoom(segment, now);
+                }
+                index = segment.insert(chatId);
+            }
+            previous = segment.states[index];
+            segment.states[index] = (byte) (state.ordinal() + 1);
+            segment.recipients[index] = pendingRecipientId == null ? NO_RECIPIENT : pendingRecipientId;
+            segment.touched[index] = now;
+        }
+        recordTransition(chatId, previous, state);
+    }
+
+    public void clear(long chatId) {
+        Segment segment = segmentFor(chatId);
+        byte previous = 0;
+        synchronized (segment) {
+            int index = segment.indexOf(chatId);
+            if (index >= 0) {
+                previous = segment.states[index];
+                segment.removeAt(index);
+                segment.shrinkIfSparse();
+            }
+        }
+        recordTransition(chatId, previous, BotState.IDLE);
+    }
+
+    /**
+     * Удаляет сессии чатов, подходящих под фильтр, и передаёт каждую
+     * в {@code visitor}; просроченные записи пропускаются. Visitor вызывается
+     * под блокировкой сегмента и не должен делать ничего долгого. Используется
+     * при передаче чатов другому узлу кластера.
+     */
+    public int drain(LongPredicate chatFilter, SessionVisitor visitor) {
+        int now = nowSeconds();
+        int drained = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                long[] matched = new long[segment.size];
+                int count = 0;
+                for (int i = 0; i < segment.keys.length; i++) {
+                    if (segment.states[i] != 0 && chatFilter.test(segment.keys[i])) {
+                        matched[count++] = segment.keys[i];
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    int index = segment.indexOf(matched[i]);
+                    if (!isExpired(segment.touched[index], now)) {
+                        long recipient = segment.recipients[index];
+                        visitor.visit(matched[i], new ChatSession(STATES[segment.states[index] - 1],
+                                recipient == NO_RECIPIENT ? null : recipient));
+                        drained++;
+                    }
+                    segment.removeAt(index);
+                }
+                if (count > 0) {
+                    segment.shrinkIfSparse();
+                }
+            }
+        }
+        return drained;
+    }
+
+    public int evictExpired() {
+        int now = nowSeconds();
+        int evicted = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                evicted += evictExpired(segment, now);
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getExpiredEvictions() {
+        return expiredEvictions.sum();
+    }
+
+    public long getCapacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    public long estimatedMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += (long) segment.keys.length * ENTRY_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private void makeRoom(Segment segment, int now) {
+        if (evictExpired(segment, now) > 0) {
+            return;
+        }
+        int oldest = -1;
+        for (int i = 0; i < segment.keys.length; i++) {
+            if (segment.states[i] != 0 && (oldest < 0 || segment.touched[i] < segment.touched[oldest])) {
+                oldest = i;
+            }
+        }
+        if (oldest >= 0) {
+            segment.removeAt(oldest);
+            capacityEvictions.increment();
+        }
+    }
+
+    private int evictExpired(Segment segment, int now) {
+        int evicted = 0;
+        int i = 0;
+        while (i < segment.keys.length) {
+            if (segment.states[i] != 0 && isExpired(segment.touched[i], now)) {
+                segment.removeAt(i);
+                evicted++;
+            } else {
+                i++;
+            }
+        }
+        if (evicted > 0) {
+            segment.shrinkIfSparse();
+        }
+        expiredEvictions.add(evicted);
+        return evicted;
+    }
+
+    private static void recordTransition(long chatId, byte previous, BotState state) {
+        BotState from = previous == 0 ? BotState.IDLE : STATES[previous - 1];
+        if (from == state) {
+            return;
+        }
+        StateTransitionEvent event = new StateTransitionEvent();
+        if (event.shouldCommit()) {
+            event.chatId = chatId;
+            event.from = from.name();
+            event.to = state.name();
+            event.commit();
+        }
+    }
+
+    private boolean isExpired(int touched, int now) {
+        return now - touched >= ttlSeconds;
+    }
+
+    private int nowSeconds() {
+        return (int) ((clockMillis.getAsLong() - epochMillis) / 1000);
+    }
+
+    private Segment segmentFor(long chatId) {
+        return segments[(int) (mix(chatId) >>> 32) & segmentMask];
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    @FunctionalInterface
+    public interface SessionVisitor {
+        void visit(long chatId, ChatSession session);
+    }
+
+    private static final class Segment {
+        private final int limit;
+        private long[] keys;
+        private byte[] states;
+        private long[] recipients;
+        private int[] touched;
+        private int size;
+
+        private Segment(int limit) {
+            this.limit = limit;
+            allocate(MIN_TABLE_SIZE);
+        }
+
+        private void allocate(int tableSize) {
+            keys = new long[tableSize];
+            states = new byte[tableSize];
+            recipients = new long[tableSize];
+            touched = new int[tableSize];
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (states[index] != 0) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long key) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (states[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            size++;
+            return index;
+        }
+
+        private void removeAt(int index) {
+            int mask = keys.length - 1;
+            int gap = index;
+            int i = index;
+            while (true) {
+                i = (i + 1) & mask;
+                if (states[i] == 0) {
+                    break;
+                }
+                int home = (int) mix(keys[i]) & mask;
+                boolean stays = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+                if (!stays) {
+                    keys[gap] = keys[i];
+                    states[gap] = states[i];
+                    recipients[gap] = recipients[i];
+                    touched[gap] = touched[i];
+                    gap = i;
+                }
+            }
+            states[gap] = 0;
+            size--;
+        }
+
+        private void shrinkIfSparse() {
+            int tableSize = keys.length;
+            while (tableSize > MIN_TABLE_SIZE && size * 8 < tableSize) {
+                tableSize /= 2;
+            }
+            if (tableSize != keys.length) {
+                resize(tableSize);
+            }
+        }
+
+        private void resize(int tableSize) {
+            long[] oldKeys = keys;
+            byte[] oldStates = states;
+            long[] oldRecipients = recipients;
+            int[] oldTouched = touched;
+            allocate(tableSize);
+            int mask = tableSize - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStates[i] != 0) {
+                    int index = (int) mix(oldKeys[i]) & mask;
+                    while (states[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    states[index] = oldStates[i];
+                    recipients[index] = oldRecipients[i];
+                    touched[index] = oldTouched[i];
+                }
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itpark.sb.model.Money;
 import ru.itpark.sb.service.BankingService;
 
 import java.lang.reflect.Method;
@@ -31,20 +32,20 @@ class BankingBotTest {
         Method parseAmountMethod = BankingBot.class.getDeclaredMethod("parseAmount", String.class);
         parseAmountMethod.setAccessible(true);
 
-        BigDecimal result1 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1000");
-        assertEquals(0, new BigDecimal("1000.00").compareTo(result1));
+        Money result1 = (Money) parseAmountMethod.invoke(bankingBot, "1000");
+        assertEquals(0, new BigDecimal("1000.00").compareTo(result1.toBigDecimal()));
 
-        BigDecimal result2 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1000.50");
-        assertEquals(0, new BigDecimal("1000.50").compareTo(result2));
+        Money result2 = (Money) parseAmountMethod.invoke(bankingBot, "1000.50");
+        assertEquals(0, new BigDecimal("1000.50").compareTo(result2.toBigDecimal()));
 
-        BigDecimal result3 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1000,50");
-        assertEquals(0, new BigDecimal("1000.50").compareTo(result3));
+        Money result3 = (Money) parseAmountMethod.invoke(bankingBot, "1000,50");
+        assertEquals(0, new BigDecimal("1000.50").compareTo(result3.toBigDecimal()));
 
-        BigDecimal result4 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1 000.50");
-        assertEquals(0, new BigDecimal("1000.50").compareTo(result4));
+        Money result4 = (Money) parseAmountMethod.invoke(bankingBot, "1 000.50");
+        assertEquals(0, new BigDecimal("1000.50").compareTo(result4.toBigDecimal()));
 
-        BigDecimal result5 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "  500.99  ");
-        assertEquals(0, new BigDecimal("500.99").compareTo(result5));
+        Money result5 = (Money) parseAmountMethod.invoke(bankingBot, "  500.99  ");
+        assertEquals(0, new BigDecimal("500.99").compareTo(result5.toBigDecimal()));
     }
 
     @Test
@@ -88,11 +89,11 @@ class BankingBotTest {
         Method parseAmountMethod = BankingBot.class.getDeclaredMethod("parseAmount", String.class);
         parseAmountMethod.setAccessible(true);
 
-        BigDecimal result1 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1000.999");
-        assertEquals(0, new BigDecimal("1001.00").compareTo(result1));
+        Money result1 = (Money) parseAmountMethod.invoke(bankingBot, "1000.999");
+        assertEquals(0, new BigDecimal("1001.00").compareTo(result1.toBigDecimal()));
 
-        BigDecimal result2 = (BigDecimal) parseAmountMethod.invoke(bankingBot, "1000.994");
-        assertEquals(0, new BigDecimal("1000.99").compareTo(result2));
+        Money result2 = (Money) parseAmountMethod.invoke(bankingBot, "1000.994");
+        assertEquals(0, new BigDecimal("1000.99").compareTo(result2.toBigDecimal()));
     }
 
     @Test
@@ -0,0 +1,45 @@
+package ru.itpark.sb.bot;
+
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.dao.HistoryCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryNavigationTest {
+
+    @Test
+    void testOlder_RoundTripsCursor() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000), 987_654_321L);
+
+        HistoryNavigation navigation = HistoryNavigation.parse(HistoryNavigation.older(cursor));
+
+        assertTrue(navigation.older());
+        assertEquals(cursor, navigation.cursor());
+    }
+
+    @Test
+    void testNewer_RoundTripsCursor() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000), 1L);
+
+        HistoryNavigation navigation = HistoryNavigation.parse(HistoryNavigation.newer(cursor));
+
+        assertFalse(navigation.older());
+        assertEquals(cursor, navigation.cursor());
+    }
+
+    @Test
+    void testCallbackData_FitsTelegramLimit() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_000), Long.MAX_VALUE);
+
+        assertTrue(HistoryNavigation.older(cursor).getBytes(StandardCharsets.UTF_8).length <= 64);
+    }
+
+    @Test
+    void testParse_RejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> HistoryNavigation.parse("x:o:1.1"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryNavigation.parse("h:o:123"));
+    }
+}
@@ -0,0 +1,132 @@
+package ru.itpark.sb.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateDispatcherTest {
+
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Update update(int id) {
+        Update update = new Update();
+        update.setUpdateId(id);
+        return update;
+    }
+
+    @Test
+    void testDispatch_PreservesOrderWithinChat() throws Exception {
+        Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(200);
+        dispatcher = new UpdateDispatcher(update -> {
+            long chatId = update.getUpdateId() % 2;
+            processed.computeIfAbsent(chatId, id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(update.getUpdateId());
+            done.countDown();
+        }, 4, 200);
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(dispatcher.dispatch(i % 2, update(i)));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (List<Integer> ids : processed.values()) {
+            List<Integer> sorted = new ArrayList<>(ids);
+            Collections.sort(sorted);
+            assertEquals(sorted, ids);
+        }
+    }
+
+    @Test
+    void testDispatch_ProcessesDifferentChatsConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        dispatcher = new UpdateDispatcher(update -> {
+            bothStarted.countDown();
+            try {
+                bothStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        }, 2, 4);
+
+        dispatcher.dispatch(1L, update(1));
+        dispatcher.dispatch(2L, update(2));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    void testDispatch_RespectsConcurrencyCap() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(50);
+        dispatcher = new UpdateDispatcher(update -> {
+            int current = active.incrementAndGet();
+            maxActive.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            done.countDown();
+        }, 3, 4);
+
+        for (int i = 0; i < 50; i++) {
+            dispatcher.dispatch(i, update(i));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxActive.get() <= 3);
+    }
+
+    @Test
+    void testDispatch_RejectsWhenChatQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        dispatcher = new UpdateDispatcher(update -> {
+            firstStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 2);
+
+        assertTrue(dispatcher.dispatch(7L, update(1)));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.dispatch(7L, update(2)));
+        assertTrue(dispatcher.dispatch(7L, update(3)));
+        assertFalse(dispatcher.dispatch(7L, update(4)));
+        assertTrue(dispatcher.dispatch(8L, update(5)));
+
+        release.countDown();
+    }
+
+    @Test
+    void testConstructor_InvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new UpdateDispatcher(update -> { }, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new UpdateDispatcher(update -> { }, 1, 0));
+    }
+}
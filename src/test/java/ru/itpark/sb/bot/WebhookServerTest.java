@@ -0,0 +1,109 @@
+package ru.itpark.sb.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.WebhookBot;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookServerTest {
+
+    private final List<Update> received = new CopyOnWriteArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private WebhookServer server;
+    private String endpoint;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WebhookBot bot = new WebhookBot() {
+            @Override
+            public BotApiMethod<?> onWebhookUpdateReceived(Update update) {
+                received.add(update);
+                return null;
+            }
+
+            @Override
+            public void setWebhook(SetWebhook setWebhook) {
+            }
+
+            @Override
+            public String getBotPath() {
+                return "banking";
+            }
+
+            @Override
+            public String getBotUsername() {
+                return "test_bot";
+            }
+
+            @Override
+            public String getBotToken() {
+                return "test_token";
+            }
+        };
+        server = new WebhookServer(bot, "127.0.0.1", 0, "secret");
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getPort() + "/callback/banking";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String secret, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(endpoint))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            request.header("X-Telegram-Bot-Api-Secret-Token", secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testUpdate_Accepted() throws Exception {
+        String body = "{\"update_id\":42,\"message\":{\"message_id\":1,\"date\":0,"
+                + "\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"/start\"}}";
+
+        HttpResponse<String> first = post("secret", body);
+        HttpResponse<String> second = post("secret", body);
+
+        assertEquals(200, first.statusCode());
+        assertEquals(200, second.statusCode());
+        assertEquals(2, received.size());
+        assertEquals(42, received.get(0).getUpdateId());
+        assertEquals(100L, received.get(0).getMessage().getChatId());
+        assertEquals("/start", received.get(0).getMessage().getText());
+    }
+
+    @Test
+    void testUpdate_WrongSecretRejected() throws Exception {
+        assertEquals(401, post("wrong", "{\"update_id\":1}").statusCode());
+        assertEquals(401, post(null, "{\"update_id\":1}").statusCode());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testUpdate_MalformedBodyRejected() throws Exception {
+        assertEquals(400, post("secret", "not json").statusCode());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testGet_NotAllowed() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(endpoint)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+}
@@ -0,0 +1,98 @@
+package ru.itpark.sb.cache;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.dao.CacheInvalidationDao;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.model.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationBusTest {
+
+    private static SessionFactory sessionFactory;
+
+    private UserDao userDao;
+    private UserIdentityCache identityCache;
+    private CacheInvalidationBus bus;
+    private Long userId;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        sessionFactory = H2SessionFactory.create("cache_invalidation");
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory.inTransaction(session -> session.createMutationQuery("DELETE FROM User").executeUpdate());
+        userDao = new UserDao(sessionFactory);
+        identityCache = new UserIdentityCache(100);
+        bus = new CacheInvalidationBus(sessionFactory, identityCache);
+
+        userId = userDao.save(new User(3001L, "alice")).getId();
+        userDao.findByTelegramId(3001L).orElseThrow();
+        identityCache.put(3001L, new UserIdentity(userId, "alice"));
+    }
+
+    @Test
+    void testHandle_MessageFromOtherNodeEvictsUser() {
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, userId));
+
+        bus.handle("othernode:" + userId + ":3001");
+
+        assertFalse(sessionFactory.getCache().containsEntity(User.class, userId));
+        assertNull(identityCache.get(3001L));
+        assertEquals(1, bus.getReceived());
+    }
+
+    @Test
+    void testHandle_OwnMessageIgnored() {
+        bus.handle(bus.getNodeId() + ":" + userId + ":3001");
+
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, userId));
+        assertNotNull(identityCache.get(3001L));
+        assertEquals(0, bus.getReceived());
+    }
+
+    @Test
+    void testHandle_MalformedMessageIgnored() {
+        bus.handle("garbage");
+        bus.handle("node:abc:3001");
+        bus.handle(":1:2");
+
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, userId));
+        assertEquals(0, bus.getReceived());
+    }
+
+    @Test
+    void testPublish_DisabledWithoutNotifySupport() {
+        assertFalse(bus.isEnabled());
+        bus.publish(userId, 3001L);
+        bus.start();
+        bus.stop();
+
+        assertEquals(0, bus.getPublished());
+    }
+
+    @Test
+    void testPublish_SendsCompactMessage() {
+        CacheInvalidationDao invalidationDao = mock(CacheInvalidationDao.class);
+        when(invalidationDao.isSupported()).thenReturn(true);
+        CacheInvalidationBus enabledBus = new CacheInvalidationBus(sessionFactory, invalidationDao, identityCache);
+
+        enabledBus.publish(7L, 3001L);
+
+        verify(invalidationDao).publish(CacheInvalidationBus.CHANNEL, enabledBus.getNodeId() + ":7:3001");
+        assertEquals(1, enabledBus.getPublished());
+    }
+}
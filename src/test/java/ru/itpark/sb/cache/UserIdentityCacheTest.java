@@ -0,0 +1,57 @@
+package ru.itpark.sb.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserIdentityCacheTest {
+
+    @Test
+    void testGet_CountsHitsAndMisses() {
+        UserIdentityCache cache = new UserIdentityCache(10, 1);
+
+        assertNull(cache.get(1L));
+        cache.put(1L, new UserIdentity(10L, "alice"));
+        assertEquals(new UserIdentity(10L, "alice"), cache.get(1L));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        UserIdentityCache cache = new UserIdentityCache(3, 1);
+        cache.put(1L, new UserIdentity(1L, "a"));
+        cache.put(2L, new UserIdentity(2L, "b"));
+        cache.put(3L, new UserIdentity(3L, "c"));
+
+        cache.get(1L);
+        cache.put(4L, new UserIdentity(4L, "d"));
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(4L));
+    }
+
+    @Test
+    void testInvalidate() {
+        UserIdentityCache cache = new UserIdentityCache(100);
+        cache.put(1L, new UserIdentity(1L, "a"));
+        cache.put(2L, new UserIdentity(2L, "b"));
+
+        cache.invalidate(1L);
+        assertNull(cache.get(1L));
+        assertNotNull(cache.get(2L));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testConstructor_InvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new UserIdentityCache(0));
+    }
+}
@@ -0,0 +1,100 @@
+package ru.itpark.sb.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.itpark.sb.state.ChatSessionStore;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterAuthTest {
+
+    private static final String SECRET = "cluster-test-secret";
+    private static final String UPDATE = "{\"update_id\":1,\"message\":{\"message_id\":1,\"date\":0,"
+            + "\"chat\":{\"id\":1,\"type\":\"private\"},\"from\":{\"id\":1,\"is_bot\":false,\"first_name\":\"x\"},"
+            + "\"text\":\"/start\"}}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Update> handled = new CopyOnWriteArrayList<>();
+    private ClusterIngress ingress;
+    private ClusterWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ingress = new ClusterIngress("127.0.0.1", 0, "test", null, SECRET, 64, 10_000);
+        ingress.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            worker.stop();
+        }
+        ingress.stop();
+    }
+
+    @Test
+    void testIngress_RejectsHeartbeatWithoutSecret() throws Exception {
+        String node = "{\"nodeId\":\"evil\",\"url\":\"http://127.0.0.1:1\"}";
+        String ingressUrl = "http://127.0.0.1:" + ingress.getPort();
+
+        assertEquals(401, post(ingressUrl + ClusterHttp.HEARTBEAT_PATH, node, null));
+        assertEquals(401, post(ingressUrl + ClusterHttp.HEARTBEAT_PATH, node, "wrong"));
+        assertEquals(401, post(ingressUrl + ClusterHttp.LEAVE_PATH, node, null));
+        assertTrue(ingress.getView().members().isEmpty());
+
+        assertEquals(200, post(ingressUrl + ClusterHttp.HEARTBEAT_PATH, node, SECRET));
+        assertEquals(List.of("evil"), List.copyOf(ingress.getView().members().keySet()));
+    }
+
+    @Test
+    void testWorker_RejectsUpdateWithoutSecret() throws Exception {
+        worker = startWorker();
+
+        assertEquals(401, post(worker.getUrl() + ClusterHttp.UPDATES_PATH, UPDATE, null));
+        assertEquals(401, post(worker.getUrl() + ClusterHttp.SESSIONS_PATH, "[]", "wrong"));
+        assertTrue(handled.isEmpty());
+
+        assertEquals(200, post(worker.getUrl() + ClusterHttp.UPDATES_PATH, UPDATE, SECRET));
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    void testWorker_RequiresSecretAndReachableAddress() {
+        assertThrows(IllegalArgumentException.class, () -> new ClusterWorker("a", "http://127.0.0.1:1", "",
+                "127.0.0.1", 0, null, handled::add, sessions(), 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterWorker("a", "http://127.0.0.1:1", SECRET,
+                "0.0.0.0", 0, null, handled::add, sessions(), 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterIngress("127.0.0.1", 0, "test", null,
+                null, 64, 10_000));
+    }
+
+    private ClusterWorker startWorker() throws Exception {
+        ClusterWorker started = new ClusterWorker("a", "http://127.0.0.1:" + ingress.getPort(), SECRET,
+                "127.0.0.1", 0, null, handled::add, sessions(), 1_000);
+        started.start();
+        return started;
+    }
+
+    private int post(String url, String body, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            request.header(ClusterHttp.SECRET_HEADER, secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static ChatSessionStore sessions() {
+        return new ChatSessionStore(100, 1, TimeUnit.MINUTES);
+    }
+}
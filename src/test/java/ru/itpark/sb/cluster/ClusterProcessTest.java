@@ -0,0 +1,150 @@
+package ru.itpark.sb.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import ru.itpark.sb.state.BotState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поднимает ingress в тестовом процессе и рабочие узлы в отдельных JVM,
+ * проверяет маршрутизацию по кольцу и перенос сессий при изменении состава.
+ */
+@Timeout(value = 90, unit = TimeUnit.SECONDS)
+class ClusterProcessTest {
+
+    private static final long HEARTBEAT_MILLIS = 200;
+    private static final long NODE_TIMEOUT_MILLIS = 3_000;
+    private static final int CHATS = 40;
+    private static final String SECRET = "cluster-test-secret";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final BlockingQueue<Handled> handled = new LinkedBlockingQueue<>();
+    private final List<Process> processes = new ArrayList<>();
+    private ClusterIngress ingress;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ingress = new ClusterIngress("127.0.0.1", 0, "test", null, SECRET, 64, NODE_TIMEOUT_MILLIS);
+        ingress.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processes.forEach(Process::destroyForcibly);
+        ingress.stop();
+    }
+
+    @Test
+    void testCluster_RoutesByRingAndMovesSessions() throws Exception {
+        Process a = startWorker("a");
+        Process b = startWorker("b");
+        awaitMembers(view -> view.members().size() == 2);
+
+        for (long chatId = 1; chatId <= CHATS; chatId++) {
+            Handled result = send(chatId, "start");
+            assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, result.state());
+        }
+
+        Process c = startWorker("c");
+        awaitMembers(view -> view.members().containsKey("c"));
+        Thread.sleep(HEARTBEAT_MILLIS * 5);
+        int movedToC = 0;
+        for (long chatId = 1; chatId <= CHATS; chatId++) {
+            Handled result = send(chatId, "check");
+            assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, result.state(), "чат " + chatId);
+            if (result.node().equals("c")) {
+                movedToC++;
+            }
+        }
+        assertTrue(movedToC > 0);
+
+        c.outputWriter().write("stop\n");
+        c.outputWriter().flush();
+        assertTrue(c.waitFor(10, TimeUnit.SECONDS));
+        assertFalse(ingress.getView().members().containsKey("c"));
+        for (long chatId = 1; chatId <= CHATS; chatId++) {
+            Handled result = send(chatId, "check");
+            assertNotEquals("c", result.node());
+            assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, result.state(), "чат " + chatId);
+        }
+
+        b.destroyForcibly().waitFor();
+        awaitMembers(view -> view.members().keySet().equals(Set.of("a")));
+        for (long chatId = 1; chatId <= CHATS; chatId++) {
+            assertEquals("a", send(chatId, "check").node());
+        }
+        assertTrue(a.isAlive());
+    }
+
+    private Handled send(long chatId, String text) throws Exception {
+        String body = "{\"update_id\":" + chatId + ",\"message\":{\"message_id\":1,\"date\":0,"
+                + "\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"},\"text\":\"" + text + "\"}}";
+        String expectedOwner = ingress.getView().ring().nodeFor(chatId);
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + ingress.getPort() + "/callback/test"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(200, response.statusCode(), "чат " + chatId);
+
+        Handled result = handled.poll(5, TimeUnit.SECONDS);
+        assertNotNull(result, "чат " + chatId + " не обработан");
+        assertEquals(chatId, result.chatId());
+        assertEquals(expectedOwner, result.node(), "владелец чата " + chatId);
+        return result;
+    }
+
+    private void awaitMembers(Predicate<ClusterView> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.test(ingress.getView())) {
+            assertTrue(System.currentTimeMillis() < deadline, "состав " + ingress.getView().members());
+            Thread.sleep(50);
+        }
+    }
+
+    private Process startWorker(String nodeId) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                EchoWorkerMain.class.getName(), nodeId,
+                "http://127.0.0.1:" + ingress.getPort(), SECRET, String.valueOf(HEARTBEAT_MILLIS))
+                .redirectErrorStream(true)
+                .start();
+        processes.add(process);
+        Thread.ofPlatform().daemon().name("worker-output-" + nodeId).start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("HANDLED ")) {
+                        String[] parts = line.split(" ");
+                        handled.add(new Handled(parts[1], Long.parseLong(parts[2]), BotState.valueOf(parts[3])));
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        return process;
+    }
+
+    private record Handled(String node, long chatId, BotState state) {
+    }
+}
@@ -0,0 +1,66 @@
+package ru.itpark.sb.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int CHATS = 100_000;
+
+    @Test
+    void testNodeFor_EmptyRingReturnsNull() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 128);
+
+        assertTrue(ring.isEmpty());
+        assertNull(ring.nodeFor(42L));
+    }
+
+    @Test
+    void testNodeFor_SameNodesGiveSameOwner() {
+        ConsistentHashRing first = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing second = new ConsistentHashRing(List.of("c", "a", "b"), 128);
+
+        for (long chatId = -1_000; chatId < 1_000; chatId++) {
+            assertEquals(first.nodeFor(chatId), second.nodeFor(chatId));
+        }
+    }
+
+    @Test
+    void testNodeFor_ChatsSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < CHATS; i++) {
+            counts.merge(ring.nodeFor(random.nextLong(1_000_000_000_000L)), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > CHATS / 4 * 0.8 && count < CHATS / 4 * 1.2, counts.toString());
+        }
+    }
+
+    @Test
+    void testNodeFor_AddingNodeMovesOnlyItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d", "e"), 128);
+        int moved = 0;
+
+        for (long chatId = 0; chatId < CHATS; chatId++) {
+            String owner = after.nodeFor(chatId);
+            if (!owner.equals(before.nodeFor(chatId))) {
+                assertEquals("e", owner);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > CHATS / 5 * 0.8 && moved < CHATS / 5 * 1.2, "moved " + moved);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.itpark.sb.cluster;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.itpark.sb.state.BotState;
+import ru.itpark.sb.state.ChatSessionStore;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рабочий узел для {@link ClusterProcessTest}, запускаемый отдельным процессом.
+ * На "start" переводит чат в ожидание суммы; на каждое обновление печатает
+ * {@code HANDLED <node> <chat> <state>}. Штатно останавливается по строке
+ * "stop" во входном потоке.
+ *
+ * <p>Аргументы: nodeId, URL ingress, секрет кластера, интервал heartbeat в миллисекундах.
+ */
+public class EchoWorkerMain {
+
+    public static void main(String[] args) throws Exception {
+        String nodeId = args[0];
+        ChatSessionStore sessions = new ChatSessionStore(1_000, 30, TimeUnit.MINUTES);
+        ClusterWorker worker = new ClusterWorker(nodeId, args[1], args[2], "127.0.0.1", 0, null,
+                update -> handle(nodeId, sessions, update), sessions, Long.parseLong(args[3]));
+        worker.start();
+
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = stdin.readLine()) != null) {
+            if ("stop".equals(line)) {
+                worker.stop();
+                break;
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void handle(String nodeId, ChatSessionStore sessions, Update update) {
+        long chatId = update.getMessage().getChatId();
+        if ("start".equals(update.getMessage().getText())) {
+            sessions.put(chatId, BotState.WAITING_DEPOSIT_AMOUNT);
+        }
+        System.out.println("HANDLED " + nodeId + " " + chatId + " " + sessions.get(chatId).state());
+        System.out.flush();
+    }
+}
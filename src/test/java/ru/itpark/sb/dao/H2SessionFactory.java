@@ -0,0 +1,31 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import ru.itpark.sb.config.HibernateConfig;
+
+import java.util.Properties;
+
+public final class H2SessionFactory {
+
+    private H2SessionFactory() {
+    }
+
+    public static SessionFactory create(String databaseName) {
+        return create(databaseName, new Properties());
+    }
+
+    public static SessionFactory create(String databaseName, Properties overrides) {
+        Properties properties = new Properties();
+        properties.setProperty("db.driver", "org.h2.Driver");
+        properties.setProperty("db.url", "jdbc:h2:mem:" + databaseName
+                + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        properties.setProperty("db.username", "sa");
+        properties.setProperty("db.password", "");
+        properties.setProperty("db.pool.min-idle", "1");
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.setProperty("hibernate.format_sql", "false");
+        properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        properties.putAll(overrides);
+        return HibernateConfig.buildSessionFactory(properties);
+    }
+}
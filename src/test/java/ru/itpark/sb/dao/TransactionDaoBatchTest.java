@@ -0,0 +1,70 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionDaoBatchTest {
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.jdbc.batch_size", "10");
+        sessionFactory = H2SessionFactory.create("transaction_dao_batch", properties);
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void testSaveAll_PersistsEveryRowWithDistinctIds() {
+        User user = new UserDao(sessionFactory).save(new User(123456789L, "testuser"));
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 125; i++) {
+            transactions.add(new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT,
+                    BigDecimal.valueOf(i + 1), "Пакет " + i));
+        }
+
+        TransactionDao transactionDao = new TransactionDao(sessionFactory);
+        List<TransactionEntity> saved = transactionDao.saveAll(transactions);
+
+        Set<Long> ids = new HashSet<>();
+        for (TransactionEntity transaction : saved) {
+            assertNotNull(transaction.getId());
+            ids.add(transaction.getId());
+        }
+        assertEquals(125, ids.size());
+        assertEquals(125, transactionDao.findAllByUser(user).size());
+    }
+
+    @Test
+    void testSaveAll_InsideTemplateRollsBackTogether() {
+        User user = new UserDao(sessionFactory).save(new User(987654321L, "other"));
+        TransactionDao transactionDao = new TransactionDao(sessionFactory);
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(sessionFactory).execute(() -> {
+            transactionDao.saveAll(List.of(
+                    new TransactionEntity(user, TransactionEntity.TransactionType.TRANSFER_OUT, BigDecimal.TEN, null),
+                    new TransactionEntity(user, TransactionEntity.TransactionType.TRANSFER_IN, BigDecimal.TEN, null)));
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertTrue(transactionDao.findAllByUser(user).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionDaoPagingTest {
+
+    private static SessionFactory sessionFactory;
+    private static TransactionDao transactionDao;
+    private static User user;
+    private static List<Long> newestFirstIds;
+
+    @BeforeAll
+    static void seed() {
+        sessionFactory = H2SessionFactory.create("transaction_dao_paging");
+        transactionDao = new TransactionDao(sessionFactory);
+        user = new UserDao(sessionFactory).save(new User(123456789L, "testuser"));
+        User other = new UserDao(sessionFactory).save(new User(987654321L, "other"));
+
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<TransactionEntity> ledger = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            TransactionEntity transaction = new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT,
+                    BigDecimal.valueOf(i + 1), null);
+            // по три записи на одну метку времени, чтобы порядок решал id
+            transaction.setCreatedAt(base.plusMinutes(i / 3));
+            ledger.add(transaction);
+            ledger.add(new TransactionEntity(other, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.ONE, null));
+        }
+        transactionDao.saveAll(ledger);
+
+        newestFirstIds = ids(ledger.stream()
+                .filter(transaction -> transaction.getUser() == user)
+                .sorted((a, b) -> {
+                    int byTime = b.getCreatedAt().compareTo(a.getCreatedAt());
+                    return byTime != 0 ? byTime : Long.compare(b.getId(), a.getId());
+                })
+                .toList());
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    private static List<Long> ids(List<TransactionEntity> transactions) {
+        return transactions.stream().map(TransactionEntity::getId).toList();
+    }
+
+    @Test
+    void testFindPageBefore_WalksWholeHistoryWithoutGapsOrDuplicates() {
+        List<Long> walked = new ArrayList<>();
+        HistoryCursor cursor = null;
+        while (true) {
+            List<TransactionEntity> page = transactionDao.findPageBefore(user.getId(), cursor, 4);
+            if (page.isEmpty()) {
+                break;
+            }
+            walked.addAll(ids(page));
+            cursor = HistoryCursor.of(page.get(page.size() - 1));
+        }
+
+        assertEquals(newestFirstIds, walked);
+    }
+
+    @Test
+    void testFindPageAfter_ReturnsNearestNewerRowsNewestFirst() {
+        TransactionEntity anchor = transactionDao.findPageBefore(user.getId(), null, 11).get(10);
+
+        List<TransactionEntity> page = transactionDao.findPageAfter(user.getId(), HistoryCursor.of(anchor), 4);
+
+        assertEquals(newestFirstIds.subList(6, 10), ids(page));
+    }
+}
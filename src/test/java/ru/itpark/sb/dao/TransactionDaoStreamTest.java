@@ -0,0 +1,69 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionDaoStreamTest {
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        sessionFactory = H2SessionFactory.create("transaction_dao_stream");
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void testStreamByUser_DeliversRowsOldestFirst() {
+        User user = new UserDao(sessionFactory).save(new User(123456789L, "testuser"));
+        User other = new UserDao(sessionFactory).save(new User(987654321L, "other"));
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<TransactionEntity> ledger = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            TransactionEntity transaction = new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT,
+                    BigDecimal.valueOf(i + 1), null);
+            transaction.setCreatedAt(base.plusSeconds(2500 - i));
+            ledger.add(transaction);
+        }
+        ledger.add(new TransactionEntity(other, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.ONE, null));
+        TransactionDao transactionDao = new TransactionDao(sessionFactory);
+        transactionDao.saveAll(ledger);
+
+        List<BigDecimal> amounts = new ArrayList<>();
+        long count = transactionDao.streamByUser(user.getId(), 100, transaction -> amounts.add(transaction.getAmount()));
+
+        assertEquals(2500, count);
+        assertEquals(2500, amounts.size());
+        assertEquals(0, BigDecimal.valueOf(2500).compareTo(amounts.get(0)));
+        assertEquals(0, BigDecimal.ONE.compareTo(amounts.get(2499)));
+    }
+
+    @Test
+    void testStreamByUser_WrapsConsumerFailure() {
+        User user = new UserDao(sessionFactory).save(new User(555L, "failing"));
+        TransactionDao transactionDao = new TransactionDao(sessionFactory);
+        transactionDao.save(new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.TEN, null));
+
+        RuntimeException error = assertThrows(RuntimeException.class, () ->
+                transactionDao.streamByUser(user.getId(), 10, transaction -> {
+                    throw new IllegalStateException("диск заполнен");
+                }));
+
+        assertTrue(error.getMessage().startsWith("Ошибка при выгрузке транзакций"));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.service.BankingService;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    private static SessionFactory sessionFactory;
+
+    private UnitOfWork unitOfWork;
+    private UserDao userDao;
+    private BankingService bankingService;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.generate_statistics", "true");
+        sessionFactory = H2SessionFactory.create("unit_of_work", properties);
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM UserStatistics").executeUpdate();
+            session.createMutationQuery("DELETE FROM TransactionEntity").executeUpdate();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            User user = new User(1001L, "alice");
+            user.setBalance(new BigDecimal("100.00"));
+            session.persist(user);
+        });
+        unitOfWork = new UnitOfWork(sessionFactory);
+        userDao = new UserDao(sessionFactory);
+        bankingService = new BankingService(userDao, new TransactionDao(sessionFactory),
+                new UserStatisticsDao(sessionFactory), new UserIdentityCache(100), new TransactionTemplate(sessionFactory));
+        sessionFactory.getStatistics().clear();
+    }
+
+    @Test
+    void testRun_SharesOneSessionAndConnection() {
+        unitOfWork.run(() -> {
+            bankingService.ensureUser(1001L, "alice");
+            bankingService.deposit(1001L, Money.parse("50.00"), "Пополнение");
+            bankingService.getBalance(1001L);
+            bankingService.getStatistics(1001L);
+        });
+
+        Statistics statistics = sessionFactory.getStatistics();
+        assertEquals(1, statistics.getSessionOpenCount());
+        assertEquals(1, statistics.getConnectCount());
+        assertNull(SessionContext.current());
+    }
+
+    @Test
+    void testRun_ReadAfterWriteSeesNewBalance() {
+        Money[] balances = new Money[2];
+
+        unitOfWork.run(() -> {
+            balances[0] = bankingService.getBalance(1001L);
+            bankingService.deposit(1001L, Money.parse("50.00"), "Пополнение");
+            balances[1] = bankingService.getBalance(1001L);
+        });
+
+        assertEquals(Money.parse("100.00"), balances[0]);
+        assertEquals(Money.parse("150.00"), balances[1]);
+    }
+
+    @Test
+    void testRun_TransferDoesNotUseEntityLoadedEarlier() {
+        sessionFactory.inTransaction(session -> session.persist(new User(1002L, "bob")));
+
+        unitOfWork.run(() -> {
+            bankingService.getUserByTelegramId(1001L);
+            userDao.changeBalance(userDao.findByTelegramId(1001L).orElseThrow().getId(), new BigDecimal("-40.00"));
+            bankingService.transfer(1001L, 1002L, Money.parse("60.00"), null);
+        });
+
+        assertEquals(new BigDecimal("0.00"), userDao.findByTelegramId(1001L).orElseThrow().getBalance());
+        assertEquals(new BigDecimal("60.00"), userDao.findByTelegramId(1002L).orElseThrow().getBalance());
+    }
+
+    @Test
+    void testRun_FailedWriteKeepsSessionUsable() {
+        Money[] balance = new Money[1];
+
+        unitOfWork.run(() -> {
+            assertThrows(IllegalArgumentException.class,
+                    () -> bankingService.withdraw(1001L, Money.parse("500.00"), "Снятие"));
+            balance[0] = bankingService.getBalance(1001L);
+        });
+
+        assertEquals(Money.parse("100.00"), balance[0]);
+    }
+
+    @Test
+    void testRun_NestedCallJoinsOuterSession() {
+        unitOfWork.run(() -> unitOfWork.run(() -> bankingService.getBalance(1001L)));
+
+        assertEquals(1, sessionFactory.getStatistics().getSessionOpenCount());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.service.BankingService;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private static SessionFactory sessionFactory;
+
+    private UserDao userDao;
+    private BankingService bankingService;
+    private Long aliceId;
+    private Long bobId;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.generate_statistics", "true");
+        sessionFactory = H2SessionFactory.create("user_cache", properties);
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM UserStatistics").executeUpdate();
+            session.createMutationQuery("DELETE FROM TransactionEntity").executeUpdate();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+        });
+        sessionFactory.getCache().evictAllRegions();
+        userDao = new UserDao(sessionFactory);
+        bankingService = new BankingService(userDao, new TransactionDao(sessionFactory),
+                new UserStatisticsDao(sessionFactory), new UserIdentityCache(100), new TransactionTemplate(sessionFactory));
+        User alice = new User(2001L, "alice");
+        alice.setBalance(new BigDecimal("100.00"));
+        aliceId = userDao.save(alice).getId();
+        bobId = userDao.save(new User(2002L, "bob")).getId();
+        sessionFactory.getStatistics().clear();
+    }
+
+    @Test
+    void testFindByTelegramId_RepeatedReadServedFromCache() {
+        userDao.findByTelegramId(2001L).orElseThrow();
+        Statistics statistics = sessionFactory.getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        User user = userDao.findByTelegramId(2001L).orElseThrow();
+        User byId = userDao.findById(aliceId);
+
+        assertEquals("alice", user.getUsername());
+        assertEquals(aliceId, byId.getId());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    void testFindByTelegramId_UnknownUser() {
+        assertTrue(userDao.findByTelegramId(9999L).isEmpty());
+    }
+
+    @Test
+    void testChangeBalance_EvictsChangedUser() {
+        userDao.findByTelegramId(2001L).orElseThrow();
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, aliceId));
+
+        userDao.changeBalance(aliceId, new BigDecimal("-40.00"));
+
+        assertFalse(sessionFactory.getCache().containsEntity(User.class, aliceId));
+        assertEquals(new BigDecimal("60.00"), userDao.findByTelegramId(2001L).orElseThrow().getBalance());
+    }
+
+    @Test
+    void testChangeBalance_KeepsOtherUsersCached() {
+        userDao.findByTelegramId(2001L).orElseThrow();
+        userDao.findByTelegramId(2002L).orElseThrow();
+
+        userDao.changeBalance(aliceId, new BigDecimal("10.00"));
+
+        assertFalse(sessionFactory.getCache().containsEntity(User.class, aliceId));
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, bobId));
+    }
+
+    @Test
+    void testOperations_NextReadSeesNewBalance() {
+        assertEquals(Money.parse("100.00"), bankingService.getBalance(2001L));
+
+        bankingService.deposit(2001L, Money.parse("25.00"), "Пополнение");
+        assertEquals(Money.parse("125.00"), bankingService.getBalance(2001L));
+
+        bankingService.transfer(2001L, 2002L, Money.parse("5.00"), null);
+        assertEquals(Money.parse("120.00"), bankingService.getBalance(2001L));
+        assertEquals(Money.parse("5.00"), bankingService.getBalance(2002L));
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, bobId));
+    }
+
+    @Test
+    void testUpdate_RefreshesCachedUser() {
+        User user = userDao.findByTelegramId(2002L).orElseThrow();
+        user.setUsername("robert");
+
+        userDao.update(user);
+
+        assertEquals("robert", userDao.findByTelegramId(2002L).orElseThrow().getUsername());
+    }
+}
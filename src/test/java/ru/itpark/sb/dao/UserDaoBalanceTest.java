@@ -0,0 +1,82 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.User;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDaoBalanceTest {
+
+    private static SessionFactory sessionFactory;
+
+    private UserDao userDao;
+    private User user;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        sessionFactory = H2SessionFactory.create("user_dao_balance");
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory.inTransaction(session -> session.createMutationQuery("DELETE FROM User").executeUpdate());
+        userDao = new UserDao(sessionFactory);
+        user = new User(123456789L, "testuser");
+        user.setBalance(new BigDecimal("100.00"));
+        userDao.save(user);
+    }
+
+    @Test
+    void testChangeBalance_Deposit() {
+        Optional<BigDecimal> result = userDao.changeBalance(user.getId(), new BigDecimal("50.00"));
+
+        assertEquals(Optional.of(new BigDecimal("150.00")), result);
+        assertEquals(new BigDecimal("150.00"), userDao.findById(user.getId()).getBalance());
+    }
+
+    @Test
+    void testChangeBalance_WithdrawWholeBalance() {
+        Optional<BigDecimal> result = userDao.changeBalance(user.getId(), new BigDecimal("-100.00"));
+
+        assertEquals(Optional.of(new BigDecimal("0.00")), result);
+    }
+
+    @Test
+    void testChangeBalance_InsufficientFundsLeavesBalance() {
+        Optional<BigDecimal> result = userDao.changeBalance(user.getId(), new BigDecimal("-100.01"));
+
+        assertTrue(result.isEmpty());
+        assertEquals(new BigDecimal("100.00"), userDao.findById(user.getId()).getBalance());
+    }
+
+    @Test
+    void testChangeBalance_UnknownUser() {
+        assertTrue(userDao.changeBalance(user.getId() + 1, BigDecimal.ONE).isEmpty());
+        assertFalse(userDao.exists(user.getId() + 1));
+        assertTrue(userDao.exists(user.getId()));
+    }
+
+    @Test
+    void testChangeBalance_JoinsTemplateTransaction() {
+        TransactionTemplate template = new TransactionTemplate(sessionFactory);
+
+        assertThrows(IllegalStateException.class, () -> template.execute(() -> {
+            userDao.changeBalance(user.getId(), new BigDecimal("25.00"));
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertEquals(new BigDecimal("100.00"), userDao.findById(user.getId()).getBalance());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.itpark.sb.dao;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.TransactionEntity.TransactionType;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.model.UserStatistics;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStatisticsDaoTest {
+
+    private static SessionFactory sessionFactory;
+
+    private UserStatisticsDao statisticsDao;
+    private TransactionDao transactionDao;
+    private User user;
+
+    @BeforeAll
+    static void createSessionFactory() {
+        sessionFactory = H2SessionFactory.create("user_statistics_dao");
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM UserStatistics").executeUpdate();
+            session.createMutationQuery("DELETE FROM TransactionEntity").executeUpdate();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+        });
+        statisticsDao = new UserStatisticsDao(sessionFactory);
+        transactionDao = new TransactionDao(sessionFactory);
+        user = new UserDao(sessionFactory).save(new User(123456789L, "testuser"));
+    }
+
+    private TransactionEntity transaction(TransactionType type, String amount) {
+        return new TransactionEntity(user, type, new BigDecimal(amount), null);
+    }
+
+    @Test
+    void testRecord_CreatesRowOnFirstOperation() {
+        statisticsDao.record(List.of(transaction(TransactionType.DEPOSIT, "100.00")));
+
+        UserStatistics statistics = statisticsDao.findByUserId(user.getId()).orElseThrow();
+        assertEquals(1, statistics.getDepositCount());
+        assertEquals(new BigDecimal("100.00"), statistics.getDepositTotal());
+        assertEquals(0, statistics.getWithdrawalCount());
+    }
+
+    @Test
+    void testRecord_IncrementsExistingRow() {
+        statisticsDao.record(List.of(transaction(TransactionType.DEPOSIT, "100.00")));
+        statisticsDao.record(List.of(
+                transaction(TransactionType.DEPOSIT, "50.50"),
+                transaction(TransactionType.WITHDRAWAL, "20.00")));
+
+        UserStatistics statistics = statisticsDao.findByUserId(user.getId()).orElseThrow();
+        assertEquals(2, statistics.getDepositCount());
+        assertEquals(new BigDecimal("150.50"), statistics.getDepositTotal());
+        assertEquals(1, statistics.getWithdrawalCount());
+        assertEquals(new BigDecimal("20.00"), statistics.getWithdrawalTotal());
+    }
+
+    @Test
+    void testRebuild_MatchesLedger() {
+        transactionDao.saveAll(List.of(
+                transaction(TransactionType.DEPOSIT, "100.00"),
+                transaction(TransactionType.DEPOSIT, "200.00"),
+                transaction(TransactionType.TRANSFER_OUT, "30.00"),
+                transaction(TransactionType.TRANSFER_IN, "5.00")));
+        statisticsDao.record(List.of(transaction(TransactionType.WITHDRAWAL, "999.00")));
+
+        assertEquals(1, statisticsDao.rebuild(List.of(user.getId())));
+
+        UserStatistics statistics = statisticsDao.findByUserId(user.getId()).orElseThrow();
+        assertEquals(2, statistics.getDepositCount());
+        assertEquals(new BigDecimal("300.00"), statistics.getDepositTotal());
+        assertEquals(0, statistics.getWithdrawalCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(statistics.getWithdrawalTotal()));
+        assertEquals(1, statistics.getTransferOutCount());
+        assertEquals(1, statistics.getTransferInCount());
+    }
+}
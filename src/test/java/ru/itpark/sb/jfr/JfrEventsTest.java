@@ -0,0 +1,112 @@
+package ru.itpark.sb.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.state.BotState;
+import ru.itpark.sb.state.ChatSessionStore;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SessionFactory sessionFactory;
+    private Recording recording;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2SessionFactory.create("jfr_events");
+        recording = new Recording();
+        recording.enable(DaoCallEvent.class).withoutThreshold();
+        recording.enable(StateTransitionEvent.class);
+        recording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.close();
+        sessionFactory.close();
+    }
+
+    @Test
+    void testDaoCall_RecordsMethodAndRows() throws Exception {
+        UserDao userDao = new UserDao(sessionFactory);
+        userDao.save(new User(7001L, "jfr"));
+        userDao.findByTelegramId(7001L);
+        userDao.findByTelegramId(7002L);
+
+        List<RecordedEvent> events = events("ru.itpark.sb.DaoCall");
+
+        RecordedEvent save = find(events, "save");
+        assertEquals("UserDao", save.getString("dao"));
+        assertEquals(1, save.getLong("rows"));
+        assertTrue(save.getBoolean("success"));
+        List<Long> lookups = events.stream()
+                .filter(event -> "findByTelegramId".equals(event.getString("query")))
+                .map(event -> event.getLong("rows"))
+                .toList();
+        assertEquals(List.of(1L, 0L), lookups);
+    }
+
+    @Test
+    void testDaoCall_RecordsStatisticsDao() throws Exception {
+        new UserStatisticsDao(sessionFactory).findByUserId(1L);
+
+        RecordedEvent lookup = find(events("ru.itpark.sb.DaoCall"), "findByUserId");
+        assertEquals("UserStatisticsDao", lookup.getString("dao"));
+        assertEquals(0, lookup.getLong("rows"));
+    }
+
+    @Test
+    void testStateTransition_SkipsUnchangedState() throws Exception {
+        ChatSessionStore store = new ChatSessionStore(100, 60, TimeUnit.SECONDS, 4, System::currentTimeMillis);
+        store.put(42L, BotState.WAITING_TRANSFER_RECIPIENT);
+        store.put(42L, BotState.WAITING_TRANSFER_RECIPIENT);
+        store.put(42L, BotState.WAITING_TRANSFER_AMOUNT, 7L);
+        store.clear(42L);
+        store.clear(42L);
+
+        List<String> transitions = events("ru.itpark.sb.StateTransition").stream()
+                .filter(event -> event.getLong("chatId") == 42L)
+                .map(event -> event.getString("from") + "->" + event.getString("to"))
+                .toList();
+
+        assertEquals(List.of(
+                "IDLE->WAITING_TRANSFER_RECIPIENT",
+                "WAITING_TRANSFER_RECIPIENT->WAITING_TRANSFER_AMOUNT",
+                "WAITING_TRANSFER_AMOUNT->IDLE"), transitions);
+    }
+
+    private List<RecordedEvent> events(String name) throws Exception {
+        recording.stop();
+        Path file = tempDir.resolve("events.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .toList();
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String query) {
+        return events.stream()
+                .filter(event -> query.equals(event.getString("query")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Нет события " + query + " среди " + events));
+    }
+}
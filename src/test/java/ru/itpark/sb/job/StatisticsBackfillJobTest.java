@@ -0,0 +1,81 @@
+package ru.itpark.sb.job;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionPartitionDao;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.model.UserStatistics;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatisticsBackfillJobTest {
+
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2SessionFactory.create("statistics_backfill");
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void testRun_FillsStatisticsForEveryUser() {
+        UserDao userDao = new UserDao(sessionFactory);
+        List<User> users = new ArrayList<>();
+        List<TransactionEntity> ledger = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User user = userDao.save(new User(1000L + i, "user" + i));
+            users.add(user);
+            for (int j = 0; j <= i; j++) {
+                ledger.add(new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.TEN, null));
+            }
+        }
+        new TransactionDao(sessionFactory).saveAll(ledger);
+
+        int processed = new StatisticsBackfillJob(sessionFactory, 3).run();
+
+        assertEquals(7, processed);
+        UserStatisticsDao statisticsDao = new UserStatisticsDao(sessionFactory);
+        for (int i = 0; i < users.size(); i++) {
+            UserStatistics statistics = statisticsDao.findByUserId(users.get(i).getId()).orElseThrow();
+            assertEquals(i + 1, statistics.getDepositCount());
+            assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(i + 1)).compareTo(statistics.getDepositTotal()));
+        }
+    }
+
+    @Test
+    void testRun_EmptyDatabase() {
+        assertEquals(0, new StatisticsBackfillJob(sessionFactory, 100).run());
+    }
+
+    @Test
+    void testRun_RefusesWhenPartitionsAreArchived() {
+        User user = new UserDao(sessionFactory).save(new User(2000L, "archived"));
+        new TransactionDao(sessionFactory).saveAll(List.of(
+                new TransactionEntity(user, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.TEN, null)));
+        TransactionPartitionDao partitionDao = mock(TransactionPartitionDao.class);
+        when(partitionDao.findArchivedPartitions("archive")).thenReturn(List.of(YearMonth.of(2024, 1)));
+
+        StatisticsBackfillJob job = new StatisticsBackfillJob(sessionFactory, 100, partitionDao, "archive");
+
+        assertThrows(IllegalStateException.class, job::run);
+        assertTrue(new UserStatisticsDao(sessionFactory).findByUserId(user.getId()).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.itpark.sb.job;
+
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.dao.TransactionPartitionDao;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TransactionPartitionJobTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-10-17T12:00:00Z"), ZoneOffset.UTC);
+    private final TransactionPartitionDao partitionDao = mock(TransactionPartitionDao.class);
+
+    @Test
+    void testPartitionName_RoundTrip() {
+        YearMonth month = YearMonth.of(2026, 3);
+
+        assertEquals("transactions_p2026_03", TransactionPartitionDao.partitionName(month));
+        assertEquals(month, TransactionPartitionDao.monthOf("transactions_p2026_03"));
+        assertNull(TransactionPartitionDao.monthOf("transactions_default"));
+    }
+
+    @Test
+    void testRun_NotPartitionedDoesNothing() {
+        when(partitionDao.isSupported()).thenReturn(false);
+
+        TransactionPartitionJob.Result result = new TransactionPartitionJob(partitionDao, 3, 12, "archive", clock).run();
+
+        assertTrue(result.created().isEmpty());
+        assertTrue(result.archived().isEmpty());
+        verify(partitionDao, never()).findPartitions();
+    }
+
+    @Test
+    void testRun_CreatesMissingFuturePartitions() {
+        when(partitionDao.isSupported()).thenReturn(true);
+        when(partitionDao.findPartitions()).thenReturn(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 11)));
+
+        TransactionPartitionJob.Result result = new TransactionPartitionJob(partitionDao, 3, 12, "archive", clock).run();
+
+        assertEquals(List.of(YearMonth.of(2026, 12), YearMonth.of(2027, 1)), result.created());
+        verify(partitionDao).createPartition(YearMonth.of(2026, 12));
+        verify(partitionDao).createPartition(YearMonth.of(2027, 1));
+        verify(partitionDao, never()).archivePartition(any(), any());
+    }
+
+    @Test
+    void testRun_ArchivesPartitionsOlderThanRetention() {
+        when(partitionDao.isSupported()).thenReturn(true);
+        when(partitionDao.findPartitions()).thenReturn(List.of(
+                YearMonth.of(2025, 8), YearMonth.of(2025, 9), YearMonth.of(2025, 10),
+                YearMonth.of(2026, 10), YearMonth.of(2026, 11), YearMonth.of(2026, 12), YearMonth.of(2027, 1)));
+
+        TransactionPartitionJob.Result result = new TransactionPartitionJob(partitionDao, 3, 12, "archive", clock).run();
+
+        assertTrue(result.created().isEmpty());
+        assertEquals(List.of(YearMonth.of(2025, 8), YearMonth.of(2025, 9)), result.archived());
+        verify(partitionDao).archivePartition(YearMonth.of(2025, 8), "archive");
+        verify(partitionDao).archivePartition(YearMonth.of(2025, 9), "archive");
+        verify(partitionDao, never()).archivePartition(YearMonth.of(2025, 10), "archive");
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransactionPartitionJob(partitionDao, 0, 12, "archive", clock));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransactionPartitionJob(partitionDao, 3, 0, "archive", clock));
+    }
+}
@@ -0,0 +1,197 @@
+package ru.itpark.sb.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Локальная замена Telegram Bot API для нагрузочных прогонов. Обновления из
+ * {@link #enqueue(Update)} отдаются боту через {@code getUpdates}, а вызовы
+ * {@code sendMessage}, {@code editMessageText} и {@code sendDocument} передаются
+ * слушателю как {@link Reply}. Остальные методы отвечают {@code true}. Имена
+ * методов, как и в Bot API, не зависят от регистра.
+ *
+ * <p>Упрощения: каждое обновление выдаётся один раз без учёта {@code offset},
+ * а long polling держит запрос не дольше {@value #MAX_POLL_MILLIS} мс.
+ */
+public class FakeBotApiServer {
+    private static final Logger logger = LoggerFactory.getLogger(FakeBotApiServer.class);
+    public static final String PATH = "/bot";
+    private static final long MAX_POLL_MILLIS = 1_000;
+    private static final Pattern PART_NAME = Pattern.compile("name=\"([^\"]+)\"");
+
+    /**
+     * Сообщение бота в чат: текст или подпись документа и callback_data
+     * инлайн-кнопок по порядку.
+     */
+    public record Reply(long chatId, String method, int messageId, String text, List<String> buttons,
+                        long receivedNanos) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LinkedBlockingQueue<Update> updates = new LinkedBlockingQueue<>();
+    private final AtomicInteger nextUpdateId = new AtomicInteger();
+    private final AtomicInteger nextMessageId = new AtomicInteger();
+    private final CountDownLatch firstPoll = new CountDownLatch(1);
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile Consumer<Reply> listener = reply -> {
+    };
+
+    public FakeBotApiServer(String host, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fake-bot-api-", 0).factory());
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Заглушка Bot API доступна на {}", getBaseUrl());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Значение для {@code telegram.api.base-url} бота.
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH;
+    }
+
+    public void setListener(Consumer<Reply> listener) {
+        this.listener = listener;
+    }
+
+    public void enqueue(Update update) {
+        update.setUpdateId(nextUpdateId.incrementAndGet());
+        updates.add(update);
+    }
+
+    /**
+     * Ждёт первого {@code getUpdates}, то есть подключения бота.
+     */
+    public boolean awaitPolling(long timeout, TimeUnit unit) throws InterruptedException {
+        return firstPoll.await(timeout, unit);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String result = switch (method) {
+                case "getupdates" -> getUpdates(readJson(body));
+                case "sendmessage" -> reply("sendMessage", readJson(body));
+                case "editmessagetext" -> reply("editMessageText", readJson(body));
+                case "senddocument" -> reply("sendDocument", readMultipart(exchange, body));
+                default -> "true";
+            };
+            byte[] response = ("{\"ok\":true,\"result\":" + result + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка заглушки Bot API", e);
+            throw e;
+        }
+    }
+
+    private String getUpdates(JsonNode request) throws InterruptedException, IOException {
+        firstPoll.countDown();
+        int limit = request.path("limit").asInt(100);
+        long waitMillis = Math.min(TimeUnit.SECONDS.toMillis(request.path("timeout").asLong(0)), MAX_POLL_MILLIS);
+        List<Update> batch = new ArrayList<>();
+        Update first = updates.poll(waitMillis, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            batch.add(first);
+            updates.drainTo(batch, Math.max(limit, 1) - 1);
+        }
+        return objectMapper.writeValueAsString(batch);
+    }
+
+    private String reply(String method, JsonNode request) throws IOException {
+        long chatId = request.path("chat_id").asLong();
+        int messageId = "editMessageText".equals(method)
+                ? request.path("message_id").asInt()
+                : nextMessageId.incrementAndGet();
+        String text = request.has("caption") ? request.path("caption").asText() : request.path("text").asText();
+        List<String> buttons = new ArrayList<>();
+        for (JsonNode row : request.path("reply_markup").path("inline_keyboard")) {
+            for (JsonNode button : row) {
+                if (button.hasNonNull("callback_data")) {
+                    buttons.add(button.path("callback_data").asText());
+                }
+            }
+        }
+        listener.accept(new Reply(chatId, method, messageId, text, List.copyOf(buttons), System.nanoTime()));
+
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("message_id", messageId);
+        message.put("date", System.currentTimeMillis() / 1000);
+        message.putObject("chat").put("id", chatId).put("type", "private");
+        message.put("text", text);
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private JsonNode readJson(byte[] body) throws IOException {
+        return body.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(body);
+    }
+
+    /**
+     * Текстовые поля multipart/form-data; файлы пропускаются.
+     */
+    private JsonNode readMultipart(HttpExchange exchange, byte[] body) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length())
+                .split(";")[0].replace("\"", "");
+        String content = new String(body, StandardCharsets.ISO_8859_1);
+        ObjectNode fields = objectMapper.createObjectNode();
+        for (String part : content.split(Pattern.quote("--" + boundary))) {
+            int headersEnd = part.indexOf("\r\n\r\n");
+            if (headersEnd < 0) {
+                continue;
+            }
+            String headers = part.substring(0, headersEnd);
+            Matcher name = PART_NAME.matcher(headers);
+            if (headers.contains("filename=") || !name.find()) {
+                continue;
+            }
+            String value = part.substring(headersEnd + 4);
+            if (value.endsWith("\r\n")) {
+                value = value.substring(0, value.length() - 2);
+            }
+            fields.put(name.group(1), new String(value.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+        }
+        return fields;
+    }
+}
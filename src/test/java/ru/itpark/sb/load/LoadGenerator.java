@@ -0,0 +1,392 @@
+package ru.itpark.sb.load;
+
+import org.HdrHistogram.Histogram;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import ru.itpark.sb.bot.BankingBot;
+import ru.itpark.sb.config.AppConfig;
+import ru.itpark.sb.config.HibernateConfig;
+import ru.itpark.sb.load.FakeBotApiServer.Reply;
+import ru.itpark.sb.metrics.LatencyHistogram;
+import ru.itpark.sb.model.TransactionEntity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сквозной нагрузочный прогон бота через {@link FakeBotApiServer}. Каждый из
+ * {@code chats} чатов регистрируется через {@code /start} и затем {@code rounds}
+ * раз выполняет случайный сценарий: кнопки меню, пополнение, перевод случайному
+ * участнику прогона, история с листанием или выписка. Следующее обновление чата
+ * отправляется только после ответа на предыдущее; время от постановки
+ * обновления в очередь заглушки до ответа бота пишется в гистограмму шага.
+ *
+ * <p>В конце проверяется сохранение денег: сумма балансов участников равна
+ * начальной плюс успешные пополнения, а баланс каждого участника совпадает с
+ * суммой его операций в журнале.
+ *
+ * <p>Запуск: {@code mvn -Pload test-compile exec:exec}. Параметры задаются
+ * переменными окружения {@code LOAD_CHATS}, {@code LOAD_ROUNDS},
+ * {@code LOAD_THINK_MS}, {@code LOAD_PORT} и {@code LOAD_BOT}: {@code embedded}
+ * поднимает бота в этом же процессе на базе из {@code DB_URL}, {@code external}
+ * ждёт бот, запущенный с {@code TELEGRAM_API_BASE_URL=http://localhost:8081/bot}.
+ * Лимиты исходящих сообщений бота ({@code BOT_OUTBOUND_*}) входят в измеряемое время.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final String OLDER_HISTORY = "h:o:";
+    private static final String ERROR_PREFIX = "❌";
+    private static final List<TransactionType> CREDITS = List.of(TransactionType.DEPOSIT, TransactionType.TRANSFER_IN);
+
+    public record Options(int chats, int rounds, long thinkMillis, long firstTelegramId, long replyTimeoutMillis) {
+    }
+
+    /**
+     * Итог прогона; суммы в рублях.
+     */
+    public record Report(Map<String, Histogram> latency, long timeouts, BigDecimal deposited,
+                         BigDecimal expectedTotal, BigDecimal actualTotal, int ledgerMismatches, Duration elapsed) {
+
+        public boolean moneyConserved() {
+            return expectedTotal.compareTo(actualTotal) == 0 && ledgerMismatches == 0;
+        }
+
+        public void log() {
+            for (Map.Entry<String, Histogram> step : latency.entrySet()) {
+                Histogram histogram = step.getValue();
+                logger.info("{}: {} ответов, p50 {} мс, p99 {} мс, max {} мс", step.getKey(),
+                        histogram.getTotalCount(), millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue()));
+            }
+            logger.info("Прогон занял {} с, ответов не дождались: {}", elapsed.toMillis() / 1000.0, timeouts);
+            logger.info("Пополнено {}, ожидаемая сумма балансов {}, фактическая {}, расхождений с журналом: {}",
+                    deposited, expectedTotal, actualTotal, ledgerMismatches);
+            if (!moneyConserved()) {
+                logger.error("Нарушено сохранение денег");
+            }
+        }
+
+        private static String millis(long micros) {
+            return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+        }
+    }
+
+    private final FakeBotApiServer api;
+    private final SessionFactory sessionFactory;
+    private final Options options;
+    private final ConcurrentHashMap<Long, BlockingQueue<Reply>> replies = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, LatencyHistogram> latency = new ConcurrentSkipListMap<>();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder depositedKopecks = new LongAdder();
+    private final AtomicInteger nextMessageId = new AtomicInteger();
+
+    public LoadGenerator(FakeBotApiServer api, SessionFactory sessionFactory, Options options) {
+        if (options.chats() < 2) {
+            throw new IllegalArgumentException("Для переводов нужно хотя бы два чата");
+        }
+        this.api = api;
+        this.sessionFactory = sessionFactory;
+        this.options = options;
+    }
+
+    public Report run() throws InterruptedException {
+        for (int i = 0; i < options.chats(); i++) {
+            replies.put(telegramId(i), new LinkedBlockingQueue<>());
+        }
+        api.setListener(reply -> {
+            BlockingQueue<Reply> queue = replies.get(reply.chatId());
+            if (queue != null) {
+                queue.add(reply);
+            }
+        });
+
+        long started = System.nanoTime();
+        forEachChat(this::register);
+        BigDecimal initialTotal = balanceTotal();
+        forEachChat(chat -> {
+            for (int round = 0; round < options.rounds(); round++) {
+                runScript(chat);
+                think();
+            }
+        });
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        BigDecimal deposited = BigDecimal.valueOf(depositedKopecks.sum(), 2);
+        Map<String, Histogram> snapshots = new ConcurrentSkipListMap<>();
+        latency.forEach((step, histogram) -> snapshots.put(step, histogram.snapshot()));
+        return new Report(snapshots, timeouts.sum(), deposited, initialTotal.add(deposited), balanceTotal(),
+                ledgerMismatches(), elapsed);
+    }
+
+    private void forEachChat(ChatTask task) throws InterruptedException {
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("load-chat-", 0).factory())) {
+            for (int i = 0; i < options.chats(); i++) {
+                int chat = i;
+                executor.submit(() -> {
+                    try {
+                        task.run(chat);
+                    } catch (StepTimeoutException e) {
+                        logger.warn("Чат {}: нет ответа на шаг {}", telegramId(chat), e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void register(int chat) throws InterruptedException {
+        step(chat, "start", text(chat, "/start"));
+    }
+
+    private void runScript(int chat) throws InterruptedException {
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        if (dice < 30) {
+            boolean balance = ThreadLocalRandom.current().nextBoolean();
+            step(chat, balance ? "balance" : "statistics", text(chat, balance ? "💰 Баланс" : "📊 Статистика"));
+        } else if (dice < 55) {
+            deposit(chat);
+        } else if (dice < 80) {
+            transfer(chat);
+        } else if (dice < 95) {
+            history(chat);
+        } else {
+            step(chat, "statement", text(chat, "📄 Выписка"), 2);
+        }
+    }
+
+    private void deposit(int chat) throws InterruptedException {
+        step(chat, "deposit", text(chat, "💳 Пополнить"));
+        long kopecks = ThreadLocalRandom.current().nextLong(100, 100_000);
+        Reply reply = step(chat, "deposit_amount", text(chat, amount(kopecks)));
+        if (reply.text().startsWith(ERROR_PREFIX)) {
+            cancel(chat);
+        } else {
+            depositedKopecks.add(kopecks);
+        }
+    }
+
+    private void transfer(int chat) throws InterruptedException {
+        step(chat, "transfer", text(chat, "📤 Перевод"));
+        int recipient = (chat + 1 + ThreadLocalRandom.current().nextInt(options.chats() - 1)) % options.chats();
+        Reply reply = step(chat, "transfer_recipient", text(chat, Long.toString(telegramId(recipient))));
+        if (!reply.text().startsWith(ERROR_PREFIX)) {
+            long kopecks = ThreadLocalRandom.current().nextLong(1, 50_000);
+            reply = step(chat, "transfer_amount", text(chat, amount(kopecks)));
+        }
+        if (reply.text().startsWith(ERROR_PREFIX)) {
+            cancel(chat);
+        }
+    }
+
+    private void history(int chat) throws InterruptedException {
+        Reply reply = step(chat, "history", text(chat, "📜 История"));
+        for (String button : reply.buttons()) {
+            if (button.startsWith(OLDER_HISTORY)) {
+                think();
+                step(chat, "history_older", callback(chat, reply.messageId(), button));
+                return;
+            }
+        }
+    }
+
+    private void cancel(int chat) throws InterruptedException {
+        step(chat, "cancel", text(chat, "❌ Отмена"));
+    }
+
+    private Reply step(int chat, String name, Update update) throws InterruptedException {
+        return step(chat, name, update, 1);
+    }
+
+    /**
+     * Отправляет обновление и ждёт {@code expectedReplies} ответов; в гистограмму
+     * идёт время до последнего из них.
+     */
+    private Reply step(int chat, String name, Update update, int expectedReplies) throws InterruptedException {
+        BlockingQueue<Reply> queue = replies.get(telegramId(chat));
+        queue.clear();
+        long sent = System.nanoTime();
+        api.enqueue(update);
+        Reply reply = null;
+        for (int i = 0; i < expectedReplies; i++) {
+            reply = queue.poll(options.replyTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (reply == null) {
+                timeouts.increment();
+                throw new StepTimeoutException(name);
+            }
+        }
+        long elapsedNanos = reply.receivedNanos() - sent;
+        latency.computeIfAbsent(name, key -> new LatencyHistogram()).record(elapsedNanos);
+        latency.computeIfAbsent("all", key -> new LatencyHistogram()).record(elapsedNanos);
+        return reply;
+    }
+
+    private void think() throws InterruptedException {
+        if (options.thinkMillis() > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(options.thinkMillis() / 2, options.thinkMillis() + 1));
+        }
+    }
+
+    private Update text(int chat, String text) {
+        Message message = message(chat, nextMessageId.incrementAndGet());
+        message.setFrom(user(chat));
+        message.setText(text);
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+    private Update callback(int chat, int messageId, String data) {
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setId(Integer.toString(nextMessageId.incrementAndGet()));
+        callbackQuery.setFrom(user(chat));
+        callbackQuery.setMessage(message(chat, messageId));
+        callbackQuery.setChatInstance(Long.toString(telegramId(chat)));
+        callbackQuery.setData(data);
+        Update update = new Update();
+        update.setCallbackQuery(callbackQuery);
+        return update;
+    }
+
+    private Message message(int chat, int messageId) {
+        Message message = new Message();
+        message.setMessageId(messageId);
+        message.setDate((int) (System.currentTimeMillis() / 1000));
+        message.setChat(new Chat(telegramId(chat), "private"));
+        return message;
+    }
+
+    private User user(int chat) {
+        User user = new User(telegramId(chat), "Load " + chat, false);
+        user.setUserName("load_" + chat);
+        return user;
+    }
+
+    private long telegramId(int chat) {
+        return options.firstTelegramId() + chat;
+    }
+
+    private static String amount(long kopecks) {
+        return String.format(Locale.ROOT, "%d.%02d", kopecks / 100, kopecks % 100);
+    }
+
+    private BigDecimal balanceTotal() {
+        return sessionFactory.fromSession(session -> session.createQuery(
+                        "SELECT COALESCE(SUM(u.balance), 0) FROM User u "
+                                + "WHERE u.telegramId BETWEEN :first AND :last", BigDecimal.class)
+                .setParameter("first", telegramId(0))
+                .setParameter("last", telegramId(options.chats() - 1))
+                .getSingleResult());
+    }
+
+    /**
+     * Участники, у которых баланс не совпадает с суммой операций в журнале.
+     */
+    private int ledgerMismatches() {
+        List<Object[]> rows = sessionFactory.fromSession(session -> session.createQuery(
+                        "SELECT u.telegramId, u.balance, "
+                                + "COALESCE(SUM(CASE WHEN t.type IN (:credits) THEN t.amount ELSE -t.amount END), 0) "
+                                + "FROM User u LEFT JOIN TransactionEntity t ON t.user = u "
+                                + "WHERE u.telegramId BETWEEN :first AND :last "
+                                + "GROUP BY u.telegramId, u.balance", Object[].class)
+                .setParameter("credits", CREDITS)
+                .setParameter("first", telegramId(0))
+                .setParameter("last", telegramId(options.chats() - 1))
+                .list());
+        List<Long> mismatched = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (((BigDecimal) row[1]).compareTo((BigDecimal) row[2]) != 0) {
+                mismatched.add((Long) row[0]);
+            }
+        }
+        if (!mismatched.isEmpty()) {
+            logger.error("Баланс не совпадает с журналом у участников: {}", mismatched);
+        }
+        return mismatched.size();
+    }
+
+    @FunctionalInterface
+    private interface ChatTask {
+        void run(int chat) throws InterruptedException;
+    }
+
+    private static final class StepTimeoutException extends RuntimeException {
+        private StepTimeoutException(String step) {
+            super(step);
+        }
+    }
+
+    public static void main(String[] args) {
+        FakeBotApiServer api = null;
+        BotSession session = null;
+        int exitCode = 0;
+        try {
+            Options options = new Options(
+                    AppConfig.getInt("load.chats", 100),
+                    AppConfig.getInt("load.rounds", 20),
+                    AppConfig.getLong("load.think-ms", 500),
+                    AppConfig.getLong("load.first-telegram-id", 900_000_000L),
+                    AppConfig.getLong("load.reply-timeout-ms", 30_000));
+            api = new FakeBotApiServer(AppConfig.get("load.host", "127.0.0.1"), AppConfig.getInt("load.port", 8081));
+            api.start();
+
+            if ("embedded".equals(AppConfig.get("load.bot", "embedded"))) {
+                DefaultBotOptions botOptions = new DefaultBotOptions();
+                botOptions.setBaseUrl(api.getBaseUrl());
+                session = new TelegramBotsApi(DefaultBotSession.class)
+                        .registerBot(new BankingBot(botOptions, "load", "load_bot"));
+            } else {
+                logger.info("Запустите бота с TELEGRAM_API_BASE_URL={}", api.getBaseUrl());
+            }
+            if (!api.awaitPolling(5, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Бот не подключился к заглушке Bot API");
+            }
+
+            Report report = new LoadGenerator(api, HibernateConfig.getSessionFactory(), options).run();
+            report.log();
+            if (!report.moneyConserved() || report.timeouts() > 0) {
+                exitCode = 1;
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка нагрузочного прогона: {}", e.getMessage(), e);
+            exitCode = 1;
+        } finally {
+            if (session != null) {
+                session.stop();
+            }
+            if (api != null) {
+                api.stop();
+            }
+        }
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.itpark.sb.load;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import ru.itpark.sb.bot.BankingBot;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
+import ru.itpark.sb.dao.UnitOfWork;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.service.BankingService;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бот на H2 получает обновления от заглушки Bot API по long polling,
+ * как в рабочем режиме.
+ */
+@Timeout(value = 120, unit = TimeUnit.SECONDS)
+class LoadGeneratorTest {
+
+    private static final int CHATS = 12;
+    private static final int ROUNDS = 4;
+
+    private SessionFactory sessionFactory;
+    private FakeBotApiServer api;
+    private BotSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sessionFactory = H2SessionFactory.create("load_generator");
+        api = new FakeBotApiServer("127.0.0.1", 0);
+        api.start();
+
+        BankingService bankingService = new BankingService(new UserDao(sessionFactory),
+                new TransactionDao(sessionFactory), new UserStatisticsDao(sessionFactory),
+                new UserIdentityCache(CHATS), new TransactionTemplate(sessionFactory));
+        DefaultBotOptions botOptions = new DefaultBotOptions();
+        botOptions.setBaseUrl(api.getBaseUrl());
+        session = new TelegramBotsApi(DefaultBotSession.class).registerBot(new BankingBot(botOptions,
+                "test-token", "load_bot", bankingService, new UnitOfWork(sessionFactory)));
+        assertTrue(api.awaitPolling(10, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.stop();
+        api.stop();
+        sessionFactory.close();
+    }
+
+    @Test
+    void testRun_AllChatsAnsweredAndMoneyConserved() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator(api, sessionFactory,
+                new LoadGenerator.Options(CHATS, ROUNDS, 0, 800_000L, 20_000)).run();
+        report.log();
+
+        assertEquals(0, report.timeouts());
+        assertEquals(CHATS, report.latency().get("start").getTotalCount());
+        assertTrue(report.latency().get("all").getTotalCount() >= CHATS * (1 + ROUNDS));
+        assertEquals(0, report.ledgerMismatches());
+        assertEquals(0, report.expectedTotal().compareTo(report.actualTotal()),
+                report.expectedTotal() + " != " + report.actualTotal());
+        assertTrue(report.moneyConserved());
+    }
+}
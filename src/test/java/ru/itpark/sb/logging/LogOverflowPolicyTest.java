@@ -0,0 +1,56 @@
+package ru.itpark.sb.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.metrics.LoggingMetrics;
+import ru.itpark.sb.metrics.MetricsRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogOverflowPolicyTest {
+
+    private static final long BACKGROUND_THREAD = -1;
+
+    @Test
+    void testGetRoute_DropDiscardsInfoAndCounts() {
+        LogOverflowPolicy policy = new LogOverflowPolicy("drop", Level.INFO);
+        long before = LogOverflowPolicy.droppedCount();
+
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD, Level.INFO));
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD, Level.DEBUG));
+        assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD, Level.WARN));
+        assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD, Level.ERROR));
+
+        assertEquals(before + 2, LogOverflowPolicy.droppedCount());
+    }
+
+    @Test
+    void testGetRoute_BlockNeverDiscards() {
+        LogOverflowPolicy policy = new LogOverflowPolicy("block", Level.INFO);
+        long before = LogOverflowPolicy.droppedCount();
+
+        assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD, Level.DEBUG));
+        assertEquals(EventRoute.SYNCHRONOUS, policy.getRoute(Thread.currentThread().threadId(), Level.INFO));
+
+        assertEquals(before, LogOverflowPolicy.droppedCount());
+    }
+
+    @Test
+    void testConstructor_UnknownModeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LogOverflowPolicy("wait", Level.INFO));
+    }
+
+    @Test
+    void testConfiguration_LoggersAreAsynchronous() {
+        assertInstanceOf(AsyncLoggerContext.class, LogManager.getContext(false));
+
+        MetricsRegistry registry = new MetricsRegistry();
+        assertTrue(LoggingMetrics.bind(registry));
+        String text = registry.scrape();
+        assertTrue(text.contains("bot_log_ring_buffer_size 262144\n"), text);
+        assertTrue(text.contains("# TYPE bot_log_events_dropped_total counter\n"), text);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.itpark.sb.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void testScrape_GaugeAndCounterWithLabels() {
+        AtomicLong sent = new AtomicLong(42);
+        registry.gauge("queue_depth", "Очередь", () -> 7);
+        registry.counter("sent_total", "Отправлено", sent::get, "method", "send\"Message\\");
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE queue_depth gauge\nqueue_depth 7\n"), text);
+        assertTrue(text.contains("# TYPE sent_total counter\n"), text);
+        assertTrue(text.contains("sent_total{method=\"send\\\"Message\\\\\"} 42\n"), text);
+    }
+
+    @Test
+    void testScrape_HistogramBucketsAreCumulative() {
+        LatencyHistogram histogram = registry.histogram("handler_seconds", "Обработка", "handler", "balance");
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+        histogram.record(TimeUnit.SECONDS.toNanos(100));
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE handler_seconds histogram\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"0.0005\"} 1\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"0.001\"} 1\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"0.005\"} 2\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"0.05\"} 3\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"30\"} 3\n"), text);
+        assertTrue(text.contains("handler_seconds_bucket{handler=\"balance\",le=\"+Inf\"} 4\n"), text);
+        assertTrue(text.contains("handler_seconds_count{handler=\"balance\"} 4\n"), text);
+        assertTrue(text.contains("handler_seconds_sum{handler=\"balance\"} 100.0433\n"), text);
+    }
+
+    @Test
+    void testHistogram_SameLabelsReturnSameInstance() {
+        LatencyHistogram first = registry.histogram("dao_seconds", "DAO", "method", "save");
+
+        assertSame(first, registry.histogram("dao_seconds", "DAO", "method", "save"));
+        assertNotSame(first, registry.histogram("dao_seconds", "DAO", "method", "update"));
+    }
+
+    @Test
+    void testRegister_TypeConflictRejected() {
+        registry.gauge("depth", "Очередь", () -> 1);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("depth", "Очередь"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("other", "Метка без значения", () -> 1, "key"));
+    }
+
+    @Test
+    void testSnapshot_PercentilesWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + random.nextInt(200_000);
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(values[i]));
+        }
+        Arrays.sort(values);
+
+        Histogram snapshot = histogram.snapshot();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(values.length, snapshot.getTotalCount());
+        long expectedP99 = values[(int) Math.ceil(values.length * 0.99) - 1];
+        assertEquals(expectedP99, snapshot.getValueAtPercentile(99), expectedP99 * 0.01);
+        assertEquals(values.length + 1, histogram.snapshot().getTotalCount());
+    }
+}
@@ -0,0 +1,71 @@
+package ru.itpark.sb.metrics;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.model.User;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServerTest {
+
+    private SessionFactory sessionFactory;
+    private MetricsServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sessionFactory = H2SessionFactory.create("metrics_server");
+        server = new MetricsServer(MetricsRegistry.getDefault(), "127.0.0.1", 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+        sessionFactory.close();
+    }
+
+    @Test
+    void testMetrics_ExposesDaoAndPoolMetrics() throws Exception {
+        assertTrue(HikariMetrics.bind(sessionFactory, MetricsRegistry.getDefault()));
+        UserDao userDao = new UserDao(sessionFactory);
+        User user = userDao.save(new User(5150L, "metrics"));
+        userDao.findById(user.getId());
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getPort() + MetricsServer.PATH)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = response.body();
+        assertTrue(sample(body, "bot_dao_duration_seconds_count\\{dao=\"UserDao\",method=\"save\"}") >= 1, body);
+        assertTrue(sample(body, "bot_dao_duration_seconds_count\\{dao=\"UserDao\",method=\"findById\"}") >= 1, body);
+        assertTrue(sample(body, "hikari_connection_acquire_seconds_count\\{pool=\"[^\"]+\"}") >= 1, body);
+        assertTrue(body.contains("# TYPE hikari_connections gauge"), body);
+    }
+
+    @Test
+    void testMetrics_RejectsPost() throws Exception {
+        HttpResponse<Void> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + server.getPort() + MetricsServer.PATH))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+
+        assertEquals(405, response.statusCode());
+    }
+
+    private static long sample(String body, String series) {
+        Matcher matcher = Pattern.compile("(?m)^" + series + " (\\d+)$").matcher(body);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.itpark.sb.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParse_Formats() {
+        assertEquals(100_000, Money.parse("1000").kopecks());
+        assertEquals(100_050, Money.parse("1000.50").kopecks());
+        assertEquals(100_050, Money.parse("1000,5").kopecks());
+        assertEquals(100_050, Money.parse("1 000.50").kopecks());
+        assertEquals(100_050, Money.parse("1 000,50").kopecks());
+        assertEquals(50_099, Money.parse("  500.99  ").kopecks());
+        assertEquals(50, Money.parse(".5").kopecks());
+        assertEquals(500, Money.parse("5.").kopecks());
+        assertEquals(-1, Money.parse("-0.01").kopecks());
+        assertEquals(700, Money.parse("+7").kopecks());
+    }
+
+    @Test
+    void testParse_RoundsHalfUp() {
+        assertEquals(100_100, Money.parse("1000.999").kopecks());
+        assertEquals(100_099, Money.parse("1000.994").kopecks());
+        assertEquals(100_100, Money.parse("1000.995").kopecks());
+        assertEquals(0, Money.parse("0.0049999").kopecks());
+    }
+
+    @Test
+    void testParse_MatchesBigDecimal() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextLong(1_000_000_000_000L), random.nextInt(5));
+            assertEquals(Money.of(value), Money.parse(value.toPlainString()), value.toPlainString());
+        }
+    }
+
+    @Test
+    void testParse_InvalidInput() {
+        for (String text : new String[]{"", "   ", "abc", "-", ".", "1.2.3", "1e5", "10-", "12a", "--1"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(text), text);
+        }
+    }
+
+    @Test
+    void testParse_TooBig() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("999999999999999999999"));
+        assertEquals(Money.parse("92233720368547757.99").kopecks(), (Long.MAX_VALUE / 100 - 1) * 100 + 99);
+    }
+
+    @Test
+    void testOf_ConvertsBigDecimal() {
+        assertEquals(Money.ofKopecks(1_050), Money.of(new BigDecimal("10.5")));
+        assertEquals(Money.ofKopecks(-1_051), Money.of(new BigDecimal("-10.505")));
+        assertEquals(new BigDecimal("10.50"), Money.ofKopecks(1_050).toBigDecimal());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+    }
+
+    @Test
+    void testArithmetic() {
+        Money a = Money.parse("100.25");
+        Money b = Money.parse("0.75");
+        assertEquals(Money.parse("101.00"), a.plus(b));
+        assertEquals(Money.parse("99.50"), a.minus(b));
+        assertEquals(Money.parse("-100.25"), a.negate());
+        assertTrue(b.isLessThan(a));
+        assertTrue(a.isPositive());
+        assertTrue(a.negate().isNegative());
+        assertFalse(Money.ZERO.isPositive());
+        assertThrows(ArithmeticException.class, () -> Money.ofKopecks(Long.MAX_VALUE).plus(Money.ofKopecks(1)));
+    }
+
+    @Test
+    void testDividedBy_RoundsHalfUp() {
+        assertEquals(Money.ofKopecks(33), Money.ofKopecks(100).dividedBy(3));
+        assertEquals(Money.ofKopecks(67), Money.ofKopecks(200).dividedBy(3));
+        assertEquals(Money.ofKopecks(3), Money.ofKopecks(5).dividedBy(2));
+        assertEquals(Money.ofKopecks(-3), Money.ofKopecks(-5).dividedBy(2));
+        assertEquals(Money.parse("100.00"), Money.parse("300").dividedBy(3));
+        assertThrows(IllegalArgumentException.class, () -> Money.ZERO.dividedBy(0));
+    }
+
+    @Test
+    void testToString_PlainWithTwoDigits() {
+        assertEquals("1000.50", Money.parse("1000.5").toString());
+        assertEquals("-0.01", Money.ofKopecks(-1).toString());
+    }
+}
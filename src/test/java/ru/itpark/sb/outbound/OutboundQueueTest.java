@@ -0,0 +1,183 @@
+package ru.itpark.sb.outbound;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboundQueueTest {
+
+    @Mock
+    private AbsSender sender;
+
+    private OutboundQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static SendMessage message(long chatId, String text) {
+        return new SendMessage(String.valueOf(chatId), text);
+    }
+
+    private static TelegramApiRequestException apiError(int code, Integer retryAfter) throws Exception {
+        String parameters = retryAfter == null ? "" : ",\"parameters\":{\"retry_after\":" + retryAfter + "}";
+        ApiResponse<Message> response = new ObjectMapper().readValue(
+                "{\"ok\":false,\"error_code\":" + code + ",\"description\":\"error\"" + parameters + "}",
+                new TypeReference<ApiResponse<Message>>() { });
+        return new TelegramApiRequestException("Error sending message", response);
+    }
+
+    private static void awaitDrained(OutboundQueue queue) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testSubmit_DeliversMessagesOfChatInOrder() throws Exception {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        when(sender.execute(any(SendMessage.class))).thenAnswer(invocation -> {
+            delivered.add(invocation.<SendMessage>getArgument(0).getText());
+            return null;
+        });
+        queue = new OutboundQueue(sender, 4, 100, 1000, 1, 1000, 3);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(queue.submit(1L, message(1L, String.valueOf(i))));
+        }
+        awaitDrained(queue);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(String.valueOf(i));
+        }
+        assertEquals(expected, delivered);
+        assertEquals(20, queue.getSentMessages());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void testSubmit_RetriesAfterRateLimit() throws Exception {
+        when(sender.execute(any(SendMessage.class)))
+                .thenThrow(apiError(429, 1))
+                .thenReturn(null);
+        queue = new OutboundQueue(sender, 1, 100, 1000, 1, 1000, 3);
+
+        long start = System.nanoTime();
+        queue.submit(5L, message(5L, "hello"));
+        awaitDrained(queue);
+
+        assertEquals(1, queue.getSentMessages());
+        assertEquals(1, queue.getRateLimitedResponses());
+        assertEquals(0, queue.getDroppedMessages());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        verify(sender, times(2)).execute(any(SendMessage.class));
+    }
+
+    @Test
+    void testSubmit_DropsOnClientError() throws Exception {
+        when(sender.execute(any(SendMessage.class))).thenThrow(apiError(400, null));
+        queue = new OutboundQueue(sender, 1, 100, 1000, 1, 1000, 3);
+
+        queue.submit(5L, message(5L, "bad"));
+        awaitDrained(queue);
+
+        assertEquals(0, queue.getSentMessages());
+        assertEquals(1, queue.getDroppedMessages());
+        verify(sender, times(1)).execute(any(SendMessage.class));
+    }
+
+    @Test
+    void testSubmit_RejectsWhenFull() throws Exception {
+        queue = new OutboundQueue(sender, 0, 2, 1000, 1, 1000, 3);
+
+        assertTrue(queue.submit(1L, message(1L, "a")));
+        assertTrue(queue.submit(2L, message(2L, "b")));
+        assertFalse(queue.submit(3L, message(3L, "c")));
+        assertEquals(2, queue.getQueueDepth());
+        assertEquals(1, queue.getDroppedMessages());
+    }
+
+    @Test
+    void testSubmit_RespectsChatRate() throws Exception {
+        when(sender.execute(any(SendMessage.class))).thenReturn(null);
+        queue = new OutboundQueue(sender, 2, 100, 1000, 1, 10, 3);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            queue.submit(9L, message(9L, String.valueOf(i)));
+        }
+        awaitDrained(queue);
+
+        assertEquals(4, queue.getSentMessages());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(290));
+    }
+
+    @Test
+    void testSubmit_RunsCompletionOnceAfterSendOrDrop() throws Exception {
+        when(sender.execute(any(SendMessage.class)))
+                .thenReturn(null)
+                .thenThrow(apiError(400, null));
+        queue = new OutboundQueue(sender, 1, 100, 1000, 5, 1000, 3);
+        AtomicInteger completed = new AtomicInteger();
+
+        queue.submit(1L, "sent", s -> s.execute(message(1L, "ok")), completed::incrementAndGet);
+        queue.submit(1L, "dropped", s -> s.execute(message(1L, "bad")), completed::incrementAndGet);
+        awaitDrained(queue);
+
+        assertEquals(2, completed.get());
+        assertEquals(1, queue.getSentMessages());
+        assertEquals(1, queue.getDroppedMessages());
+    }
+
+    @Test
+    void testSubmit_ReportsWhetherCallWasSent() throws Exception {
+        when(sender.execute(any(SendMessage.class)))
+                .thenReturn(null)
+                .thenThrow(apiError(400, null));
+        queue = new OutboundQueue(sender, 1, 100, 1000, 5, 1000, 3);
+        List<Boolean> outcomes = new CopyOnWriteArrayList<>();
+
+        queue.submit(1L, "sent", s -> s.execute(message(1L, "ok")), outcomes::add);
+        queue.submit(1L, "dropped", s -> s.execute(message(1L, "bad")), outcomes::add);
+        awaitDrained(queue);
+
+        assertEquals(List.of(true, false), outcomes);
+    }
+
+    @Test
+    void testSubmit_RunsCompletionWhenRejected() {
+        queue = new OutboundQueue(sender, 0, 1, 1000, 1, 1000, 3);
+        AtomicInteger completed = new AtomicInteger();
+
+        assertTrue(queue.submit(1L, "kept", s -> { }, completed::incrementAndGet));
+        assertFalse(queue.submit(2L, "rejected", s -> { }, completed::incrementAndGet));
+
+        assertEquals(1, completed.get());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.itpark.sb.outbound;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testTryAcquire_BurstThenEmpty() {
+        TokenBucket bucket = new TokenBucket(3, 1, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void testTryAcquire_RefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(1, 2, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.nanosUntilAvailable());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, bucket.nanosUntilAvailable());
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void testNanosUntilFull() {
+        TokenBucket bucket = new TokenBucket(2, 1, clock::get);
+        assertEquals(0, bucket.nanosUntilFull());
+
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.nanosUntilFull());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, bucket.nanosUntilFull());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}
@@ -0,0 +1,68 @@
+package ru.itpark.sb.render;
+
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+import ru.itpark.sb.service.BankingService.TransactionStatistics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageRendererTest {
+
+    private final MessageRenderer renderer = new MessageRenderer(Locale.US);
+
+    private static TransactionEntity transaction(TransactionEntity.TransactionType type, String amount,
+                                                 String description, Long recipientId) {
+        TransactionEntity transaction = new TransactionEntity(new User(1L, "user"), type, new BigDecimal(amount), description);
+        transaction.setRecipientId(recipientId);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 3, 1, 9, 5));
+        return transaction;
+    }
+
+    @Test
+    void testOperationMessages() {
+        assertEquals("💰 Ваш баланс: 1,500.00 ₽", renderer.balance(Money.parse("1500")));
+        assertEquals("✅ Счет пополнен на 500.00 ₽\n\n💰 Новый баланс: 1,500.00 ₽",
+                renderer.deposit(Money.parse("500"), Money.parse("1500")));
+        assertEquals("✅ Со счета снято 0.50 ₽\n\n💰 Новый баланс: 999.50 ₽",
+                renderer.withdrawal(Money.parse("0.5"), Money.parse("999.5")));
+    }
+
+    @Test
+    void testTransfer_WithAndWithoutUsername() {
+        assertEquals("✅ Перевод выполнен!\n\n📤 Отправлено: 200.00 ₽\n👤 Получатель: 42 (bob)\n\n💰 Ваш баланс: 300.00 ₽",
+                renderer.transfer(Money.parse("200"), 42L, "bob", Money.parse("300")));
+        assertEquals("✅ Перевод выполнен!\n\n📤 Отправлено: 200.00 ₽\n👤 Получатель: 42\n\n💰 Ваш баланс: 300.00 ₽",
+                renderer.transfer(Money.parse("200"), 42L, null, Money.parse("300")));
+    }
+
+    @Test
+    void testHistory() {
+        String history = renderer.history(List.of(
+                transaction(TransactionEntity.TransactionType.DEPOSIT, "1000", "Пополнение счета", null),
+                transaction(TransactionEntity.TransactionType.TRANSFER_OUT, "25.5", "", 42L)));
+
+        assertEquals("📜 История транзакций:\n\n"
+                + "➕ Пополнение: 1,000.00 ₽\n📅 01.03.2024 09:05\n📝 Пополнение счета\n\n"
+                + "📤 Перевод: 25.50 ₽\n📅 01.03.2024 09:05\n👤 Получатель: 42\n\n", history);
+    }
+
+    @Test
+    void testStatistics() {
+        TransactionStatistics stats = new TransactionStatistics(Money.parse("1000"), Money.ZERO,
+                Money.parse("200"), Money.ZERO, 2, 0, 1, 0, 3, Money.parse("500"), Money.ZERO);
+
+        assertEquals("📊 Ваша статистика:\n\n"
+                + "💰 Баланс: 800.00 ₽\n\n"
+                + "📈 Пополнения:\n  • Всего: 1,000.00 ₽\n  • Количество: 2\n  • Средняя сумма: 500.00 ₽\n\n"
+                + "📉 Снятия:\n  • Всего: 0.00 ₽\n  • Количество: 0\n\n"
+                + "📤 Переводы:\n  • Отправлено: 200.00 ₽ (1)\n  • Получено: 0.00 ₽ (0)\n\n"
+                + "📋 Всего транзакций: 3", renderer.statistics(stats, Money.parse("800")));
+    }
+}
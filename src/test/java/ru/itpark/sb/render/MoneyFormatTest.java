@@ -0,0 +1,61 @@
+package ru.itpark.sb.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyFormatTest {
+
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.forLanguageTag("ru-RU"), Locale.GERMANY, Locale.FRANCE, Locale.forLanguageTag("de-CH")
+    };
+
+    private static String reference(Locale locale, BigDecimal amount) {
+        NumberFormat formatter = NumberFormat.getNumberInstance(locale);
+        formatter.setMinimumFractionDigits(2);
+        formatter.setMaximumFractionDigits(2);
+        return formatter.format(amount);
+    }
+
+    @Test
+    void testFormat_MatchesNumberFormat() {
+        String[] amounts = {"0", "0.5", "7", "12.3", "999.99", "1000", "1234567.891", "1000000000.00",
+                "2.345", "2.355", "-1500.75", "123456789012345678901234.56"};
+        for (Locale locale : LOCALES) {
+            MoneyFormat money = MoneyFormat.forLocale(locale);
+            for (String amount : amounts) {
+                BigDecimal value = new BigDecimal(amount);
+                assertEquals(reference(locale, value), money.format(value), locale + " " + amount);
+            }
+        }
+    }
+
+    @Test
+    void testFormat_RandomAmountsMatchNumberFormat() {
+        Random random = new Random(11);
+        MoneyFormat money = MoneyFormat.forLocale(Locale.forLanguageTag("ru-RU"));
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextLong(10_000_000_000L), random.nextInt(4));
+            assertEquals(reference(Locale.forLanguageTag("ru-RU"), value), money.format(value), value.toPlainString());
+        }
+    }
+
+    @Test
+    void testForLocale_ReturnsCachedInstance() {
+        assertSame(MoneyFormat.forLocale(Locale.US), MoneyFormat.forLocale(Locale.US));
+    }
+
+    @Test
+    void testAppendTo_AppendsToExistingText() {
+        StringBuilder out = new StringBuilder("Итого: ");
+
+        MoneyFormat.forLocale(Locale.US).appendTo(out, new BigDecimal("1234.5"));
+
+        assertEquals("Итого: 1,234.50", out.toString());
+    }
+}
@@ -0,0 +1,48 @@
+package ru.itpark.sb.render;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextTemplateTest {
+
+    private static final TextTemplate.ValueWriter PLAIN = StringBuilder::append;
+
+    @Test
+    void testRender_SubstitutesArgumentsByPosition() {
+        TextTemplate template = TextTemplate.compile("{1} и {0}, снова {1}");
+
+        assertEquals("б и а, снова б", template.render(PLAIN, "а", "б"));
+    }
+
+    @Test
+    void testRender_WithoutArguments() {
+        TextTemplate template = TextTemplate.compile("Операция отменена.");
+
+        assertEquals("Операция отменена.", template.render(PLAIN));
+    }
+
+    @Test
+    void testRender_ArgumentsAtEdges() {
+        TextTemplate template = TextTemplate.compile("{0}{1}");
+
+        assertEquals("12", template.render(PLAIN, 1, 2));
+    }
+
+    @Test
+    void testAppendTo_UsesValueWriter() {
+        TextTemplate template = TextTemplate.compile("Сумма: {0} ₽");
+        StringBuilder out = new StringBuilder(">");
+
+        template.appendTo(out, (builder, value) -> builder.append('[').append(value).append(']'), 5);
+
+        assertEquals(">Сумма: [5] ₽", out.toString());
+    }
+
+    @Test
+    void testCompile_RejectsMalformedPattern() {
+        assertThrows(IllegalArgumentException.class, () -> TextTemplate.compile("Сумма: {0"));
+        assertThrows(IllegalArgumentException.class, () -> TextTemplate.compile("Сумма: {x}"));
+        assertThrows(IllegalArgumentException.class, () -> TextTemplate.compile("Сумма: {-1}"));
+    }
+}
@@ -1,23 +1,39 @@
 package ru.itpark.sb.service;
 
+import jakarta.persistence.OptimisticLockException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itpark.sb.cache.UserIdentity;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.dao.HistoryCursor;
 import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
 import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.Money;
 import ru.itpark.sb.model.TransactionEntity;
 import ru.itpark.sb.model.User;
+import ru.itpark.sb.model.UserStatistics;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -30,13 +46,19 @@ class BankingServiceTest {
     @Mock
     private TransactionDao transactionDao;
 
+    @Mock
+    private UserStatisticsDao statisticsDao;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     private BankingService bankingService;
 
     private User testUser;
 
     @BeforeEach
     void setUp() {
-        bankingService = new BankingService(userDao, transactionDao);
+        bankingService = new BankingService(userDao, transactionDao, statisticsDao, new UserIdentityCache(10000), transactionTemplate);
         testUser = new User();
         testUser.setId(1L);
         testUser.setTelegramId(123456789L);
@@ -98,6 +120,40 @@ class BankingServiceTest {
         verify(userDao).update(any(User.class));
     }
 
+    @Test
+    void testEnsureUser_CachedIdentitySkipsDatabase() {
+        Long telegramId = 123456789L;
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+
+        long firstId = bankingService.ensureUser(telegramId, "testuser");
+        long secondId = bankingService.ensureUser(telegramId, "testuser");
+        long thirdId = bankingService.ensureUser(telegramId, null);
+
+        assertEquals(1L, firstId);
+        assertEquals(1L, secondId);
+        assertEquals(1L, thirdId);
+        verify(userDao, times(1)).findByTelegramId(telegramId);
+        verify(userDao, never()).update(any(User.class));
+        assertEquals(2, bankingService.getIdentityCache().getHits());
+    }
+
+    @Test
+    void testEnsureUser_ChangedUsernameGoesToDatabase() {
+        Long telegramId = 123456789L;
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(userDao.update(any(User.class))).thenReturn(testUser);
+
+        bankingService.ensureUser(telegramId, "testuser");
+        bankingService.ensureUser(telegramId, "renamed");
+        bankingService.ensureUser(telegramId, "renamed");
+
+        verify(userDao, times(2)).findByTelegramId(telegramId);
+        verify(userDao, times(1)).update(any(User.class));
+        assertEquals("renamed", bankingService.getIdentityCache().get(telegramId).username());
+    }
+
     @Test
     void testGetUserByTelegramId_UserExists() {
         Long telegramId = 123456789L;
@@ -124,11 +180,11 @@ class BankingServiceTest {
     @Test
     void testGetBalance() {
         Long telegramId = 123456789L;
-        BigDecimal expectedBalance = BigDecimal.valueOf(1000.00);
+        Money expectedBalance = Money.parse("1000.00");
 
         when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
 
-        BigDecimal result = bankingService.getBalance(telegramId);
+        Money result = bankingService.getBalance(telegramId);
 
         assertNotNull(result);
         assertEquals(expectedBalance, result);
@@ -138,33 +194,58 @@ class BankingServiceTest {
     @Test
     void testDeposit_Success() {
         Long telegramId = 123456789L;
-        BigDecimal depositAmount = BigDecimal.valueOf(500.00);
+        Money depositAmount = Money.parse("500.00");
         String description = "Test deposit";
 
+        runTemplateInline();
         when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
-        when(userDao.update(any(User.class))).thenReturn(testUser);
+        when(userDao.changeBalance(1L, depositAmount.toBigDecimal())).thenReturn(Optional.of(BigDecimal.valueOf(1500.00)));
+        when(userDao.getReference(1L)).thenReturn(testUser);
         when(transactionDao.save(any(TransactionEntity.class))).thenAnswer(invocation -> {
             TransactionEntity transaction = invocation.getArgument(0);
             transaction.setId(1L);
             return transaction;
         });
 
-        TransactionEntity result = bankingService.deposit(telegramId, depositAmount, description);
+        OperationResult operation = bankingService.deposit(telegramId, depositAmount, description);
+        TransactionEntity result = operation.transaction();
 
         assertNotNull(result);
+        assertEquals(Money.parse("1500.00"), operation.balance());
+        assertEquals(List.of(1L), operation.ledgerIds());
         assertEquals(TransactionEntity.TransactionType.DEPOSIT, result.getType());
-        assertEquals(depositAmount, result.getAmount());
+        assertEquals(depositAmount.toBigDecimal(), result.getAmount());
         assertEquals(description, result.getDescription());
-        assertEquals(BigDecimal.valueOf(1500.00), testUser.getBalance());
+        assertEquals(testUser, result.getUser());
         verify(userDao).findByTelegramId(telegramId);
-        verify(userDao).update(any(User.class));
+        verify(userDao).changeBalance(1L, depositAmount.toBigDecimal());
+        verify(userDao, never()).update(any(User.class));
+        verify(transactionDao).save(any(TransactionEntity.class));
+        verify(statisticsDao).record(List.of(result));
+        verify(transactionTemplate).execute(any());
+    }
+
+    @Test
+    void testDeposit_CachedUserSkipsLookup() {
+        Long telegramId = 123456789L;
+        Money depositAmount = Money.parse("500.00");
+
+        runTemplateInline();
+        bankingService.getIdentityCache().put(telegramId, new UserIdentity(1L, "testuser"));
+        when(userDao.changeBalance(1L, depositAmount.toBigDecimal())).thenReturn(Optional.of(BigDecimal.valueOf(1500.00)));
+        when(userDao.getReference(1L)).thenReturn(testUser);
+        when(transactionDao.save(any(TransactionEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bankingService.deposit(telegramId, depositAmount, "Test");
+
+        verify(userDao, never()).findByTelegramId(any());
         verify(transactionDao).save(any(TransactionEntity.class));
     }
 
     @Test
     void testDeposit_NegativeAmount() {
         Long telegramId = 123456789L;
-        BigDecimal negativeAmount = BigDecimal.valueOf(-100.00);
+        Money negativeAmount = Money.parse("-100.00");
 
         assertThrows(IllegalArgumentException.class, 
             () -> bankingService.deposit(telegramId, negativeAmount, "Test"));
@@ -176,7 +257,7 @@ class BankingServiceTest {
     @Test
     void testDeposit_ZeroAmount() {
         Long telegramId = 123456789L;
-        BigDecimal zeroAmount = BigDecimal.ZERO;
+        Money zeroAmount = Money.ZERO;
 
         assertThrows(IllegalArgumentException.class, 
             () -> bankingService.deposit(telegramId, zeroAmount, "Test"));
@@ -188,35 +269,43 @@ class BankingServiceTest {
     @Test
     void testWithdraw_Success() {
         Long telegramId = 123456789L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(300.00);
+        Money withdrawAmount = Money.parse("300.00");
         String description = "Test withdrawal";
 
+        runTemplateInline();
         when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
-        when(userDao.update(any(User.class))).thenReturn(testUser);
+        when(userDao.changeBalance(1L, withdrawAmount.negate().toBigDecimal())).thenReturn(Optional.of(BigDecimal.valueOf(700.00)));
+        when(userDao.getReference(1L)).thenReturn(testUser);
         when(transactionDao.save(any(TransactionEntity.class))).thenAnswer(invocation -> {
             TransactionEntity transaction = invocation.getArgument(0);
             transaction.setId(1L);
             return transaction;
         });
 
-        TransactionEntity result = bankingService.withdraw(telegramId, withdrawAmount, description);
+        OperationResult operation = bankingService.withdraw(telegramId, withdrawAmount, description);
+        TransactionEntity result = operation.transaction();
 
         assertNotNull(result);
+        assertEquals(Money.parse("700.00"), operation.balance());
         assertEquals(TransactionEntity.TransactionType.WITHDRAWAL, result.getType());
-        assertEquals(withdrawAmount, result.getAmount());
+        assertEquals(withdrawAmount.toBigDecimal(), result.getAmount());
         assertEquals(description, result.getDescription());
-        assertEquals(BigDecimal.valueOf(700.00), testUser.getBalance());
         verify(userDao).findByTelegramId(telegramId);
-        verify(userDao).update(any(User.class));
+        verify(userDao).changeBalance(1L, withdrawAmount.negate().toBigDecimal());
+        verify(userDao, never()).update(any(User.class));
         verify(transactionDao).save(any(TransactionEntity.class));
+        verify(statisticsDao).record(List.of(result));
     }
 
     @Test
     void testWithdraw_InsufficientFunds() {
         Long telegramId = 123456789L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(2000.00);
+        Money withdrawAmount = Money.parse("2000.00");
 
+        runTemplateInline();
         when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(userDao.changeBalance(1L, withdrawAmount.negate().toBigDecimal())).thenReturn(Optional.empty());
+        when(userDao.exists(1L)).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, 
             () -> bankingService.withdraw(telegramId, withdrawAmount, "Test"));
@@ -224,12 +313,31 @@ class BankingServiceTest {
         verify(userDao).findByTelegramId(telegramId);
         verify(userDao, never()).update(any(User.class));
         verify(transactionDao, never()).save(any(TransactionEntity.class));
+        verify(statisticsDao, never()).record(anyList());
+    }
+
+    @Test
+    void testWithdraw_StaleCachedUserIsNotInsufficientFunds() {
+        Long telegramId = 123456789L;
+        Money withdrawAmount = Money.parse("100.00");
+
+        runTemplateInline();
+        bankingService.getIdentityCache().put(telegramId, new UserIdentity(1L, "testuser"));
+        when(userDao.changeBalance(1L, withdrawAmount.negate().toBigDecimal())).thenReturn(Optional.empty());
+        when(userDao.exists(1L)).thenReturn(false);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> bankingService.withdraw(telegramId, withdrawAmount, "Test"));
+
+        assertEquals("Пользователь не найден", error.getMessage());
+        assertNull(bankingService.getIdentityCache().get(telegramId));
+        verify(transactionDao, never()).save(any(TransactionEntity.class));
     }
 
     @Test
     void testWithdraw_NegativeAmount() {
         Long telegramId = 123456789L;
-        BigDecimal negativeAmount = BigDecimal.valueOf(-100.00);
+        Money negativeAmount = Money.parse("-100.00");
 
         assertThrows(IllegalArgumentException.class, 
             () -> bankingService.withdraw(telegramId, negativeAmount, "Test"));
@@ -286,6 +394,220 @@ class BankingServiceTest {
         verify(userDao).findByTelegramId(telegramId);
         verify(transactionDao).findAllByUser(eq(testUser));
     }
-}
 
+    private User user(Long id, Long telegramId, BigDecimal balance) {
+        User user = new User();
+        user.setId(id);
+        user.setTelegramId(telegramId);
+        user.setBalance(balance);
+        return user;
+    }
+
+    private void runTemplateInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    }
+
+    @Test
+    void testTransfer_Success() {
+        User sender = user(1L, 100L, BigDecimal.valueOf(500));
+        User recipient = user(2L, 200L, BigDecimal.valueOf(50));
+        recipient.setUsername("bob");
+        runTemplateInline();
+        when(userDao.findByTelegramIdsForUpdate(List.of(100L, 200L))).thenReturn(List.of(sender, recipient));
+        when(transactionDao.saveAll(anyList())).thenAnswer(invocation -> {
+            List<TransactionEntity> ledger = invocation.getArgument(0);
+            ledger.get(0).setId(10L);
+            ledger.get(1).setId(11L);
+            return ledger;
+        });
+
+        OperationResult operation = bankingService.transfer(100L, 200L, Money.parse("200"), "Долг");
+        TransactionEntity result = operation.transaction();
+
+        assertEquals(TransactionEntity.TransactionType.TRANSFER_OUT, result.getType());
+        assertEquals(200L, result.getRecipientId());
+        assertEquals(0, BigDecimal.valueOf(300).compareTo(sender.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(250).compareTo(recipient.getBalance()));
+        assertEquals(Money.parse("300"), operation.balance());
+        assertEquals("bob", operation.counterpartyUsername());
+        assertEquals(List.of(10L, 11L), operation.ledgerIds());
+        verify(transactionTemplate).execute(any());
+        verify(transactionDao).saveAll(argThat(saved -> saved.size() == 2));
+        verify(statisticsDao).record(argThat(recorded -> recorded.size() == 2));
+        verify(userDao, never()).update(any(User.class));
+        verify(userDao, never()).findByTelegramId(any());
+    }
+
+    @Test
+    void testTransfer_InsufficientFunds() {
+        User sender = user(2L, 100L, BigDecimal.valueOf(10));
+        User recipient = user(1L, 200L, BigDecimal.valueOf(50));
+        runTemplateInline();
+        when(userDao.findByTelegramIdsForUpdate(List.of(100L, 200L))).thenReturn(List.of(recipient, sender));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                bankingService.transfer(100L, 200L, Money.parse("200"), null));
+
+        assertEquals(0, BigDecimal.valueOf(10).compareTo(sender.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(recipient.getBalance()));
+        verify(transactionDao, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testTransfer_RecipientNotFound() {
+        runTemplateInline();
+        when(userDao.findByTelegramIdsForUpdate(List.of(100L, 200L)))
+                .thenReturn(List.of(user(1L, 100L, BigDecimal.valueOf(500))));
+
+        assertThrows(RuntimeException.class, () ->
+                bankingService.transfer(100L, 200L, Money.parse("200"), null));
 
+        verify(transactionDao, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testTransfer_ToSelfSkipsDatabase() {
+        assertThrows(IllegalArgumentException.class, () ->
+                bankingService.transfer(100L, 100L, Money.parse("200"), null));
+
+        verifyNoInteractions(transactionTemplate, userDao, transactionDao);
+    }
+
+    @Test
+    void testGetStatistics_ReadsAggregateRow() {
+        Long telegramId = 123456789L;
+        UserStatistics statistics = new UserStatistics(1L);
+        statistics.add(TransactionEntity.TransactionType.DEPOSIT, 3, BigDecimal.valueOf(300));
+        statistics.add(TransactionEntity.TransactionType.WITHDRAWAL, 2, BigDecimal.valueOf(50));
+        statistics.add(TransactionEntity.TransactionType.TRANSFER_IN, 1, BigDecimal.valueOf(25));
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(statisticsDao.findByUserId(1L)).thenReturn(Optional.of(statistics));
+
+        BankingService.TransactionStatistics result = bankingService.getStatistics(telegramId);
+
+        assertEquals(6, result.getTotalTransactions());
+        assertEquals(3, result.getDepositCount());
+        assertEquals(Money.parse("300"), result.getTotalDeposits());
+        assertEquals(Money.parse("100.00"), result.getAvgDeposit());
+        assertEquals(Money.parse("25.00"), result.getAvgWithdrawal());
+        assertEquals(0, result.getTransferOutCount());
+        verify(transactionDao, never()).findAllByUser(any(User.class));
+    }
+
+    @Test
+    void testGetStatistics_NoAggregateRowMeansNoOperations() {
+        Long telegramId = 123456789L;
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(statisticsDao.findByUserId(1L)).thenReturn(Optional.empty());
+
+        BankingService.TransactionStatistics result = bankingService.getStatistics(telegramId);
+
+        assertEquals(0, result.getTotalTransactions());
+        assertEquals(Money.ZERO, result.getTotalDeposits());
+        assertEquals(Money.ZERO, result.getAvgDeposit());
+    }
+
+    private List<TransactionEntity> ledger(int count) {
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TransactionEntity transaction = new TransactionEntity(testUser, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.ONE, null);
+            transaction.setId(100L - i);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Test
+    void testGetHistoryPage_FirstPage() {
+        Long telegramId = 123456789L;
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(transactionDao.findPageBefore(1L, null, 4)).thenReturn(ledger(4));
+
+        HistoryPage page = bankingService.getHistoryPage(telegramId, null, null, 3);
+
+        assertEquals(3, page.transactions().size());
+        assertTrue(page.hasOlder());
+        assertFalse(page.hasNewer());
+        assertEquals(98L, page.olderCursor().id());
+    }
+
+    @Test
+    void testGetHistoryPage_OlderLastPage() {
+        Long telegramId = 123456789L;
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.now(), 101L);
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(transactionDao.findPageBefore(1L, cursor, 4)).thenReturn(ledger(2));
+
+        HistoryPage page = bankingService.getHistoryPage(telegramId, cursor, null, 3);
+
+        assertEquals(2, page.transactions().size());
+        assertFalse(page.hasOlder());
+        assertTrue(page.hasNewer());
+    }
+
+    @Test
+    void testGetHistoryPage_NewerDropsRowFurthestFromCursor() {
+        Long telegramId = 123456789L;
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.now(), 90L);
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(transactionDao.findPageAfter(1L, cursor, 4)).thenReturn(ledger(4));
+
+        HistoryPage page = bankingService.getHistoryPage(telegramId, null, cursor, 3);
+
+        assertEquals(List.of(99L, 98L, 97L), page.transactions().stream().map(TransactionEntity::getId).toList());
+        assertTrue(page.hasOlder());
+        assertTrue(page.hasNewer());
+    }
+
+    @Test
+    void testExportStatement_StreamsRowsToCsv() {
+        Long telegramId = 123456789L;
+        TransactionEntity transaction = new TransactionEntity(testUser, TransactionEntity.TransactionType.DEPOSIT, BigDecimal.TEN, "Зарплата");
+        transaction.setId(5L);
+
+        when(userDao.findByTelegramId(telegramId)).thenReturn(Optional.of(testUser));
+        when(transactionDao.streamByUser(eq(1L), anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<TransactionEntity> consumer = invocation.getArgument(2);
+            consumer.accept(transaction);
+            consumer.accept(transaction);
+            return 2L;
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = bankingService.exportStatement(telegramId, output);
+
+        assertEquals(2, rows);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("5;"));
+        assertTrue(lines[1].contains(";DEPOSIT;10;Зарплата;"));
+        verify(transactionDao, never()).findAllByUser(any(User.class));
+    }
+
+    @Test
+    void testTransfer_OptimisticRetriesOnVersionConflict() {
+        BankingService optimisticService = new BankingService(userDao, transactionDao, statisticsDao,
+                new UserIdentityCache(100), transactionTemplate,
+                new RetryPolicy(3, 0, 0, TimeUnit.MILLISECONDS), LockingMode.PESSIMISTIC);
+        User sender = user(1L, 100L, BigDecimal.valueOf(500));
+        User recipient = user(2L, 200L, BigDecimal.valueOf(50));
+        runTemplateInline();
+        when(userDao.findByTelegramIds(List.of(100L, 200L)))
+                .thenThrow(new RuntimeException("Ошибка при поиске пользователей", new OptimisticLockException()))
+                .thenReturn(List.of(sender, recipient));
+        when(transactionDao.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionEntity result = optimisticService.transfer(100L, 200L, Money.parse("200"), null, LockingMode.OPTIMISTIC)
+                .transaction();
+
+        assertEquals(TransactionEntity.TransactionType.TRANSFER_OUT, result.getType());
+        assertEquals(0, BigDecimal.valueOf(300).compareTo(sender.getBalance()));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(userDao, never()).findByTelegramIdsForUpdate(anyList());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.itpark.sb.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    private final List<Long> pauses = new ArrayList<>();
+
+    private RetryPolicy policy(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, 10, 35, TimeUnit.MILLISECONDS, pauses::add);
+    }
+
+    @Test
+    void testExecute_RetriesConflictUntilSuccess() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy(5).execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException("Ошибка при обновлении", new OptimisticLockException());
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, pauses.size());
+    }
+
+    @Test
+    void testExecute_GivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        StaleObjectStateException conflict = new StaleObjectStateException("User", 1L);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> policy(3).execute(() -> {
+            calls.incrementAndGet();
+            throw conflict;
+        }));
+
+        assertEquals(3, calls.get());
+        assertSame(conflict, error.getCause());
+    }
+
+    @Test
+    void testExecute_DoesNotRetryOtherErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> policy(5).execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("Недостаточно средств");
+        }));
+
+        assertEquals(1, calls.get());
+        assertTrue(pauses.isEmpty());
+    }
+
+    @Test
+    void testBackoff_GrowsExponentiallyUpToLimit() {
+        RetryPolicy policy = policy(10);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.backoffLimitNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), policy.backoffLimitNanos(2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(35), policy.backoffLimitNanos(3));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(35), policy.backoffLimitNanos(64));
+    }
+
+    @Test
+    void testExecute_JitterStaysWithinLimit() {
+        AtomicInteger calls = new AtomicInteger();
+
+        policy(6).execute(() -> {
+            if (calls.incrementAndGet() < 6) {
+                throw new OptimisticLockException();
+            }
+            return null;
+        });
+
+        for (int i = 0; i < pauses.size(); i++) {
+            assertTrue(pauses.get(i) >= 0);
+            assertTrue(pauses.get(i) <= policy(6).backoffLimitNanos(i + 1));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.itpark.sb.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementArchiveTest {
+
+    private static final String HEADER = "\uFEFFid;Дата;Тип;Сумма;Описание;Получатель\r\n";
+    private static final long PART_BYTES = 1_200_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPack_SplitsByRowsAndRepeatsHeader() throws Exception {
+        Path csv = tempDir.resolve("statement.csv");
+        List<String> rows = writeCsv(csv, 40_000);
+
+        List<Path> parts = StatementArchive.pack(csv, "statement", PART_BYTES, 100);
+
+        assertTrue(parts.size() > 1, "частей: " + parts.size());
+        List<String> unpacked = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            assertTrue(Files.size(parts.get(i)) <= PART_BYTES, "часть " + i);
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(parts.get(i)), StandardCharsets.UTF_8)) {
+                ZipEntry entry = zip.getNextEntry();
+                assertEquals(i == 0 ? "statement.csv" : "statement-" + (i + 1) + ".csv", entry.getName());
+                String content = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(content.startsWith(HEADER));
+                assertTrue(content.endsWith("\r\n"));
+                unpacked.add(content.substring(HEADER.length()));
+            }
+            Files.delete(parts.get(i));
+        }
+        assertEquals(String.join("", rows), String.join("", unpacked));
+    }
+
+    @Test
+    void testPack_TooManyPartsReturnsEmptyAndCleansUp() throws Exception {
+        Path csv = tempDir.resolve("statement.csv");
+        writeCsv(csv, 40_000);
+        long tempFilesBefore = statementTempFiles();
+
+        assertTrue(StatementArchive.pack(csv, "statement", PART_BYTES, 1).isEmpty());
+
+        assertEquals(tempFilesBefore, statementTempFiles());
+    }
+
+    /**
+     * Строки со случайным описанием, которое плохо сжимается; каждая сотая —
+     * с переводом строки внутри кавычек.
+     */
+    private static List<String> writeCsv(Path csv, int count) throws IOException {
+        Random random = new Random(42);
+        List<String> rows = new ArrayList<>();
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (int i = 0; i < count; i++) {
+                byte[] noise = new byte[24];
+                random.nextBytes(noise);
+                String description = HexFormat.of().formatHex(noise);
+                if (i % 100 == 0) {
+                    description = "\"строка\r\n" + description + "\"";
+                }
+                String row = i + ";2024-03-01 09:05:07;DEPOSIT;10.00;" + description + ";\r\n";
+                rows.add(row);
+                writer.write(row);
+            }
+        }
+        return rows;
+    }
+
+    private static long statementTempFiles() throws IOException {
+        try (var files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("statement-")).count();
+        }
+    }
+}
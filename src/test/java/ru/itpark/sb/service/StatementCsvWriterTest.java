@@ -0,0 +1,52 @@
+package ru.itpark.sb.service;
+
+import org.junit.jupiter.api.Test;
+import ru.itpark.sb.model.TransactionEntity;
+import ru.itpark.sb.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCsvWriterTest {
+
+    private static TransactionEntity transaction(long id, String description, Long recipientId) {
+        TransactionEntity transaction = new TransactionEntity(new User(1L, "user"),
+                TransactionEntity.TransactionType.TRANSFER_OUT, new BigDecimal("1234.50"), description);
+        transaction.setId(id);
+        transaction.setRecipientId(recipientId);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 3, 1, 9, 5, 7));
+        return transaction;
+    }
+
+    @Test
+    void testWrite_FormatsRows() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StatementCsvWriter writer = new StatementCsvWriter(output);
+
+        writer.writeHeader();
+        writer.write(transaction(7L, "Долг", 42L));
+        writer.write(transaction(8L, null, null));
+        writer.flush();
+
+        String csv = output.toString(StandardCharsets.UTF_8);
+        assertEquals("\uFEFFid;Дата;Тип;Сумма;Описание;Получатель\r\n"
+                + "7;2024-03-01 09:05:07;TRANSFER_OUT;1234.50;Долг;42\r\n"
+                + "8;2024-03-01 09:05:07;TRANSFER_OUT;1234.50;;\r\n", csv);
+    }
+
+    @Test
+    void testWrite_QuotesSpecialCharacters() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StatementCsvWriter writer = new StatementCsvWriter(output);
+
+        writer.write(transaction(1L, "за \"обед\"; и кофе\nвторая строка", null));
+        writer.flush();
+
+        assertEquals("1;2024-03-01 09:05:07;TRANSFER_OUT;1234.50;\"за \"\"обед\"\"; и кофе\nвторая строка\";\r\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,81 @@
+package ru.itpark.sb.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import ru.itpark.sb.cache.UserIdentityCache;
+import ru.itpark.sb.dao.H2SessionFactory;
+import ru.itpark.sb.dao.TransactionDao;
+import ru.itpark.sb.dao.TransactionTemplate;
+import ru.itpark.sb.dao.UserDao;
+import ru.itpark.sb.dao.UserStatisticsDao;
+import ru.itpark.sb.model.Money;
+import ru.itpark.sb.model.User;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferConcurrencyTest {
+
+    private static final int ACCOUNTS = 3;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    private SessionFactory sessionFactory;
+    private BankingService bankingService;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2SessionFactory.create("transfer_concurrency");
+        UserDao userDao = new UserDao(sessionFactory);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User(100L + i, "user" + i);
+            user.setBalance(INITIAL_BALANCE);
+            userDao.save(user);
+        }
+        bankingService = new BankingService(userDao, new TransactionDao(sessionFactory),
+                new UserStatisticsDao(sessionFactory), new UserIdentityCache(100),
+                new TransactionTemplate(sessionFactory),
+                new RetryPolicy(50, 1, 20, TimeUnit.MILLISECONDS), LockingMode.PESSIMISTIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(LockingMode.class)
+    void testTransfer_ConcurrentTransfersKeepTotalBalance(LockingMode mode) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            futures.add(executor.submit(() -> {
+                int from = ThreadLocalRandom.current().nextInt(ACCOUNTS);
+                int to = (from + 1 + ThreadLocalRandom.current().nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                bankingService.transfer(100L + from, 100L + to, Money.ofKopecks(100), null, mode);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        try (Session session = sessionFactory.openSession()) {
+            BigDecimal total = session.createQuery("SELECT SUM(balance) FROM User", BigDecimal.class).getSingleResult();
+            long ledgerRows = session.createQuery("SELECT COUNT(*) FROM TransactionEntity", Long.class).getSingleResult();
+            assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(total));
+            assertEquals(240, ledgerRows);
+        }
+    }
+}
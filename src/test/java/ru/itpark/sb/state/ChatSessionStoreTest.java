@@ -0,0 +1,165 @@
+package ru.itpark.sb.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSessionStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private ChatSessionStore store(int maxSize, int segments) {
+        return new ChatSessionStore(maxSize, 60, TimeUnit.SECONDS, segments, clock::get);
+    }
+
+    @Test
+    void testGet_UnknownChatIsIdle() {
+        ChatSessionStore store = store(100, 4);
+
+        ChatSession session = store.get(42L);
+
+        assertEquals(BotState.IDLE, session.state());
+        assertNull(session.pendingRecipientId());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testPut_StoresStateAndRecipient() {
+        ChatSessionStore store = store(100, 4);
+
+        store.put(1L, BotState.WAITING_DEPOSIT_AMOUNT);
+        store.put(-100500L, BotState.WAITING_TRANSFER_AMOUNT, 777L);
+
+        assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, store.get(1L).state());
+        assertNull(store.get(1L).pendingRecipientId());
+        assertEquals(BotState.WAITING_TRANSFER_AMOUNT, store.get(-100500L).state());
+        assertEquals(777L, store.get(-100500L).pendingRecipientId());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void testPut_IdleRemovesEntry() {
+        ChatSessionStore store = store(100, 4);
+        store.put(1L, BotState.WAITING_WITHDRAWAL_AMOUNT);
+
+        store.put(1L, BotState.IDLE);
+
+        assertEquals(0, store.size());
+        assertEquals(BotState.IDLE, store.get(1L).state());
+    }
+
+    @Test
+    void testGet_ExpiredEntryIsEvicted() {
+        ChatSessionStore store = store(100, 4);
+        store.put(1L, BotState.WAITING_DEPOSIT_AMOUNT);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(61));
+
+        assertEquals(BotState.IDLE, store.get(1L).state());
+        assertEquals(0, store.size());
+        assertEquals(1, store.getExpiredEvictions());
+    }
+
+    @Test
+    void testGet_RefreshesLastAccess() {
+        ChatSessionStore store = store(100, 4);
+        store.put(1L, BotState.WAITING_DEPOSIT_AMOUNT);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(40));
+        assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, store.get(1L).state());
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(40));
+
+        assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, store.get(1L).state());
+    }
+
+    @Test
+    void testEvictExpired_SweepsIdleEntries() {
+        ChatSessionStore store = store(1000, 4);
+        for (long chatId = 0; chatId < 500; chatId++) {
+            store.put(chatId, BotState.WAITING_DEPOSIT_AMOUNT);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        for (long chatId = 0; chatId < 100; chatId++) {
+            store.get(chatId);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(31));
+
+        assertEquals(400, store.evictExpired());
+        assertEquals(100, store.size());
+        for (long chatId = 0; chatId < 100; chatId++) {
+            assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, store.get(chatId).state());
+        }
+    }
+
+    @Test
+    void testPut_CapacityEvictsOldest() {
+        ChatSessionStore store = store(4, 1);
+        for (long chatId = 1; chatId <= 4; chatId++) {
+            store.put(chatId, BotState.WAITING_DEPOSIT_AMOUNT);
+            clock.addAndGet(1000);
+        }
+
+        store.put(5L, BotState.WAITING_DEPOSIT_AMOUNT);
+
+        assertEquals(4, store.size());
+        assertEquals(1, store.getCapacityEvictions());
+        assertEquals(BotState.IDLE, store.get(1L).state());
+        assertEquals(BotState.WAITING_DEPOSIT_AMOUNT, store.get(5L).state());
+    }
+
+    @Test
+    void testRandomOperations_MatchReferenceMap() {
+        ChatSessionStore store = store(100_000, 8);
+        Map<Long, ChatSession> reference = new HashMap<>();
+        Random random = new Random(7);
+        BotState[] states = BotState.values();
+
+        for (int i = 0; i < 50_000; i++) {
+            long chatId = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                store.clear(chatId);
+                reference.remove(chatId);
+            } else {
+                BotState state = states[1 + random.nextInt(states.length - 1)];
+                Long recipient = random.nextBoolean() ? (long) random.nextInt(100) : null;
+                store.put(chatId, state, recipient);
+                reference.put(chatId, new ChatSession(state, recipient));
+            }
+        }
+
+        assertEquals(reference.size(), store.size());
+        for (long chatId = -1_000; chatId < 1_000; chatId++) {
+            assertEquals(reference.getOrDefault(chatId, ChatSession.IDLE), store.get(chatId));
+        }
+        assertTrue(store.estimatedMemoryBytes() > 0);
+    }
+
+    @Test
+    void testDrain_RemovesOnlyMatchingLiveSessions() {
+        ChatSessionStore store = store(100, 4);
+        for (long chatId = 0; chatId < 20; chatId++) {
+            store.put(chatId, BotState.WAITING_TRANSFER_AMOUNT, chatId * 10);
+        }
+        store.put(100L, BotState.WAITING_DEPOSIT_AMOUNT);
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(61));
+        for (long chatId = 0; chatId < 20; chatId++) {
+            store.put(chatId, BotState.WAITING_TRANSFER_AMOUNT, chatId * 10);
+        }
+        Map<Long, ChatSession> drained = new HashMap<>();
+
+        int count = store.drain(chatId -> chatId % 2 == 0 || chatId == 100L, drained::put);
+
+        assertEquals(10, count);
+        assertEquals(10, drained.size());
+        assertEquals(new ChatSession(BotState.WAITING_TRANSFER_AMOUNT, 40L), drained.get(4L));
+        assertFalse(drained.containsKey(100L));
+        assertEquals(BotState.IDLE, store.get(4L).state());
+        assertEquals(BotState.WAITING_TRANSFER_AMOUNT, store.get(5L).state());
+    }
+}